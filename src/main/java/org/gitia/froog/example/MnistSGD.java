@@ -19,21 +19,26 @@
  */
 package org.gitia.froog.example;
 
+import java.io.IOException;
 import java.util.Random;
-import org.gitia.jdataanalysis.CSV;
-import org.gitia.jdataanalysis.data.stats.FilterConstantColumns;
-import org.gitia.jdataanalysis.data.stats.STD;
+import org.gitia.froog.example.data.DatasetConverter;
+import org.gitia.froog.example.data.FeatureScaling;
+import org.gitia.froog.example.data.MappedDataset;
+import org.gitia.froog.example.data.MappedDataset.Type;
+import org.gitia.froog.example.inference.ChunkedInference;
+import org.gitia.froog.example.statistics.ConfusionCounts;
+import org.gitia.froog.example.telemetry.RingBufferSink;
+import org.gitia.froog.example.telemetry.Telemetry;
 import org.gitia.froog.Feedforward;
 import org.gitia.froog.layer.Dense;
 import org.gitia.froog.statistics.Clock;
 import org.gitia.froog.optimizer.Backpropagation;
+import org.ejml.data.DMatrixRMaj;
 import org.ejml.simple.SimpleMatrix;
 import org.gitia.froog.layer.initialization.WeightInit;
 import org.gitia.froog.lossfunction.LossFunction;
 import org.gitia.froog.optimizer.SGD;
 import org.gitia.froog.optimizer.accelerate.AccelerateRule;
-import org.gitia.froog.statistics.Compite;
-import org.gitia.froog.statistics.ConfusionMatrix;
 import org.gitia.froog.transferfunction.TransferFunction;
 
 /**
@@ -42,35 +47,25 @@ import org.gitia.froog.transferfunction.TransferFunction;
  */
 public class MnistSGD {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
 
         //================== Preparación de los datos ==========================
-        SimpleMatrix input = CSV.open("src/main/resources/mnist/mnist_train_in_50000.csv");
-        SimpleMatrix output = CSV.open("src/main/resources/mnist/mnist_train_out_50000.csv");
+        MappedDataset in = DatasetConverter.cached("src/main/resources/mnist/mnist_train_in_50000.csv", Type.FLOAT64);
+        MappedDataset out = DatasetConverter.cached("src/main/resources/mnist/mnist_train_out_50000.csv", Type.FLOAT64);
 
-        //ajustamos la desviación standard
-        FilterConstantColumns filter = new FilterConstantColumns();
-        filter.fit(input);
-        System.out.println("Dimensiones iniciales");
-        input.printDimensions();
-        input = filter.eval(input);
-        System.out.println("Dimensiones finales");
-        input.printDimensions();
-
-        STD std = new STD();
-        std.fit(input);
-
-        //convertimos los datos
-        input = std.eval(input);
+        //filtramos las columnas constantes y ajustamos la desviación standard
+        //en una pasada, los datos se escriben ya transpuestos
+        FeatureScaling scaling = FeatureScaling.fit(in);
+        System.out.println("Dimensiones iniciales: " + in.numFeatures());
+        System.out.println("Dimensiones finales: " + scaling.numOutputs());
+        SimpleMatrix input = SimpleMatrix.wrap(scaling.transform(in, null));
+        SimpleMatrix output = out.horizontal();
         //================== /Preparación de los datos =========================
 
         //=================  configuraciones del ensayo ========================
         //Preparamos el algoritmo de entrenamiento
-        int inputSize = input.numCols();
-        int outputSize = output.numCols();
-
-        input = input.transpose();
-        output = output.transpose();
+        int inputSize = input.numRows();
+        int outputSize = output.numRows();
 
         //==================== Preparamos la RNA =======================
         Random r = new Random();
@@ -83,27 +78,31 @@ public class MnistSGD {
         Clock clock = new Clock();
         clock.start();
 
+        int epoch = 10;
         SGD sgd = new SGD();
         sgd.setLearningRate(0.01);
         //sgd.setBatchSize(30);
         sgd.setRegularization(1e-4);
         //sgd.setDropOut(true);
-        sgd.setEpoch(10);
+        sgd.setEpoch(epoch);
         sgd.setBatchSize(32);
         sgd.setAcceleration(AccelerateRule.adam(0.9, 0.999, 1e-8, 2));
         sgd.setLossFunction(LossFunction.CROSSENTROPY);
 
-        sgd.train(net, input, output);
+        //medimos también la memoria asignada y las pausas del GC
+        RingBufferSink metrics = new RingBufferSink(1);
+        new Telemetry().addSink(metrics).measure((long) epoch * input.numCols(), () -> sgd.train(net, input, output));
 
         clock.stop();
         double time1 = clock.timeSec();
         System.out.println("Tiempo: " + time1);
+        System.out.println(metrics.snapshot().get(0));
 
         //show results
         System.out.println("Print all output");
-        SimpleMatrix salida = net.output(input);
-        ConfusionMatrix confusionMatrix = new ConfusionMatrix();
-        confusionMatrix.eval(Compite.eval(salida.transpose()), output.transpose());
+        //la salida se calcula por bloques de registros, en paralelo
+        DMatrixRMaj salida = new ChunkedInference(net, 1024).output(input.getDDRM(), null);
+        ConfusionCounts confusionMatrix = ConfusionCounts.of(salida, output.getDDRM());
         confusionMatrix.printStats();
     }
 }
@@ -19,25 +19,15 @@
  */
 package org.gitia.froog.example;
 
-import java.util.Random;
-import org.gitia.jdataanalysis.CSV;
-import org.gitia.jdataanalysis.data.stats.FilterConstantColumns;
-import org.gitia.jdataanalysis.data.stats.STD;
-import org.gitia.froog.Feedforward;
-import org.gitia.froog.layer.Dense;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import org.gitia.froog.example.data.DatasetConverter;
+import org.gitia.froog.example.data.MappedDataset.Type;
+import org.gitia.froog.example.parallel.CommonOps_DDRM_Parallel;
+import org.gitia.froog.example.sweep.Sweep;
 import org.gitia.froog.statistics.Clock;
-import org.gitia.froog.optimizer.Backpropagation;
 import org.ejml.simple.SimpleMatrix;
-import org.gitia.froog.layer.initialization.WeightInit;
-import org.gitia.froog.lossfunction.LossFunction;
-import org.gitia.froog.optimizer.SGD;
-import org.gitia.froog.optimizer.accelerate.AccelerateRule;
-import org.gitia.froog.statistics.Compite;
-import org.gitia.froog.statistics.ConfusionMatrix;
-import org.gitia.froog.transferfunction.TransferFunction;
-import org.gitia.jdataanalysis.data.Normalize;
-import org.gitia.jdataanalysis.data.NormalizeDiv;
-import org.gitia.jdataanalysis.data.stats.MapMinMax;
 
 /**
  *
@@ -45,71 +35,51 @@ import org.gitia.jdataanalysis.data.stats.MapMinMax;
  */
 public class MnistSGDtest {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
 
         //================== Preparación de los datos ==========================
-        SimpleMatrix input = CSV.open("src/main/resources/mnist/mnist_train_in_50000.csv");
-        SimpleMatrix output = CSV.open("src/main/resources/mnist/mnist_train_out_50000.csv");
-        SimpleMatrix inputTest = CSV.open("src/main/resources/mnist/mnist_test_in.csv");
-        SimpleMatrix outputTest = CSV.open("src/main/resources/mnist/mnist_test_out.csv");
-        
+        SimpleMatrix input = DatasetConverter.cached("src/main/resources/mnist/mnist_train_in_50000.csv", Type.FLOAT64).horizontal();
+        SimpleMatrix output = DatasetConverter.cached("src/main/resources/mnist/mnist_train_out_50000.csv", Type.FLOAT64).horizontal();
+        SimpleMatrix inputTest = DatasetConverter.cached("src/main/resources/mnist/mnist_test_in.csv", Type.FLOAT64).horizontal();
+        SimpleMatrix outputTest = DatasetConverter.cached("src/main/resources/mnist/mnist_test_out.csv", Type.FLOAT64).horizontal();
+
         //normalizamos los datos
-        input = input.divide(255);
-        inputTest = inputTest.divide(255);
+        CommonOps_DDRM_Parallel.divide(input.getDDRM(), 255);
+        CommonOps_DDRM_Parallel.divide(inputTest.getDDRM(), 255);
         //================== /Preparación de los datos =========================
 
         //=================  configuraciones del ensayo ========================
-        int inputSize = input.numCols();
-        int outputSize = output.numCols();
+        //cantidad de entrenamientos simultaneos, cada uno con su parte de los cores
+        int trainers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
 
-        input = input.transpose();
-        inputTest = inputTest.transpose();
-        output = output.transpose();
-        outputTest = outputTest.transpose();
+        Sweep sweep = new Sweep(input.getDDRM(), output.getDDRM(), inputTest.getDDRM(), outputTest.getDDRM());
+        sweep.setRepetitions(3);
+        sweep.setBatchSizes(1, 10, 32, 64, 128, 256, 512, 1024, 60000);
+        sweep.setNeurons(300, 500, 1000);
+        sweep.setLearningRate(0.006);
+        sweep.setRegularization(1e-4);
+        sweep.setEpoch(10);
+        sweep.setTrainers(trainers);
 
-        //==================== Preparamos la RNA =======================
-        Random r = new Random();
-        
         Clock clock = new Clock();
         clock.start();
+        List<Sweep.Result> results = sweep.run(Paths.get("target", "sweep-sgd.csv"));
+        clock.stop();
 
-        int ensayos = 3;
-        int[] batch = {1, 10, 32, 64, 128, 256, 512, 1024, 60000};
-        int[] neuronas = {300, 500, 1000};
-        double[] time300 = new double[batch.length];
-        double[] time500 = new double[batch.length];
-        double[] time1000 = new double[batch.length];
-
-        double[] trainError300 = new double[batch.length];
-        double[] trainError500 = new double[batch.length];
-        double[] trainError1000 = new double[batch.length];
-
-        double[] testError300 = new double[batch.length];
-        double[] testError500 = new double[batch.length];
-        double[] testError1000 = new double[batch.length];
-
-        System.out.println("Ensayo 300 Neuronas");
-        for (int j = 0; j < batch.length; j++) {
-            for (int i = 0; i < ensayos; i++) {
-                Feedforward net = new Feedforward();
-                net.addLayer(new Dense(inputSize, neuronas[0], TransferFunction.TANSIG, WeightInit.DEFAULT, r));
-                net.addLayer(new Dense(neuronas[0], outputSize, TransferFunction.SOFTMAX, r));
-
-                SGD sgd = new SGD();
-                sgd.setLearningRate(0.006);
-                sgd.setRegularization(1e-4);
-                sgd.setEpoch(10);
-                sgd.setBatchSize(512);
-                sgd.setAcceleration(AccelerateRule.adam(0.9, 0.999, 1e-8, 2));
-                sgd.setLossFunction(LossFunction.CROSSENTROPY);
-
-                sgd.train(net, input, output);
-
+        //mejor rendimiento (registros por segundo) de cada cantidad de neuronas
+        for (int neurons : new int[]{300, 500, 1000}) {
+            Sweep.Result best = null;
+            for (Sweep.Result r : results) {
+                if (r.getTrial().getNeurons() == neurons
+                        && (best == null || r.getSamplesPerSecond() > best.getSamplesPerSecond())) {
+                    best = r;
+                }
             }
+            System.out.println("Neuronas: " + neurons
+                    + "\tbatch: " + best.getTrial().getBatchSize()
+                    + "\tregistros/s: " + best.getSamplesPerSecond()
+                    + "\terror test: " + best.getTestError());
         }
-
-        clock.stop();
-        double time1 = clock.timeSec();
-        System.out.println("Tiempo: " + time1);
+        System.out.println("Tiempo: " + clock.timeSec());
     }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import org.ejml.data.DMatrixRMaj;
+
+/**
+ * Mini-batch in horizontal format: column j of 'input' and of 'output' is
+ * one register.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class Batch {
+
+    public final DMatrixRMaj input;
+    public final DMatrixRMaj output;
+
+    public Batch(int inputs, int outputs, int capacity) {
+        this.input = new DMatrixRMaj(inputs, capacity);
+        this.output = new DMatrixRMaj(outputs, capacity);
+    }
+
+    /**
+     * @return number of registers
+     */
+    public int size() {
+        return input.numCols;
+    }
+}
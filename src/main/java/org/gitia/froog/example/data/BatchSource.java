@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import java.io.IOException;
+
+/**
+ * Stream of mini-batches for the trainers, read incrementally so the data set
+ * does not need to be in the heap.
+ * <p>
+ * {@link #next()} returns the batches of one epoch and then null. The call
+ * after the null starts the next epoch, with a new order if the source
+ * shuffles. A batch given back with {@link #recycle} may be reused for a
+ * later one, so it must not be used after that.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public interface BatchSource extends AutoCloseable {
+
+    /**
+     * @return rows of the input of every batch
+     */
+    int numInputs();
+
+    /**
+     * @return rows of the output of every batch
+     */
+    int numOutputs();
+
+    /**
+     * @return registers in one epoch
+     */
+    int numRegisters();
+
+    /**
+     * @return the next batch of the epoch, or null when the epoch is over
+     * @throws IOException if the data can not be read
+     */
+    Batch next() throws IOException;
+
+    /**
+     * Gives back a batch that is no longer used.
+     *
+     * @param batch batch returned by {@link #next()}
+     */
+    void recycle(Batch batch);
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import org.gitia.froog.example.data.MappedDataset.Type;
+
+/**
+ * One time conversion of a CSV data set (one register per line, comma
+ * separated, as read by CSV.open) to the binary format of
+ * {@link MappedDataset}.
+ * <p>
+ * The CSV is read twice: once to count the registers and once to write them.
+ * Registers are transposed in blocks of {@link #BLOCK} so each feature is
+ * written with one contiguous write per block, and memory use does not
+ * depend on the size of the data set.
+ * </p>
+ * <pre>
+ * java org.gitia.froog.example.data.DatasetConverter in.csv out.bin [float32|float64]
+ * </pre>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class DatasetConverter {
+
+    // registers transposed at once
+    static final int BLOCK = 4096;
+
+    /**
+     * @param csv CSV file
+     * @param bin binary file, replaced if it exists
+     * @param type type of the stored values
+     * @throws IOException if a file can not be read or written, or the CSV is
+     * not rectangular
+     */
+    public static void convert(Path csv, Path bin, Type type) throws IOException {
+        int features = -1;
+        long registers = 0;
+        try (BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (features < 0) {
+                    features = count(line);
+                }
+                registers++;
+            }
+        }
+        features = Math.max(0, features);
+
+        // written next to the target and moved, so a failed conversion never
+        // leaves a truncated file that looks valid
+        Path tmp = bin.resolveSibling(bin.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                BufferedReader in = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            ByteBuffer header = ByteBuffer.allocate(MappedDataset.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MappedDataset.MAGIC);
+            header.putInt(MappedDataset.VERSION);
+            header.putInt(type.code);
+            header.putInt(features);
+            header.putLong(registers);
+            header.rewind();
+            writeFully(out, header, 0);
+
+            long rowBytes = registers * type.bytes;
+            double[] block = new double[features * BLOCK];
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCK * type.bytes).order(ByteOrder.LITTLE_ENDIAN);
+            long done = 0;
+            String line;
+            int filled = 0;
+            while (true) {
+                line = in.readLine();
+                if (line != null && line.isEmpty()) {
+                    continue;
+                }
+                if (line != null) {
+                    parse(line, features, block, filled, done + filled);
+                    filled++;
+                }
+                if (filled == BLOCK || (line == null && filled > 0)) {
+                    for (int i = 0; i < features; i++) {
+                        buffer.clear();
+                        int base = i * BLOCK;
+                        for (int j = 0; j < filled; j++) {
+                            if (type == Type.FLOAT32) {
+                                buffer.putFloat((float) block[base + j]);
+                            } else {
+                                buffer.putDouble(block[base + j]);
+                            }
+                        }
+                        buffer.flip();
+                        writeFully(out, buffer, MappedDataset.HEADER_BYTES + i * rowBytes + done * type.bytes);
+                    }
+                    done += filled;
+                    filled = 0;
+                }
+                if (line == null) {
+                    break;
+                }
+            }
+            if (done != registers) {
+                throw new IOException(csv + " changed while it was converted");
+            }
+        }
+        Files.move(tmp, bin, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Maps the binary copy of a CSV, named like the CSV with the extension
+     * ".f32.bin" or ".f64.bin" after the type, converting it first when it
+     * does not exist or is older than the CSV. Each type has its own copy, so
+     * examples that use different precisions do not share one.
+     *
+     * @param csv CSV file
+     * @param type type of the values
+     * @return the mapped data set
+     * @throws IOException if a file can not be read or written
+     */
+    public static MappedDataset cached(String csv, Type type) throws IOException {
+        Path source = Paths.get(csv);
+        String name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String extension = type == Type.FLOAT32 ? ".f32.bin" : ".f64.bin";
+        Path bin = source.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + extension);
+        if (!Files.exists(bin)
+                || Files.getLastModifiedTime(bin).compareTo(Files.getLastModifiedTime(source)) < 0) {
+            convert(source, bin, type);
+        }
+        return MappedDataset.open(bin);
+    }
+
+    private static int count(String line) {
+        int count = 1;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == ',') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stores the values of one line as column 'col' of the block.
+     */
+    private static void parse(String line, int features, double[] block, int col, long register)
+            throws IOException {
+        int start = 0;
+        for (int i = 0; i < features; i++) {
+            int end = line.indexOf(',', start);
+            if (end < 0) {
+                if (i != features - 1) {
+                    throw new IOException("register " + register + " has " + (i + 1) + " values, expected " + features);
+                }
+                end = line.length();
+            }
+            block[i * BLOCK + col] = Double.parseDouble(line.substring(start, end).trim());
+            start = end + 1;
+        }
+        if (start <= line.length()) {
+            throw new IOException("register " + register + " has more than " + features + " values");
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: DatasetConverter in.csv out.bin [float32|float64]");
+            System.exit(1);
+        }
+        Type type = args.length > 2 && "float32".equals(args[2]) ? Type.FLOAT32 : Type.FLOAT64;
+        long start = System.nanoTime();
+        convert(Paths.get(args[0]), Paths.get(args[1]), type);
+        MappedDataset data = MappedDataset.open(args[1]);
+        System.out.println(data.numFeatures() + " features x " + data.numRegisters() + " registers ("
+                + type + ") in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.FMatrixRMaj;
+import org.gitia.froog.example.parallel.ParallelContext;
+
+/**
+ * Removes the constant features and standardizes the others to mean 0 and
+ * standard deviation 1, as FilterConstantColumns and STD do on the vertical
+ * format, but applied to batches in horizontal format.
+ * <p>
+ * It also replaces the FilterConstantColumns, STD and transpose chain of the
+ * examples: {@link #fit(DMatrixRMaj)} computes the statistics in one
+ * parallel pass and the transform methods write the filtered, standardized
+ * and transposed data in a second pass, into a matrix given by the caller.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class FeatureScaling implements Normalizer {
+
+    // registers of each task of the vertical transform
+    private static final int TRANSPOSE_BLOCK = 256;
+
+    private final int inputs;
+    // kept features, and their mean and standard deviation
+    private final int[] keep;
+    private final double[] mean;
+    private final double[] std;
+
+    /**
+     * @param mean mean of every feature
+     * @param std standard deviation of every feature, the features with 0 are
+     * removed
+     */
+    public FeatureScaling(double[] mean, double[] std) {
+        if (mean.length != std.length) {
+            throw new IllegalArgumentException("mean and std must have the same length");
+        }
+        this.inputs = mean.length;
+        int kept = 0;
+        for (double s : std) {
+            if (s > 0) {
+                kept++;
+            }
+        }
+        this.keep = new int[kept];
+        this.mean = new double[kept];
+        this.std = new double[kept];
+        for (int i = 0, k = 0; i < inputs; i++) {
+            if (std[i] > 0) {
+                keep[k] = i;
+                this.mean[k] = mean[i];
+                this.std[k] = std[i];
+                k++;
+            }
+        }
+    }
+
+    /**
+     * Computes the statistics of every feature reading the file one feature
+     * at a time, so only one row is in memory. The features are read in
+     * parallel on the current {@link ParallelContext}.
+     *
+     * @param data registers used to fit
+     * @return the fitted scaling
+     */
+    public static FeatureScaling fit(MappedDataset data) {
+        int features = data.numFeatures();
+        int n = data.numRegisters();
+        double[] mean = new double[features];
+        double[] std = new double[features];
+        ThreadLocal<double[]> rows = ThreadLocal.withInitial(() -> new double[n]);
+        ParallelContext.current().forEach(features, i -> {
+            double[] row = rows.get();
+            data.copyRow(i, 0, row, 0, n);
+            double sum = 0;
+            for (int j = 0; j < n; j++) {
+                sum += row[j];
+            }
+            double m = sum / n;
+            double sq = 0;
+            for (int j = 0; j < n; j++) {
+                double e = row[j] - m;
+                sq += e * e;
+            }
+            mean[i] = m;
+            std[i] = n > 1 ? Math.sqrt(sq / (n - 1)) : 0;
+        });
+        return new FeatureScaling(mean, std);
+    }
+
+    /**
+     * Computes the statistics of a matrix in vertical format in one parallel
+     * pass, see {@link FeatureStats#of}.
+     *
+     * @param vertical [registers x features]. Not modified.
+     * @return the fitted scaling
+     */
+    public static FeatureScaling fit(DMatrixRMaj vertical) {
+        return FeatureStats.of(vertical).toScaling();
+    }
+
+    /**
+     * Filters, standardizes and transposes a matrix in vertical format. The
+     * registers are processed in parallel in blocks, so each block of the
+     * result is written while its rows are in cache.
+     *
+     * @param vertical [registers x numInputs]. Not modified.
+     * @param target [numOutputs x registers]. Reshaped. Can be null.
+     * @return 'target', in horizontal format
+     */
+    public DMatrixRMaj transform(DMatrixRMaj vertical, DMatrixRMaj target) {
+        if (vertical.numCols != inputs) {
+            throw new IllegalArgumentException("vertical must have " + inputs + " columns");
+        }
+        int n = vertical.numRows;
+        if (target == null) {
+            target = new DMatrixRMaj(keep.length, n);
+        }
+        target.reshape(keep.length, n);
+        final double[] out = target.data;
+        final double[] in = vertical.data;
+        int tasks = (n + TRANSPOSE_BLOCK - 1) / TRANSPOSE_BLOCK;
+        ParallelContext.current().forEach(tasks, t -> {
+            int end = Math.min(n, (t + 1) * TRANSPOSE_BLOCK);
+            for (int j = t * TRANSPOSE_BLOCK; j < end; j++) {
+                int row = j * inputs;
+                for (int k = 0, index = j; k < keep.length; k++, index += n) {
+                    out[index] = (in[row + keep[k]] - mean[k]) / std[k];
+                }
+            }
+        });
+        return target;
+    }
+
+    /**
+     * Filters and standardizes every register of a mapped file. The kept
+     * features are copied straight into their row of 'target' and scaled
+     * there, in parallel, so the file is read once and nothing else is
+     * allocated.
+     *
+     * @param data [numInputs x registers], in the file
+     * @param target [numOutputs x registers]. Reshaped. Can be null.
+     * @return 'target', in horizontal format
+     */
+    public DMatrixRMaj transform(MappedDataset data, DMatrixRMaj target) {
+        if (data.numFeatures() != inputs) {
+            throw new IllegalArgumentException("data must have " + inputs + " features");
+        }
+        int n = data.numRegisters();
+        if (target == null) {
+            target = new DMatrixRMaj(keep.length, n);
+        }
+        target.reshape(keep.length, n);
+        final double[] out = target.data;
+        ParallelContext.current().forEach(keep.length, k -> {
+            int index = k * n;
+            data.copyRow(keep[k], 0, out, index, n);
+            double m = mean[k];
+            double s = std[k];
+            for (int j = index; j < index + n; j++) {
+                out[j] = (out[j] - m) / s;
+            }
+        });
+        return target;
+    }
+
+    /**
+     * Single precision version of {@link #transform(MappedDataset, DMatrixRMaj)}.
+     * The values are scaled in double and rounded once.
+     *
+     * @param data [numInputs x registers], in the file
+     * @param target [numOutputs x registers]. Reshaped. Can be null.
+     * @return 'target', in horizontal format
+     */
+    public FMatrixRMaj transformFloat(MappedDataset data, FMatrixRMaj target) {
+        if (data.numFeatures() != inputs) {
+            throw new IllegalArgumentException("data must have " + inputs + " features");
+        }
+        int n = data.numRegisters();
+        if (target == null) {
+            target = new FMatrixRMaj(keep.length, n);
+        }
+        target.reshape(keep.length, n);
+        final float[] out = target.data;
+        ParallelContext.current().forEach(keep.length, k -> {
+            int index = k * n;
+            data.copyRow(keep[k], 0, out, index, n);
+            double m = mean[k];
+            double s = std[k];
+            for (int j = index; j < index + n; j++) {
+                out[j] = (float) ((out[j] - m) / s);
+            }
+        });
+        return target;
+    }
+
+    @Override
+    public int numInputs() {
+        return inputs;
+    }
+
+    @Override
+    public int numOutputs() {
+        return keep.length;
+    }
+
+    @Override
+    public void apply(DMatrixRMaj raw, DMatrixRMaj out) {
+        if (raw.numRows != inputs) {
+            throw new IllegalArgumentException("raw must have " + inputs + " rows");
+        }
+        int n = raw.numCols;
+        out.reshape(keep.length, n);
+        for (int k = 0; k < keep.length; k++) {
+            int from = keep[k] * n;
+            int to = k * n;
+            double m = mean[k];
+            double s = std[k];
+            for (int j = 0; j < n; j++) {
+                out.data[to + j] = (raw.data[from + j] - m) / s;
+            }
+        }
+    }
+}
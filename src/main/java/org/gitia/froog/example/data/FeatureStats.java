@@ -0,0 +1,314 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.example.parallel.ParallelContext;
+
+/**
+ * Count, mean, sum of squared deviations (M2), minimum and maximum of every
+ * feature, accumulated with Welford's method so the statistics of different
+ * parts of a data set can be merged.
+ * <p>
+ * It is also an incremental STD: the statistics can be updated one
+ * mini-batch at a time with {@link #addColumns}, merged across shards or
+ * threads, saved, and used to standardize new batches in place. Once every
+ * register has been added the result is the one of STD.fit and STD.eval on
+ * the whole data set, up to rounding.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class FeatureStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // registers accumulated by each task of the parallel pass
+    static final int REGISTERS_PER_TASK = 2048;
+
+    private long count;
+    private final double[] mean;
+    private final double[] m2;
+    private final double[] min;
+    private final double[] max;
+
+    /**
+     * @param features number of features
+     */
+    public FeatureStats(int features) {
+        mean = new double[features];
+        m2 = new double[features];
+        min = new double[features];
+        max = new double[features];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Statistics of every column of a matrix in vertical format, in one pass.
+     * Blocks of rows are accumulated in parallel on the current
+     * {@link ParallelContext} and merged in order, so the result does not
+     * depend on the number of workers.
+     *
+     * @param vertical [registers x features]. Not modified.
+     * @return the statistics of every column
+     */
+    public static FeatureStats of(DMatrixRMaj vertical) {
+        int n = vertical.numRows;
+        int tasks = Math.max(1, (n + REGISTERS_PER_TASK - 1) / REGISTERS_PER_TASK);
+        FeatureStats[] partial = new FeatureStats[tasks];
+        ParallelContext.current().forEach(tasks, t -> {
+            FeatureStats s = new FeatureStats(vertical.numCols);
+            s.addRows(vertical, t * REGISTERS_PER_TASK, Math.min(n, (t + 1) * REGISTERS_PER_TASK));
+            partial[t] = s;
+        });
+        for (int t = 1; t < tasks; t++) {
+            partial[0].merge(partial[t]);
+        }
+        return partial[0];
+    }
+
+    /**
+     * Adds the registers start:end of a matrix in vertical format.
+     *
+     * @param vertical [registers x features]. Not modified.
+     * @param start first row
+     * @param end row after the last one
+     */
+    public void addRows(DMatrixRMaj vertical, int start, int end) {
+        int features = mean.length;
+        if (vertical.numCols != features) {
+            throw new IllegalArgumentException("Expected " + features + " columns");
+        }
+        double[] data = vertical.data;
+        for (int j = start; j < end; j++) {
+            count++;
+            double inv = 1.0 / count;
+            int index = j * features;
+            for (int i = 0; i < features; i++) {
+                double x = data[index + i];
+                double delta = x - mean[i];
+                mean[i] += delta * inv;
+                m2[i] += delta * (x - mean[i]);
+                if (x < min[i]) {
+                    min[i] = x;
+                }
+                if (x > max[i]) {
+                    max[i] = x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a mini-batch in horizontal format. The statistics of the batch are
+     * computed with two passes over each row and merged, which is more
+     * accurate than adding the registers one by one.
+     *
+     * @param horizontal [features x registers]. Not modified.
+     */
+    public void addColumns(DMatrixRMaj horizontal) {
+        int features = mean.length;
+        if (horizontal.numRows != features) {
+            throw new IllegalArgumentException("Expected " + features + " rows");
+        }
+        int n = horizontal.numCols;
+        if (n == 0) {
+            return;
+        }
+        double[] data = horizontal.data;
+        double na = count;
+        double total = na + n;
+        for (int i = 0; i < features; i++) {
+            int row = i * n;
+            double sum = 0;
+            double lo = min[i];
+            double hi = max[i];
+            for (int j = row; j < row + n; j++) {
+                double x = data[j];
+                sum += x;
+                if (x < lo) {
+                    lo = x;
+                }
+                if (x > hi) {
+                    hi = x;
+                }
+            }
+            double m = sum / n;
+            double sq = 0;
+            for (int j = row; j < row + n; j++) {
+                double e = data[j] - m;
+                sq += e * e;
+            }
+            double delta = m - mean[i];
+            mean[i] += delta * n / total;
+            m2[i] += sq + delta * delta * na * n / total;
+            min[i] = lo;
+            max[i] = hi;
+        }
+        count += n;
+    }
+
+    /**
+     * Adds the statistics of other registers, as if they had been added to
+     * this instance (Chan et al. parallel update).
+     *
+     * @param other statistics of the same features. Not modified.
+     */
+    public void merge(FeatureStats other) {
+        if (other.mean.length != mean.length) {
+            throw new IllegalArgumentException("Expected " + mean.length + " features");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            System.arraycopy(other.mean, 0, mean, 0, mean.length);
+            System.arraycopy(other.m2, 0, m2, 0, m2.length);
+            System.arraycopy(other.min, 0, min, 0, min.length);
+            System.arraycopy(other.max, 0, max, 0, max.length);
+            return;
+        }
+        double na = count;
+        double nb = other.count;
+        double n = na + nb;
+        for (int i = 0; i < mean.length; i++) {
+            double delta = other.mean[i] - mean[i];
+            mean[i] += delta * nb / n;
+            m2[i] += other.m2[i] + delta * delta * na * nb / n;
+            min[i] = Math.min(min[i], other.min[i]);
+            max[i] = Math.max(max[i], other.max[i]);
+        }
+        count += other.count;
+    }
+
+    /**
+     * Standardizes a mini-batch in horizontal format in place with the
+     * current statistics, as STD.eval does. The constant features are only
+     * centered, use {@link #toScaling()} to remove them instead.
+     *
+     * @param horizontal [features x registers]. Modified.
+     */
+    public void standardize(DMatrixRMaj horizontal) {
+        int features = mean.length;
+        if (horizontal.numRows != features) {
+            throw new IllegalArgumentException("Expected " + features + " rows");
+        }
+        int n = horizontal.numCols;
+        double[] data = horizontal.data;
+        for (int i = 0; i < features; i++) {
+            double m = mean[i];
+            double s = std(i);
+            double inv = s > 0 ? 1 / s : 1;
+            for (int j = i * n; j < (i + 1) * n; j++) {
+                data[j] = (data[j] - m) * inv;
+            }
+        }
+    }
+
+    /**
+     * @return a scaling that removes the constant features (minimum equal to
+     * maximum) and standardizes the others with the sample standard deviation
+     */
+    public FeatureScaling toScaling() {
+        double[] std = new double[mean.length];
+        for (int i = 0; i < std.length; i++) {
+            std[i] = min[i] == max[i] ? 0 : std(i);
+        }
+        return new FeatureScaling(mean, std);
+    }
+
+    /**
+     * @return an independent copy, for example to keep the statistics of a
+     * shard before merging it
+     */
+    public FeatureStats copy() {
+        FeatureStats c = new FeatureStats(mean.length);
+        c.merge(this);
+        return c;
+    }
+
+    /**
+     * @param path file where the statistics are written
+     * @throws IOException if the file can not be written
+     */
+    public void save(Path path) throws IOException {
+        try (OutputStream os = Files.newOutputStream(path);
+                ObjectOutputStream out = new ObjectOutputStream(os)) {
+            out.writeObject(this);
+        }
+    }
+
+    /**
+     * @param path file written by {@link #save}
+     * @return the statistics
+     * @throws IOException if the file can not be read or has other content
+     */
+    public static FeatureStats load(Path path) throws IOException {
+        try (InputStream is = Files.newInputStream(path);
+                ObjectInputStream in = new ObjectInputStream(is)) {
+            return (FeatureStats) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new IOException(path + " does not contain feature statistics", ex);
+        }
+    }
+
+    public int numFeatures() {
+        return mean.length;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double mean(int feature) {
+        return mean[feature];
+    }
+
+    /**
+     * @param feature index of the feature
+     * @return sample variance, M2 / (count - 1)
+     */
+    public double variance(int feature) {
+        return count > 1 ? m2[feature] / (count - 1) : 0;
+    }
+
+    /**
+     * @param feature index of the feature
+     * @return sample standard deviation
+     */
+    public double std(int feature) {
+        return Math.sqrt(variance(feature));
+    }
+
+    public double min(int feature) {
+        return min[feature];
+    }
+
+    public double max(int feature) {
+        return max[feature];
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.ejml.data.DMatrixRMaj;
+
+/**
+ * Mini-batches read from a pair of {@link MappedDataset}, the input and the
+ * expected output of the same registers.
+ * <p>
+ * Without shuffle the registers are read in order. With shuffle the file is
+ * split in blocks of one batch, each epoch visits the blocks in a random
+ * order and loads a window of several blocks, which is read sequentially,
+ * and the registers of the window are shuffled before they are cut into
+ * batches. A window the size of the data set gives a full shuffle, a small
+ * one keeps the reads sequential when the file is not in the page cache.
+ * </p>
+ * <p>
+ * {@link #next()} must be called from one thread at a time,
+ * {@link #recycle} can be called from any thread.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MappedBatchSource implements BatchSource {
+
+    private final MappedDataset input;
+    private final MappedDataset output;
+    private final int batchSize;
+    private final int registers;
+    private final int blocks;
+    private Normalizer normalizer;
+    private Random random;
+    private int windowBlocks;
+
+    private final Queue<Batch> pool = new ConcurrentLinkedQueue<>();
+    // state of the epoch
+    private int[] blockOrder;
+    private int nextBlock;
+    private int[] registerOrder = new int[0];
+    private int windowSize;
+    private int windowPosition;
+    private boolean epochOver = true;
+    private DMatrixRMaj windowIn;
+    private DMatrixRMaj windowOut;
+    private DMatrixRMaj raw;
+
+    /**
+     * @param input input of every register
+     * @param output expected output of every register
+     * @param batchSize registers of every batch, except maybe the last one of
+     * an epoch
+     */
+    public MappedBatchSource(MappedDataset input, MappedDataset output, int batchSize) {
+        if (input.numRegisters() != output.numRegisters()) {
+            throw new IllegalArgumentException("input and output must have the same number of registers");
+        }
+        if (input.numRegisters() == 0) {
+            throw new IllegalArgumentException("input and output must have at least one register");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.input = input;
+        this.output = output;
+        this.registers = input.numRegisters();
+        this.batchSize = Math.min(batchSize, registers);
+        this.blocks = (registers + this.batchSize - 1) / this.batchSize;
+        this.windowBlocks = 1;
+        this.blockOrder = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            blockOrder[i] = i;
+        }
+    }
+
+    /**
+     * Shuffles the registers of every epoch.
+     *
+     * @param random source of the order
+     * @param window number of registers shuffled together, rounded up to a
+     * whole number of batches
+     */
+    public void setShuffle(Random random, int window) {
+        this.random = random;
+        this.windowBlocks = Math.max(1, Math.min(blocks, (window + batchSize - 1) / batchSize));
+    }
+
+    /**
+     * @param normalizer applied to the input of every batch, can be null
+     */
+    public void setNormalizer(Normalizer normalizer) {
+        if (normalizer != null && normalizer.numInputs() != input.numFeatures()) {
+            throw new IllegalArgumentException("The normalizer expects " + normalizer.numInputs() + " features");
+        }
+        this.normalizer = normalizer;
+    }
+
+    @Override
+    public int numInputs() {
+        return normalizer == null ? input.numFeatures() : normalizer.numOutputs();
+    }
+
+    @Override
+    public int numOutputs() {
+        return output.numFeatures();
+    }
+
+    @Override
+    public int numRegisters() {
+        return registers;
+    }
+
+    @Override
+    public Batch next() throws IOException {
+        if (epochOver) {
+            epochOver = false;
+            nextBlock = 0;
+            windowSize = 0;
+            windowPosition = 0;
+            if (random != null) {
+                shuffle(blockOrder, blocks);
+            }
+        }
+        if (windowPosition == windowSize && !loadWindow()) {
+            epochOver = true;
+            return null;
+        }
+        int cols = Math.min(batchSize, windowSize - windowPosition);
+        Batch batch = pool.poll();
+        if (batch == null) {
+            batch = new Batch(numInputs(), numOutputs(), batchSize);
+        }
+        DMatrixRMaj x = normalizer == null ? batch.input : raw(cols);
+        gather(windowIn, x, cols);
+        gather(windowOut, batch.output, cols);
+        if (normalizer != null) {
+            normalizer.apply(x, batch.input);
+        }
+        windowPosition += cols;
+        return batch;
+    }
+
+    @Override
+    public void recycle(Batch batch) {
+        pool.add(batch);
+    }
+
+    /**
+     * Releases the buffers. The files stay mapped until the datasets are
+     * collected.
+     */
+    @Override
+    public void close() {
+        pool.clear();
+        windowIn = null;
+        windowOut = null;
+        raw = null;
+    }
+
+    /**
+     * Reads the next blocks of the epoch into the window and shuffles its
+     * registers.
+     *
+     * @return false when there are no blocks left
+     */
+    private boolean loadWindow() {
+        if (nextBlock == blocks) {
+            return false;
+        }
+        int count = Math.min(windowBlocks, blocks - nextBlock);
+        int size = 0;
+        for (int b = nextBlock; b < nextBlock + count; b++) {
+            size += blockSize(blockOrder[b]);
+        }
+        if (windowIn == null) {
+            windowIn = new DMatrixRMaj(input.numFeatures(), size);
+            windowOut = new DMatrixRMaj(output.numFeatures(), size);
+        }
+        windowIn.reshape(input.numFeatures(), size);
+        windowOut.reshape(output.numFeatures(), size);
+        for (int b = nextBlock, offset = 0; b < nextBlock + count; b++) {
+            int block = blockOrder[b];
+            int length = blockSize(block);
+            copy(input, block * batchSize, length, windowIn, offset);
+            copy(output, block * batchSize, length, windowOut, offset);
+            offset += length;
+        }
+        if (registerOrder.length < size) {
+            registerOrder = new int[size];
+        }
+        for (int i = 0; i < size; i++) {
+            registerOrder[i] = i;
+        }
+        if (random != null) {
+            shuffle(registerOrder, size);
+        }
+        nextBlock += count;
+        windowSize = size;
+        windowPosition = 0;
+        return true;
+    }
+
+    private int blockSize(int block) {
+        return Math.min(batchSize, registers - block * batchSize);
+    }
+
+    /**
+     * Copies the registers start:start+length into the columns
+     * offset:offset+length of 'window', one feature at a time.
+     */
+    private static void copy(MappedDataset data, int start, int length, DMatrixRMaj window, int offset) {
+        for (int i = 0; i < data.numFeatures(); i++) {
+            data.copyRow(i, start, window.data, i * window.numCols + offset, length);
+        }
+    }
+
+    /**
+     * Copies the next 'cols' registers of the window, in the shuffled order,
+     * into the columns of 'batch'.
+     */
+    private void gather(DMatrixRMaj window, DMatrixRMaj batch, int cols) {
+        batch.reshape(window.numRows, cols);
+        int n = window.numCols;
+        for (int i = 0; i < window.numRows; i++) {
+            int row = i * n;
+            int index = i * cols;
+            for (int j = 0; j < cols; j++) {
+                batch.data[index + j] = window.data[row + registerOrder[windowPosition + j]];
+            }
+        }
+    }
+
+    private DMatrixRMaj raw(int cols) {
+        if (raw == null) {
+            raw = new DMatrixRMaj(input.numFeatures(), batchSize);
+        }
+        raw.reshape(input.numFeatures(), cols);
+        return raw;
+    }
+
+    private void shuffle(int[] order, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.FMatrixRMaj;
+import org.ejml.simple.SimpleMatrix;
+
+/**
+ * Data set in the binary format written by {@link DatasetConverter}, mapped
+ * into memory with {@link FileChannel#map}.
+ * <p>
+ * The file is a 64 byte header followed by the values, little endian:
+ * </p>
+ * <pre>
+ *  0  int   magic "FROG"
+ *  4  int   version (1)
+ *  8  int   type of the values: 1 float32, 2 float64
+ * 12  int   number of features (rows)
+ * 16  long  number of registers (columns)
+ * 24  ...   reserved, zero
+ * 64  values, feature by feature: row i holds feature i of every register
+ * </pre>
+ * <p>
+ * The layout is the horizontal format of the networks (a column is a
+ * register), so a row is read with one bulk copy and a block of registers is
+ * a strided copy. The values stay in the page cache, outside of the heap;
+ * only what is copied into a matrix counts against it.
+ * </p>
+ * <p>
+ * A mapping is limited to 2 GB, so the rows are mapped in segments. The
+ * mapping is read only and instances are safe to share between threads.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MappedDataset {
+
+    static final int MAGIC = 0x474F5246;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    /**
+     * Type of the stored values.
+     */
+    public enum Type {
+        FLOAT32(1, 4), FLOAT64(2, 8);
+
+        final int code;
+        final int bytes;
+
+        Type(int code, int bytes) {
+            this.code = code;
+            this.bytes = bytes;
+        }
+
+        static Type of(int code) throws IOException {
+            for (Type t : values()) {
+                if (t.code == code) {
+                    return t;
+                }
+            }
+            throw new IOException("Unknown value type " + code);
+        }
+    }
+
+    private final Path path;
+    private final Type type;
+    private final int features;
+    private final int registers;
+    private final int rowsPerSegment;
+    private final ByteBuffer[] segments;
+
+    private MappedDataset(Path path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a dataset file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(path + ": unsupported version " + header.getInt(4));
+            }
+            type = Type.of(header.getInt(8));
+            features = header.getInt(12);
+            long cols = header.getLong(16);
+            if (cols > Integer.MAX_VALUE) {
+                throw new IOException(path + ": too many registers " + cols);
+            }
+            registers = (int) cols;
+
+            long rowBytes = (long) registers * type.bytes;
+            if (HEADER_BYTES + rowBytes * features > channel.size()) {
+                throw new IOException(path + " is truncated");
+            }
+            if (rowBytes > Integer.MAX_VALUE) {
+                throw new IOException(path + ": a feature takes more than 2 GB");
+            }
+            rowsPerSegment = rowBytes == 0 ? Math.max(1, features) : (int) Math.min(features, Integer.MAX_VALUE / rowBytes);
+            int count = features == 0 ? 0 : (features + rowsPerSegment - 1) / rowsPerSegment;
+            segments = new ByteBuffer[count];
+            for (int s = 0; s < count; s++) {
+                int rows = Math.min(rowsPerSegment, features - s * rowsPerSegment);
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + s * rowsPerSegment * rowBytes, rows * rowBytes);
+                segments[s] = map.order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    /**
+     * @param path file written by {@link DatasetConverter}
+     * @return the mapped data set
+     * @throws IOException if the file can not be read or is not a data set
+     */
+    public static MappedDataset open(String path) throws IOException {
+        return new MappedDataset(Paths.get(path));
+    }
+
+    /**
+     * @param path file written by {@link DatasetConverter}
+     * @return the mapped data set
+     * @throws IOException if the file can not be read or is not a data set
+     */
+    public static MappedDataset open(Path path) throws IOException {
+        return new MappedDataset(path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int numFeatures() {
+        return features;
+    }
+
+    public int numRegisters() {
+        return registers;
+    }
+
+    /**
+     * @param feature row
+     * @param register column
+     * @return the value
+     */
+    public double get(int feature, int register) {
+        ByteBuffer segment = segments[feature / rowsPerSegment];
+        int index = ((feature % rowsPerSegment) * registers + register) * type.bytes;
+        return type == Type.FLOAT32 ? segment.getFloat(index) : segment.getDouble(index);
+    }
+
+    /**
+     * Copies feature 'feature' of the registers start:start+length.
+     *
+     * @param feature row
+     * @param start first register
+     * @param dest where the values are stored. Modified.
+     * @param offset first index written in 'dest'
+     * @param length number of registers
+     */
+    public void copyRow(int feature, int start, double[] dest, int offset, int length) {
+        ByteBuffer segment = segments[feature / rowsPerSegment].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int first = (feature % rowsPerSegment) * registers + start;
+        if (type == Type.FLOAT64) {
+            DoubleBuffer values = segment.asDoubleBuffer();
+            values.position(first);
+            values.get(dest, offset, length);
+        } else {
+            FloatBuffer values = segment.asFloatBuffer();
+            for (int j = 0; j < length; j++) {
+                dest[offset + j] = values.get(first + j);
+            }
+        }
+    }
+
+    /**
+     * Copies feature 'feature' of the registers start:start+length.
+     *
+     * @param feature row
+     * @param start first register
+     * @param dest where the values are stored. Modified.
+     * @param offset first index written in 'dest'
+     * @param length number of registers
+     */
+    public void copyRow(int feature, int start, float[] dest, int offset, int length) {
+        ByteBuffer segment = segments[feature / rowsPerSegment].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int first = (feature % rowsPerSegment) * registers + start;
+        if (type == Type.FLOAT32) {
+            FloatBuffer values = segment.asFloatBuffer();
+            values.position(first);
+            values.get(dest, offset, length);
+        } else {
+            DoubleBuffer values = segment.asDoubleBuffer();
+            for (int j = 0; j < length; j++) {
+                dest[offset + j] = (float) values.get(first + j);
+            }
+        }
+    }
+
+    /**
+     * Copies the registers start:start+count in horizontal format.
+     *
+     * @param start first register
+     * @param count number of registers
+     * @param dest [features x count]. Reshaped. Can be null.
+     * @return 'dest'
+     */
+    public DMatrixRMaj columns(int start, int count, DMatrixRMaj dest) {
+        if (dest == null) {
+            dest = new DMatrixRMaj(features, count);
+        }
+        dest.reshape(features, count);
+        for (int i = 0; i < features; i++) {
+            copyRow(i, start, dest.data, i * count, count);
+        }
+        return dest;
+    }
+
+    /**
+     * Copies the registers start:start+count in horizontal format.
+     *
+     * @param start first register
+     * @param count number of registers
+     * @param dest [features x count]. Reshaped. Can be null.
+     * @return 'dest'
+     */
+    public FMatrixRMaj columns(int start, int count, FMatrixRMaj dest) {
+        if (dest == null) {
+            dest = new FMatrixRMaj(features, count);
+        }
+        dest.reshape(features, count);
+        for (int i = 0; i < features; i++) {
+            copyRow(i, start, dest.data, i * count, count);
+        }
+        return dest;
+    }
+
+    /**
+     * @return every register in horizontal format: [features x registers]
+     */
+    public SimpleMatrix horizontal() {
+        return SimpleMatrix.wrap(columns(0, registers, (DMatrixRMaj) null));
+    }
+
+    /**
+     * @return every register in the vertical format of CSV.open:
+     * [registers x features]
+     */
+    public SimpleMatrix vertical() {
+        DMatrixRMaj m = new DMatrixRMaj(registers, features);
+        double[] row = new double[registers];
+        for (int i = 0; i < features; i++) {
+            copyRow(i, 0, row, 0, registers);
+            for (int j = 0, index = i; j < registers; j++, index += features) {
+                m.data[index] = row[j];
+            }
+        }
+        return SimpleMatrix.wrap(m);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.ejml.data.DMatrixRMaj;
+
+/**
+ * Mini-batches of a data set already in memory in horizontal format, in a
+ * new random order every epoch.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MatrixBatchSource implements BatchSource {
+
+    private final DMatrixRMaj input;
+    private final DMatrixRMaj output;
+    private final int batchSize;
+    private final Random random;
+    private final int[] order;
+    private final Queue<Batch> pool = new ConcurrentLinkedQueue<>();
+    private int position;
+    private boolean epochOver = true;
+
+    /**
+     * @param input [inputs x registers]. Not modified.
+     * @param output [outputs x registers]. Not modified.
+     * @param batchSize registers of every batch, except maybe the last one of
+     * an epoch
+     * @param random source of the order, null to keep the order of the data
+     */
+    public MatrixBatchSource(DMatrixRMaj input, DMatrixRMaj output, int batchSize, Random random) {
+        if (input.numCols != output.numCols) {
+            throw new IllegalArgumentException("input and output must have the same number of registers");
+        }
+        if (input.numCols == 0) {
+            throw new IllegalArgumentException("input and output must have at least one register");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.input = input;
+        this.output = output;
+        this.batchSize = Math.min(batchSize, input.numCols);
+        this.random = random;
+        this.order = new int[input.numCols];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+    }
+
+    @Override
+    public int numInputs() {
+        return input.numRows;
+    }
+
+    @Override
+    public int numOutputs() {
+        return output.numRows;
+    }
+
+    @Override
+    public int numRegisters() {
+        return input.numCols;
+    }
+
+    @Override
+    public Batch next() {
+        if (epochOver) {
+            epochOver = false;
+            position = 0;
+            if (random != null) {
+                shuffle();
+            }
+        }
+        if (position == order.length) {
+            epochOver = true;
+            return null;
+        }
+        int cols = Math.min(batchSize, order.length - position);
+        Batch batch = pool.poll();
+        if (batch == null) {
+            batch = new Batch(input.numRows, output.numRows, batchSize);
+        }
+        gather(input, cols, batch.input);
+        gather(output, cols, batch.output);
+        position += cols;
+        return batch;
+    }
+
+    @Override
+    public void recycle(Batch batch) {
+        pool.add(batch);
+    }
+
+    @Override
+    public void close() {
+        pool.clear();
+    }
+
+    /**
+     * Copies the registers order[position:position+cols] into the columns of
+     * 'batch'.
+     */
+    private void gather(DMatrixRMaj data, int cols, DMatrixRMaj batch) {
+        batch.reshape(data.numRows, cols);
+        int n = data.numCols;
+        for (int i = 0; i < data.numRows; i++) {
+            int row = i * n;
+            int index = i * cols;
+            for (int j = 0; j < cols; j++) {
+                batch.data[index + j] = data.data[row + order[position + j]];
+            }
+        }
+    }
+
+    private void shuffle() {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import org.ejml.data.DMatrixRMaj;
+
+/**
+ * Transformation of the features of a batch in horizontal format, such as a
+ * standardization that also drops the constant features.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public interface Normalizer {
+
+    /**
+     * @return number of features the transformation expects
+     */
+    int numInputs();
+
+    /**
+     * @return number of features after the transformation
+     */
+    int numOutputs();
+
+    /**
+     * @param raw [numInputs x registers]. Not modified.
+     * @param out [numOutputs x registers]. Reshaped. Can not be 'raw'.
+     */
+    void apply(DMatrixRMaj raw, DMatrixRMaj out);
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads the batches of another source in a background thread, so reading,
+ * normalizing and shuffling the next batches overlaps with the training of
+ * the current one.
+ * <p>
+ * The thread stays up to {@code depth} batches ahead of the consumer, also
+ * across the end of an epoch. An error of the source is thrown by the
+ * {@link #next()} call that would have returned the failed batch.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class PrefetchBatchSource implements BatchSource {
+
+    // marks the end of an epoch, or an error, in the queue
+    private static final Batch END = new Batch(0, 0, 0);
+
+    private final BatchSource source;
+    private final BlockingQueue<Batch> queue;
+    private final Thread reader;
+    private volatile boolean running = true;
+    private volatile Throwable error;
+
+    /**
+     * @param source batches to read. Its {@link BatchSource#next()} is only
+     * called from the reader thread from now on.
+     * @param depth number of batches read ahead
+     */
+    public PrefetchBatchSource(BatchSource source, int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be at least 1");
+        }
+        this.source = source;
+        this.queue = new ArrayBlockingQueue<>(depth);
+        reader = new Thread(this::read, "batch-prefetch");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void read() {
+        try {
+            while (running) {
+                Batch batch = source.next();
+                queue.put(batch == null ? END : batch);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            error = ex;
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public int numInputs() {
+        return source.numInputs();
+    }
+
+    @Override
+    public int numOutputs() {
+        return source.numOutputs();
+    }
+
+    @Override
+    public int numRegisters() {
+        return source.numRegisters();
+    }
+
+    @Override
+    public Batch next() throws IOException {
+        Batch batch = queue.poll();
+        if (batch == null && error == null) {
+            try {
+                batch = queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a batch", ex);
+            }
+        }
+        if (batch == null || batch == END && error != null) {
+            // the reader stopped, every later call fails in the same way
+            if (error instanceof IOException) {
+                throw new IOException(error.getMessage(), error);
+            }
+            throw new IllegalStateException("The batch source failed", error);
+        }
+        return batch == END ? null : batch;
+    }
+
+    @Override
+    public void recycle(Batch batch) {
+        source.recycle(batch);
+    }
+
+    /**
+     * Stops the reader thread and closes the source.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        queue.clear();
+        source.close();
+    }
+}
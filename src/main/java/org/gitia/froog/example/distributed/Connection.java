@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.distributed;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.example.train.Gradients;
+
+/**
+ * Messages over a blocking {@link SocketChannel}. Every message is its
+ * length, an int, followed by its body, which starts with its type. The
+ * buffers are direct and reused, they only grow.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+final class Connection implements AutoCloseable {
+
+    // worker -> server: numInputs, numParameters
+    static final byte HELLO = 1;
+    // server -> worker: encoding, regularization
+    static final byte CONFIG = 2;
+    // server -> worker: weights as FLOAT64
+    static final byte WEIGHTS = 3;
+    // worker -> server: registers, loss, gradients in the encoding of CONFIG
+    static final byte GRADIENT = 4;
+    // worker -> server: the data of the worker is over for this epoch
+    static final byte END = 5;
+    // server -> worker: the training is over
+    static final byte STOP = 6;
+    // server -> worker: message of the failure
+    static final byte ERROR = 7;
+
+    private final SocketChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(4);
+    private ByteBuffer in = ByteBuffer.allocateDirect(1 << 16);
+    private ByteBuffer out = ByteBuffer.allocateDirect(1 << 16);
+
+    Connection(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.configureBlocking(true);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * @param type type of the message
+     * @param capacity bytes of the body after the type
+     * @return buffer to write the body, sent by {@link #send()}
+     */
+    ByteBuffer begin(byte type, int capacity) {
+        if (out.capacity() < capacity + 5) {
+            out = ByteBuffer.allocateDirect(Math.max(capacity + 5, 2 * out.capacity()));
+        }
+        out.clear();
+        out.position(4);
+        out.put(type);
+        return out;
+    }
+
+    void send() throws IOException {
+        out.putInt(0, out.position() - 4);
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    /**
+     * @return body of the next message, positioned after its type, which is
+     * at index 0
+     * @throws IOException if the channel fails or is closed by the other side
+     */
+    ByteBuffer receive() throws IOException {
+        header.clear();
+        fill(header);
+        int length = header.getInt(0);
+        if (length < 1) {
+            throw new IOException("Invalid message length " + length);
+        }
+        if (in.capacity() < length) {
+            in = ByteBuffer.allocateDirect(Math.max(length, 2 * in.capacity()));
+        }
+        in.clear();
+        in.limit(length);
+        fill(in);
+        in.flip();
+        in.get();
+        return in;
+    }
+
+    private void fill(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Connection closed by " + channel.getRemoteAddress());
+            }
+        }
+    }
+
+    /**
+     * @return number of weights and bias of the network
+     */
+    static int numParameters(Gradients g) {
+        int n = 0;
+        for (int l = 0; l < g.numLayers(); l++) {
+            n += g.getW(l).getNumElements() + g.getB(l).getNumElements();
+        }
+        return n;
+    }
+
+    static void putWeights(ByteBuffer buffer, Gradients g) {
+        for (int l = 0; l < g.numLayers(); l++) {
+            put(buffer, GradientEncoding.FLOAT64, g.getW(l));
+            put(buffer, GradientEncoding.FLOAT64, g.getB(l));
+        }
+    }
+
+    static void getWeights(ByteBuffer buffer, Gradients g) {
+        for (int l = 0; l < g.numLayers(); l++) {
+            DMatrixRMaj w = g.getW(l);
+            DMatrixRMaj b = g.getB(l);
+            GradientEncoding.FLOAT64.get(buffer, w.data, w.getNumElements());
+            GradientEncoding.FLOAT64.get(buffer, b.data, b.getNumElements());
+        }
+    }
+
+    static void putGradients(ByteBuffer buffer, GradientEncoding encoding, Gradients g) {
+        for (int l = 0; l < g.numLayers(); l++) {
+            put(buffer, encoding, g.getGradW(l));
+            put(buffer, encoding, g.getGradB(l));
+        }
+    }
+
+    /**
+     * Adds the gradients of the buffer, times scale, to the ones of g.
+     */
+    static void addGradients(ByteBuffer buffer, GradientEncoding encoding, double scale, Gradients g) {
+        for (int l = 0; l < g.numLayers(); l++) {
+            DMatrixRMaj w = g.getGradW(l);
+            DMatrixRMaj b = g.getGradB(l);
+            encoding.add(buffer, scale, w.data, w.getNumElements());
+            encoding.add(buffer, scale, b.data, b.getNumElements());
+        }
+    }
+
+    private static void put(ByteBuffer buffer, GradientEncoding encoding, DMatrixRMaj m) {
+        encoding.put(buffer, m.data, m.getNumElements());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.distributed;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary format of the values sent between the {@link ParameterServer} and
+ * its {@link GradientWorker}s. The weights always travel as FLOAT64, so
+ * every worker has an exact copy; the gradients may travel as FLOAT32,
+ * half the bytes, at the cost of rounding them to float.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public enum GradientEncoding {
+
+    FLOAT64(8) {
+        @Override
+        void put(ByteBuffer buffer, double[] values, int length) {
+            buffer.asDoubleBuffer().put(values, 0, length);
+            buffer.position(buffer.position() + length * 8);
+        }
+
+        @Override
+        void get(ByteBuffer buffer, double[] values, int length) {
+            buffer.asDoubleBuffer().get(values, 0, length);
+            buffer.position(buffer.position() + length * 8);
+        }
+
+        @Override
+        void add(ByteBuffer buffer, double scale, double[] target, int length) {
+            int p = buffer.position();
+            for (int i = 0; i < length; i++, p += 8) {
+                target[i] += scale * buffer.getDouble(p);
+            }
+            buffer.position(p);
+        }
+    },
+    FLOAT32(4) {
+        @Override
+        void put(ByteBuffer buffer, double[] values, int length) {
+            int p = buffer.position();
+            for (int i = 0; i < length; i++, p += 4) {
+                buffer.putFloat(p, (float) values[i]);
+            }
+            buffer.position(p);
+        }
+
+        @Override
+        void get(ByteBuffer buffer, double[] values, int length) {
+            int p = buffer.position();
+            for (int i = 0; i < length; i++, p += 4) {
+                values[i] = buffer.getFloat(p);
+            }
+            buffer.position(p);
+        }
+
+        @Override
+        void add(ByteBuffer buffer, double scale, double[] target, int length) {
+            int p = buffer.position();
+            for (int i = 0; i < length; i++, p += 4) {
+                target[i] += scale * buffer.getFloat(p);
+            }
+            buffer.position(p);
+        }
+    };
+
+    private final int bytes;
+
+    GradientEncoding(int bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return bytes of every value
+     */
+    public int bytes() {
+        return bytes;
+    }
+
+    /**
+     * Writes the first 'length' values at the position of the buffer.
+     */
+    abstract void put(ByteBuffer buffer, double[] values, int length);
+
+    /**
+     * Reads 'length' values from the position of the buffer.
+     */
+    abstract void get(ByteBuffer buffer, double[] values, int length);
+
+    /**
+     * target[i] += scale * value i, for 'length' values read from the
+     * position of the buffer.
+     */
+    abstract void add(ByteBuffer buffer, double scale, double[] target, int length);
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.distributed;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.Batch;
+import org.gitia.froog.example.data.BatchSource;
+import org.gitia.froog.example.train.Gradients;
+
+/**
+ * Computes gradients for a {@link ParameterServer}, usually in a process of
+ * its own. Every round it receives the weights, takes the next batch of its
+ * source and sends back the gradient; when the source ends its epoch it
+ * tells the server and waits for the next one.
+ * <p>
+ * The network only gives the shape, its weights are replaced by the ones of
+ * the server, so it must have the same layers as the network of the server.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class GradientWorker {
+
+    // time to wait for the server to start listening
+    private static final long CONNECT_TIMEOUT_MILLIS = 30_000;
+
+    private final Gradients g;
+    private final BatchSource source;
+    private long rounds;
+
+    /**
+     * @param net network with the layers of the one of the server. Modified.
+     * @param source part of the data set of this worker
+     */
+    public GradientWorker(Feedforward net, BatchSource source) {
+        this.g = new Gradients(net);
+        this.source = source;
+        if (g.getW(0).numCols != source.numInputs()) {
+            throw new IllegalArgumentException("The network expects " + g.getW(0).numCols
+                    + " inputs and the source gives " + source.numInputs());
+        }
+    }
+
+    /**
+     * Connects to the server and computes gradients until the server stops
+     * the training.
+     *
+     * @param server address given by {@link ParameterServer#bind}
+     * @throws IOException if the connection fails or the server rejects the
+     * network
+     */
+    public void run(InetSocketAddress server) throws IOException {
+        try (Connection c = new Connection(connect(server))) {
+            c.begin(Connection.HELLO, 8).putInt(g.getW(0).numCols).putInt(Connection.numParameters(g));
+            c.send();
+            ByteBuffer config = c.receive();
+            if (config.get(0) == Connection.ERROR) {
+                byte[] text = new byte[config.remaining()];
+                config.get(text);
+                throw new IOException("Rejected by the server: " + new String(text, StandardCharsets.UTF_8));
+            }
+            GradientEncoding encoding = GradientEncoding.values()[config.get()];
+            g.setRegularization(config.getDouble());
+            int gradientBytes = 12 + Connection.numParameters(g) * encoding.bytes();
+
+            for (ByteBuffer m = c.receive(); m.get(0) == Connection.WEIGHTS; m = c.receive()) {
+                Connection.getWeights(m, g);
+                Batch batch = source.next();
+                if (batch == null) {
+                    c.begin(Connection.END, 0);
+                    c.send();
+                    continue;
+                }
+                double loss = g.compute(batch.input, batch.output);
+                ByteBuffer b = c.begin(Connection.GRADIENT, gradientBytes).putInt(batch.size()).putDouble(loss);
+                source.recycle(batch);
+                Connection.putGradients(b, encoding, g);
+                c.send();
+                rounds++;
+            }
+        }
+    }
+
+    private static SocketChannel connect(InetSocketAddress server) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                return SocketChannel.open(server);
+            } catch (ConnectException ex) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw ex;
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting to " + server, ie);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of gradients sent
+     */
+    public long getRounds() {
+        return rounds;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.distributed;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.DatasetConverter;
+import org.gitia.froog.example.data.FeatureScaling;
+import org.gitia.froog.example.data.MappedDataset;
+import org.gitia.froog.example.data.MappedDataset.Type;
+import org.gitia.froog.example.data.MatrixBatchSource;
+import org.gitia.froog.example.inference.ChunkedInference;
+import org.gitia.froog.example.statistics.ConfusionCounts;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.layer.initialization.WeightInit;
+import org.gitia.froog.statistics.Clock;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * Trains the MnistSGD network with a {@link ParameterServer} and
+ * {@link GradientWorker}s in separate processes.
+ * <ul>
+ * <li>{@code local [workers]}: the server runs here and starts the workers
+ * as new JVMs on 127.0.0.1, 2 by default</li>
+ * <li>{@code server <port> <workers>}: only the server</li>
+ * <li>{@code worker <host> <port> <index> <workers>}: one worker, it trains
+ * the part 'index' of 'workers' parts of the data set</li>
+ * </ul>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MnistDistributed {
+
+    static final String IN = "src/main/resources/mnist/mnist_train_in_50000.csv";
+    static final String OUT = "src/main/resources/mnist/mnist_train_out_50000.csv";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String mode = args.length > 0 ? args[0] : "local";
+        switch (mode) {
+            case "local": {
+                int workers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+                server(new InetSocketAddress("127.0.0.1", 0), workers, true);
+                break;
+            }
+            case "server":
+                server(new InetSocketAddress(Integer.parseInt(args[1])), Integer.parseInt(args[2]), false);
+                break;
+            case "worker":
+                worker(new InetSocketAddress(args[1], Integer.parseInt(args[2])),
+                        Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode " + mode + ", use local, server or worker");
+        }
+    }
+
+    private static void server(InetSocketAddress address, int workers, boolean spawn)
+            throws IOException, InterruptedException {
+        DMatrixRMaj[] data = load();
+        Feedforward net = network(data[0].numRows, data[1].numRows);
+        List<Process> processes = new ArrayList<>();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread watchdog = null;
+        boolean trained = false;
+        try (ParameterServer server = new ParameterServer(net, workers)) {
+            server.setLearningRate(0.001);
+            server.setRegularization(1e-4);
+            server.setEpoch(10);
+            server.setAdam(0.9, 0.999, 1e-8);
+            //los workers manuales tienen más tiempo para conectarse
+            server.setAcceptTimeout(spawn ? TimeUnit.MINUTES.toMillis(2) : TimeUnit.MINUTES.toMillis(10));
+            InetSocketAddress bound = server.bind(address);
+            System.out.println("Servidor en " + bound);
+            if (spawn) {
+                String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+                for (int w = 0; w < workers; w++) {
+                    processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                            MnistDistributed.class.getName(), "worker", bound.getHostString(),
+                            String.valueOf(bound.getPort()), String.valueOf(w), String.valueOf(workers))
+                            .inheritIO().start());
+                }
+                watchdog = watch(processes, server, failure);
+            }
+            Clock clock = new Clock();
+            clock.start();
+            try {
+                server.train();
+            } catch (IOException ex) {
+                if (failure.get() != null) {
+                    throw new IOException(failure.get(), ex);
+                }
+                throw ex;
+            }
+            trained = true;
+            clock.stop();
+            System.out.println("workers: " + workers + "\ttime (s): " + clock.timeSec());
+            System.out.println("loss: " + server.getLoss());
+        } finally {
+            if (watchdog != null) {
+                watchdog.interrupt();
+            }
+            //si el entrenamiento falló los workers no terminan solos
+            for (Process p : processes) {
+                if (!trained || !p.waitFor(30, TimeUnit.SECONDS)) {
+                    p.destroyForcibly();
+                }
+            }
+        }
+        DMatrixRMaj result = new ChunkedInference(net, 1024).output(data[0], null);
+        ConfusionCounts.of(result, data[1]).printStats();
+    }
+
+    /**
+     * Closes the server as soon as a worker process exits with an error, so
+     * {@link ParameterServer#train()} does not wait for it.
+     */
+    private static Thread watch(List<Process> processes, ParameterServer server, AtomicReference<String> failure) {
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    for (int w = 0; w < processes.size(); w++) {
+                        Process p = processes.get(w);
+                        if (!p.isAlive() && p.exitValue() != 0) {
+                            failure.set("Worker " + w + " exited with status " + p.exitValue());
+                            server.close();
+                            return;
+                        }
+                    }
+                    Thread.sleep(200);
+                }
+            } catch (InterruptedException | IOException ex) {
+                //terminó el entrenamiento o el servidor ya estaba cerrado
+            }
+        }, "worker-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void worker(InetSocketAddress server, int index, int workers) throws IOException {
+        DMatrixRMaj[] data = load();
+        //cada worker entrena con su parte de los registros
+        int n = data[0].numCols;
+        int c0 = (int) ((long) n * index / workers);
+        int c1 = (int) ((long) n * (index + 1) / workers);
+        DMatrixRMaj input = CommonOps_DDRM.extract(data[0], 0, data[0].numRows, c0, c1);
+        DMatrixRMaj output = CommonOps_DDRM.extract(data[1], 0, data[1].numRows, c0, c1);
+
+        GradientWorker worker = new GradientWorker(network(input.numRows, output.numRows),
+                new MatrixBatchSource(input, output, 32, new Random(index)));
+        worker.run(server);
+        System.out.println("worker " + index + "\tregisters: " + (c1 - c0) + "\tgradients: " + worker.getRounds());
+    }
+
+    /**
+     * @return the input and the output in horizontal format
+     */
+    private static DMatrixRMaj[] load() throws IOException {
+        MappedDataset in = DatasetConverter.cached(IN, Type.FLOAT64);
+        MappedDataset out = DatasetConverter.cached(OUT, Type.FLOAT64);
+        return new DMatrixRMaj[]{
+            FeatureScaling.fit(in).transform(in, null),
+            out.columns(0, out.numRegisters(), (DMatrixRMaj) null)
+        };
+    }
+
+    private static Feedforward network(int inputs, int outputs) {
+        Random r = new Random(1);
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(inputs, 300, TransferFunction.TANSIG, WeightInit.DEFAULT, r));
+        net.addLayer(new Dense(300, outputs, TransferFunction.SOFTMAX, r));
+        return net;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.distributed;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.train.Adam;
+import org.gitia.froog.example.train.Gradients;
+
+/**
+ * Owner of the weights in a training distributed over several processes.
+ * Every round it sends the weights to the {@link GradientWorker}s, each one
+ * answers with the gradient of its next batch and one Adam step is applied
+ * with the mean of the gradients, weighted by the registers of every batch.
+ * <p>
+ * Each worker trains over its own part of the data set, the epoch is over
+ * when every worker has gone through its part; a worker that finished
+ * before the others waits for the next epoch. With one worker the result is
+ * the one of {@link org.gitia.froog.example.train.StreamingSGD} over the
+ * same batches, with several the batch of a round is the union of the
+ * batches of the workers.
+ * </p>
+ *
+ * <pre>
+ * ParameterServer server = new ParameterServer(net, 4);
+ * InetSocketAddress address = server.bind(new InetSocketAddress("127.0.0.1", 0));
+ * // start 4 processes running new GradientWorker(net, source).run(address)
+ * server.train();
+ * </pre>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class ParameterServer implements AutoCloseable {
+
+    private final Gradients model;
+    private final Connection[] workers;
+    private ServerSocketChannel server;
+    private long acceptTimeout = 120_000;
+    /**
+     * Open while train waits for the workers, so close can wake it up.
+     */
+    private volatile Selector selector;
+    private int epoch = 1;
+    private double regularization = 0;
+    private GradientEncoding encoding = GradientEncoding.FLOAT32;
+    private final Adam adam = new Adam();
+    private final List<Double> loss = new ArrayList<>();
+
+    /**
+     * @param net network to train, its weights are the initial ones.
+     * Modified.
+     * @param workers number of worker processes
+     */
+    public ParameterServer(Feedforward net, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be at least 1");
+        }
+        this.model = new Gradients(net);
+        this.workers = new Connection[workers];
+    }
+
+    /**
+     * @param address address to listen, port 0 for any free one
+     * @return address where the workers must connect
+     * @throws IOException if the address can not be bound
+     */
+    public InetSocketAddress bind(InetSocketAddress address) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(address, workers.length);
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Waits for every worker, trains and stops the workers.
+     *
+     * @throws IOException if a connection fails, or if the workers do not
+     * connect within the accept timeout
+     */
+    public void train() throws IOException {
+        if (server == null) {
+            throw new IllegalStateException("bind must be called before train");
+        }
+        int parameters = Connection.numParameters(model);
+        int inputs = model.getW(0).numCols;
+        long deadline = System.currentTimeMillis() + acceptTimeout;
+        try (Selector s = Selector.open()) {
+            server.configureBlocking(false);
+            server.register(s, SelectionKey.OP_ACCEPT);
+            selector = s;
+            for (int w = 0; w < workers.length; w++) {
+                workers[w] = new Connection(accept(s, deadline, w));
+            }
+        } finally {
+            selector = null;
+        }
+        for (int w = 0; w < workers.length; w++) {
+            Connection c = workers[w];
+            ByteBuffer hello = c.receive();
+            int workerInputs = hello.getInt();
+            int workerParameters = hello.getInt();
+            if (hello.get(0) != Connection.HELLO || workerInputs != inputs || workerParameters != parameters) {
+                String message = "The network of the server has " + inputs + " inputs and "
+                        + parameters + " parameters";
+                byte[] text = message.getBytes(StandardCharsets.UTF_8);
+                c.begin(Connection.ERROR, text.length).put(text);
+                c.send();
+                throw new IOException("Worker " + w + " does not match: " + message);
+            }
+            c.begin(Connection.CONFIG, 9).put((byte) encoding.ordinal()).putDouble(regularization);
+            c.send();
+        }
+
+        adam.reset();
+        int weightBytes = parameters * 8;
+        boolean[] over = new boolean[workers.length];
+        for (int e = 0; e < epoch; e++) {
+            Arrays.fill(over, false);
+            int active = workers.length;
+            double total = 0;
+            long registers = 0;
+            while (active > 0) {
+                for (int w = 0; w < workers.length; w++) {
+                    if (!over[w]) {
+                        ByteBuffer b = workers[w].begin(Connection.WEIGHTS, weightBytes);
+                        Connection.putWeights(b, model);
+                        workers[w].send();
+                    }
+                }
+                for (int l = 0; l < model.numLayers(); l++) {
+                    CommonOps_DDRM.fill(model.getGradW(l), 0);
+                    CommonOps_DDRM.fill(model.getGradB(l), 0);
+                }
+                long round = 0;
+                for (int w = 0; w < workers.length; w++) {
+                    if (over[w]) {
+                        continue;
+                    }
+                    ByteBuffer b = workers[w].receive();
+                    if (b.get(0) == Connection.END) {
+                        over[w] = true;
+                        active--;
+                        continue;
+                    } else if (b.get(0) != Connection.GRADIENT) {
+                        throw new IOException("Unexpected message " + b.get(0) + " from worker " + w);
+                    }
+                    int n = b.getInt();
+                    total += b.getDouble();
+                    registers += n;
+                    round += n;
+                    // the worker sends the mean over its batch
+                    Connection.addGradients(b, encoding, n, model);
+                }
+                if (round > 0) {
+                    for (int l = 0; l < model.numLayers(); l++) {
+                        CommonOps_DDRM.scale(1.0 / round, model.getGradW(l));
+                        CommonOps_DDRM.scale(1.0 / round, model.getGradB(l));
+                    }
+                    adam.update(model);
+                }
+            }
+            loss.add(registers == 0 ? 0 : total / registers);
+        }
+        for (Connection c : workers) {
+            c.begin(Connection.STOP, 0);
+            c.send();
+        }
+    }
+
+    /**
+     * Next connection, waiting until the deadline.
+     *
+     * @param connected workers already connected, for the message
+     */
+    private SocketChannel accept(Selector selector, long deadline, int connected) throws IOException {
+        while (true) {
+            SocketChannel channel = server.accept();
+            if (channel != null) {
+                channel.configureBlocking(true);
+                return channel;
+            }
+            long wait = deadline - System.currentTimeMillis();
+            if (acceptTimeout > 0 && wait <= 0) {
+                throw new SocketTimeoutException("Only " + connected + " of " + workers.length
+                        + " workers connected in " + acceptTimeout + " ms");
+            }
+            selector.select(acceptTimeout > 0 ? wait : 0);
+            selector.selectedKeys().clear();
+        }
+    }
+
+    /**
+     * @param acceptTimeout milliseconds {@link #train()} waits for all the
+     * workers to connect, 0 to wait forever. 2 minutes by default.
+     */
+    public void setAcceptTimeout(long acceptTimeout) {
+        if (acceptTimeout < 0) {
+            throw new IllegalArgumentException("acceptTimeout can not be negative");
+        }
+        this.acceptTimeout = acceptTimeout;
+    }
+
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    public void setLearningRate(double learningRate) {
+        adam.setLearningRate(learningRate);
+    }
+
+    /**
+     * @param regularization L2 regularization, sent to the workers
+     */
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * @param beta1 decay of the first moment
+     * @param beta2 decay of the second moment
+     * @param epsilon added to the root of the second moment
+     */
+    public void setAdam(double beta1, double beta2, double epsilon) {
+        adam.setAdam(beta1, beta2, epsilon);
+    }
+
+    /**
+     * Uses the plain gradient step instead of Adam.
+     */
+    public void disableAdam() {
+        adam.disable();
+    }
+
+    /**
+     * @param encoding format of the gradients sent by the workers,
+     * FLOAT32 by default
+     */
+    public void setEncoding(GradientEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * @return mean loss of every epoch
+     */
+    public List<Double> getLoss() {
+        return loss;
+    }
+
+    /**
+     * Closes the connections with the workers and stops listening.
+     *
+     * @throws IOException if a channel can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (Connection c : workers) {
+            if (c != null) {
+                c.close();
+            }
+        }
+        if (server != null) {
+            server.close();
+        }
+        Selector s = selector;
+        if (s != null) {
+            s.wakeup();
+        }
+    }
+}
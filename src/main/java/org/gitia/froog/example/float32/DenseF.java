@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.float32;
+
+import java.util.Random;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.FMatrixRMaj;
+import org.gitia.froog.example.inference.Activation;
+import org.gitia.froog.example.parallel.MatrixMatrixMult_FDRM_Parallel;
+import org.gitia.froog.example.parallel.TransferFunction_FDRM;
+import org.gitia.froog.layer.Dense;
+
+/**
+ * Fully connected layer in single precision, the float counterpart of
+ * {@link Dense}.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class DenseF {
+
+    private final FMatrixRMaj w; // [neurons x inputs]
+    private final FMatrixRMaj b; // [neurons x 1]
+    private final Activation function;
+    private final TransferFunction_FDRM transfer;
+
+    /**
+     * Weights and bias are drawn uniformly from +-sqrt(6 / (input + output)).
+     *
+     * @param input number of inputs
+     * @param output number of neurons
+     * @param function one of PURELIM, TANSIG, LOGSIG, RELU, SOFTMAX
+     * @param random source of the initial weights
+     */
+    public DenseF(int input, int output, Activation function, Random random) {
+        this.w = new FMatrixRMaj(output, input);
+        this.b = new FMatrixRMaj(output, 1);
+        this.function = function;
+        this.transfer = function.kernelF();
+        float limit = (float) Math.sqrt(6.0 / (input + output));
+        for (int i = 0; i < w.data.length; i++) {
+            w.data[i] = (random.nextFloat() * 2 - 1) * limit;
+        }
+        for (int i = 0; i < b.data.length; i++) {
+            b.data[i] = (random.nextFloat() * 2 - 1) * limit;
+        }
+    }
+
+    /**
+     * Copies a double precision layer, rounding its parameters to float.
+     *
+     * @param layer layer to copy
+     */
+    public DenseF(Dense layer) {
+        DMatrixRMaj lw = layer.getW().getDDRM();
+        DMatrixRMaj lb = layer.getB().getDDRM();
+        this.w = new FMatrixRMaj(lw.numRows, lw.numCols);
+        this.b = new FMatrixRMaj(lb.numRows, 1);
+        for (int i = 0; i < w.data.length; i++) {
+            w.data[i] = (float) lw.data[i];
+        }
+        for (int i = 0; i < b.data.length; i++) {
+            b.data[i] = (float) lb.data[i];
+        }
+        this.function = Activation.of(layer.getFunction());
+        this.transfer = function.kernelF();
+    }
+
+    /**
+     * out = f(W * input + b), with the bias and the function fused into the
+     * product.
+     *
+     * @param input one register per column. Not modified.
+     * @param out where the output is stored. Reshaped.
+     */
+    public void output(FMatrixRMaj input, FMatrixRMaj out) {
+        MatrixMatrixMult_FDRM_Parallel.multAddBias(w, input, b, transfer, out);
+    }
+
+    /**
+     * @param input one register per column. Not modified.
+     * @return f(W * input + b)
+     */
+    public FMatrixRMaj output(FMatrixRMaj input) {
+        FMatrixRMaj out = new FMatrixRMaj(w.numRows, input.numCols);
+        output(input, out);
+        return out;
+    }
+
+    public FMatrixRMaj getW() {
+        return w;
+    }
+
+    public FMatrixRMaj getB() {
+        return b;
+    }
+
+    public Activation getFunction() {
+        return function;
+    }
+
+    public int numInputs() {
+        return w.numCols;
+    }
+
+    public int numNeurons() {
+        return w.numRows;
+    }
+}
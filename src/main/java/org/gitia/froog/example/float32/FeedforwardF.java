@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.float32;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.ejml.data.FMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.layer.Dense;
+
+/**
+ * Feedforward network in single precision, the float counterpart of
+ * {@link Feedforward}. Data is in horizontal format: a column is a register
+ * and a row is a feature.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class FeedforwardF {
+
+    private final List<DenseF> layers = new ArrayList<>();
+
+    public FeedforwardF() {
+    }
+
+    /**
+     * Copies a double precision network, so both precisions can be trained
+     * from the same initial weights.
+     *
+     * @param net network to copy
+     * @return the float copy
+     */
+    public static FeedforwardF of(Feedforward net) {
+        FeedforwardF copy = new FeedforwardF();
+        for (Dense layer : net.getLayers()) {
+            copy.addLayer(new DenseF(layer));
+        }
+        return copy;
+    }
+
+    public void addLayer(DenseF layer) {
+        if (!layers.isEmpty() && layers.get(layers.size() - 1).numNeurons() != layer.numInputs()) {
+            throw new IllegalArgumentException("The layer must have "
+                    + layers.get(layers.size() - 1).numNeurons() + " inputs");
+        }
+        layers.add(layer);
+    }
+
+    /**
+     * @param input one register per column. Not modified.
+     * @return output of the last layer
+     */
+    public FMatrixRMaj output(FMatrixRMaj input) {
+        FMatrixRMaj a = input;
+        for (DenseF layer : layers) {
+            a = layer.output(a);
+        }
+        return a;
+    }
+
+    public List<DenseF> getLayers() {
+        return layers;
+    }
+
+    /**
+     * @return bytes taken by the weights and bias of every layer
+     */
+    public long parameterBytes() {
+        long bytes = 0;
+        for (DenseF layer : layers) {
+            bytes += 4L * (layer.getW().getNumElements() + layer.getB().getNumElements());
+        }
+        return bytes;
+    }
+}
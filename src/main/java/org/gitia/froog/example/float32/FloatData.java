@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.float32;
+
+import org.ejml.data.FMatrixRMaj;
+import org.ejml.simple.SimpleMatrix;
+import org.gitia.froog.example.data.FeatureScaling;
+import org.gitia.froog.example.data.MappedDataset;
+
+/**
+ * Preparation of data sets in single precision, without going through a
+ * double {@link SimpleMatrix}.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public final class FloatData {
+
+    private FloatData() {
+    }
+
+    /**
+     * @param m matrix in double precision
+     * @return the same values rounded to float
+     */
+    public static FMatrixRMaj of(SimpleMatrix m) {
+        double[] data = m.getDDRM().getData();
+        FMatrixRMaj f = new FMatrixRMaj(m.numRows(), m.numCols());
+        for (int i = 0; i < f.data.length; i++) {
+            f.data[i] = (float) data[i];
+        }
+        return f;
+    }
+
+    /**
+     * Removes the constant features and standardizes the others to mean 0 and
+     * standard deviation 1 with {@link FeatureScaling}, so the registers are
+     * the same as the ones of the double precision examples, rounded to float.
+     *
+     * @param data [features x registers], in the file
+     * @return the standardized features that were not constant
+     */
+    public static FMatrixRMaj standardize(MappedDataset data) {
+        return FeatureScaling.fit(data).transformFloat(data, null);
+    }
+
+    /**
+     * @param output network output, one register per column
+     * @param expected one-hot expected output, one register per column
+     * @return fraction of registers whose largest output is the expected class
+     */
+    public static double accuracy(FMatrixRMaj output, FMatrixRMaj expected) {
+        int n = output.numCols;
+        int hits = 0;
+        for (int j = 0; j < n; j++) {
+            int best = 0;
+            for (int i = 1; i < output.numRows; i++) {
+                if (output.data[i * n + j] > output.data[best * n + j]) {
+                    best = i;
+                }
+            }
+            if (expected.data[best * n + j] == 1) {
+                hits++;
+            }
+        }
+        return n == 0 ? 0 : (double) hits / n;
+    }
+}
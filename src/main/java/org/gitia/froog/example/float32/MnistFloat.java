@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.float32;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.FMatrixRMaj;
+import org.ejml.simple.SimpleMatrix;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.DatasetConverter;
+import org.gitia.froog.example.data.FeatureScaling;
+import org.gitia.froog.example.data.MappedDataset;
+import org.gitia.froog.example.data.MappedDataset.Type;
+import org.gitia.froog.example.data.MatrixBatchSource;
+import org.gitia.froog.example.train.StreamingSGD;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.layer.initialization.WeightInit;
+import org.gitia.froog.statistics.Clock;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * Trains the MnistSGD network in double and in single precision from the same
+ * initial weights, the same registers and with the same algorithm (mini-batch
+ * SGD with Adam: {@link StreamingSGD} and {@link SGDF}) and prints time,
+ * accuracy and memory side by side.
+ * <p>
+ * The precision is chosen with the first argument: "double", "float" or
+ * "both" (the default). The memory of a run is the heap still in use after a
+ * collection once it trained, minus the one in use before it started, so it
+ * counts the data, the network and the trainer of that run only.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MnistFloat {
+
+    static final String IN = "src/main/resources/mnist/mnist_train_in_50000.csv";
+    static final String OUT = "src/main/resources/mnist/mnist_train_out_50000.csv";
+
+    static final int EPOCH = 10;
+    static final int BATCH_SIZE = 32;
+
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : "both";
+        if (!"float".equals(mode)) {
+            trainDouble();
+        }
+        if (!"double".equals(mode)) {
+            trainFloat();
+        }
+    }
+
+    private static void trainDouble() throws IOException {
+        long before = heapUsed();
+        // the single precision cache, so both runs read the same values
+        MappedDataset in = DatasetConverter.cached(IN, Type.FLOAT32);
+        MappedDataset out = DatasetConverter.cached(OUT, Type.FLOAT32);
+        DMatrixRMaj input = FeatureScaling.fit(in).transform(in, null);
+        DMatrixRMaj output = out.columns(0, out.numRegisters(), (DMatrixRMaj) null);
+        Feedforward net = initial(input.numRows, output.numRows);
+
+        StreamingSGD sgd = new StreamingSGD();
+        sgd.setLearningRate(0.001);
+        sgd.setRegularization(1e-4);
+        sgd.setEpoch(EPOCH);
+        sgd.setAdam(0.9, 0.999, 1e-8);
+
+        Clock clock = new Clock();
+        clock.start();
+        sgd.train(net, new MatrixBatchSource(input, output, BATCH_SIZE, new Random(1)));
+        clock.stop();
+        double accuracy = FloatData.accuracy(
+                FloatData.of(net.output(SimpleMatrix.wrap(input))),
+                FloatData.of(SimpleMatrix.wrap(output)));
+        long used = heapUsed() - before;
+        print("double", clock.timeSec(), accuracy,
+                8L * (input.getNumElements() + output.getNumElements()), used);
+    }
+
+    private static void trainFloat() throws IOException {
+        long before = heapUsed();
+        MappedDataset in = DatasetConverter.cached(IN, Type.FLOAT32);
+        MappedDataset out = DatasetConverter.cached(OUT, Type.FLOAT32);
+        FMatrixRMaj input = FloatData.standardize(in);
+        FMatrixRMaj output = out.columns(0, out.numRegisters(), (FMatrixRMaj) null);
+        FeedforwardF netF = FeedforwardF.of(initial(input.numRows, output.numRows));
+
+        SGDF sgd = new SGDF();
+        sgd.setLearningRate(0.001);
+        sgd.setRegularization(1e-4);
+        sgd.setEpoch(EPOCH);
+        sgd.setBatchSize(BATCH_SIZE);
+        sgd.setAdam(0.9, 0.999, 1e-8);
+        sgd.setRandom(new Random(1));
+
+        Clock clock = new Clock();
+        clock.start();
+        sgd.train(netF, input, output);
+        clock.stop();
+        double accuracy = FloatData.accuracy(netF.output(input), output);
+        long used = heapUsed() - before;
+        print("float", clock.timeSec(), accuracy,
+                4L * (input.getNumElements() + output.getNumElements()), used);
+    }
+
+    /**
+     * The same seed gives both precisions the same initial weights.
+     */
+    private static Feedforward initial(int inputSize, int outputSize) {
+        Random r = new Random(1);
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(inputSize, 300, TransferFunction.TANSIG, WeightInit.DEFAULT, r));
+        net.addLayer(new Dense(300, outputSize, TransferFunction.SOFTMAX, r));
+        return net;
+    }
+
+    /**
+     * @return heap in use after a full collection, in bytes
+     */
+    private static long heapUsed() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void print(String precision, double time, double accuracy, long dataBytes, long usedBytes) {
+        System.out.println(precision + "\ttime (s): " + time
+                + "\taccuracy: " + accuracy
+                + "\tdata (MB): " + dataBytes / (1 << 20)
+                + "\theap retained (MB): " + usedBytes / (1 << 20));
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.float32;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.ejml.data.FMatrixRMaj;
+import org.gitia.froog.example.inference.Activation;
+import org.gitia.froog.example.parallel.CommonOps_FDRM_Parallel;
+import org.gitia.froog.example.parallel.MatrixMatrixMult_FDRM_Parallel;
+import org.gitia.froog.example.train.Adam;
+
+/**
+ * Mini-batch stochastic gradient descent for {@link FeedforwardF}, with the
+ * Adam update and L2 regularization.
+ * <p>
+ * A softmax output layer is trained with cross entropy (the delta of the
+ * output is A - Y), any other output layer with the mean squared error. Every
+ * buffer is allocated once per training, the batches are copied into the
+ * same matrix and the products run on the single precision kernels. The
+ * update is the one of the double precision trainers, {@link Adam}.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class SGDF {
+
+    private int epoch = 1;
+    private int batchSize = 32;
+    private float regularization = 0;
+    private final Adam adam = new Adam();
+    private Random random = new Random();
+    private final List<Double> loss = new ArrayList<>();
+
+    /**
+     * @param net network to train. Modified.
+     * @param input one register per column
+     * @param output expected output, one register per column
+     */
+    public void train(FeedforwardF net, FMatrixRMaj input, FMatrixRMaj output) {
+        List<DenseF> layers = net.getLayers();
+        int numLayers = layers.size();
+        int n = input.numCols;
+        if (output.numCols != n) {
+            throw new IllegalArgumentException("input and output must have the same number of registers");
+        }
+        if (n == 0) {
+            throw new IllegalArgumentException("The training set is empty");
+        }
+        boolean softmax = layers.get(numLayers - 1).getFunction() == Activation.SOFTMAX;
+        for (int l = 0; l < numLayers - 1; l++) {
+            if (layers.get(l).getFunction() == Activation.SOFTMAX) {
+                throw new IllegalArgumentException("softmax is only supported in the output layer");
+            }
+        }
+
+        int bs = Math.min(batchSize, n);
+        FMatrixRMaj x = new FMatrixRMaj(input.numRows, bs);
+        FMatrixRMaj y = new FMatrixRMaj(output.numRows, bs);
+        FMatrixRMaj[] a = new FMatrixRMaj[numLayers];
+        FMatrixRMaj[] delta = new FMatrixRMaj[numLayers];
+        FMatrixRMaj[] gradW = new FMatrixRMaj[numLayers];
+        FMatrixRMaj[] gradB = new FMatrixRMaj[numLayers];
+        // parameters and gradients in the order given to Adam
+        float[][] params = new float[2 * numLayers][];
+        float[][] grads = new float[2 * numLayers][];
+        for (int l = 0; l < numLayers; l++) {
+            DenseF layer = layers.get(l);
+            a[l] = new FMatrixRMaj(layer.numNeurons(), bs);
+            delta[l] = new FMatrixRMaj(layer.numNeurons(), bs);
+            gradW[l] = new FMatrixRMaj(layer.numNeurons(), layer.numInputs());
+            gradB[l] = new FMatrixRMaj(layer.numNeurons(), 1);
+            params[2 * l] = layer.getW().data;
+            params[2 * l + 1] = layer.getB().data;
+            grads[2 * l] = gradW[l].data;
+            grads[2 * l + 1] = gradB[l].data;
+        }
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        adam.reset();
+        for (int e = 0; e < epoch; e++) {
+            shuffle(order);
+            double total = 0;
+            for (int start = 0; start < n; start += bs) {
+                int cols = Math.min(bs, n - start);
+                gather(input, order, start, cols, x);
+                gather(output, order, start, cols, y);
+
+                // forward
+                FMatrixRMaj in = x;
+                for (int l = 0; l < numLayers; l++) {
+                    a[l].reshape(layers.get(l).numNeurons(), cols);
+                    layers.get(l).output(in, a[l]);
+                    in = a[l];
+                }
+
+                // delta of the output layer, averaged over the batch
+                FMatrixRMaj out = a[numLayers - 1];
+                FMatrixRMaj d = delta[numLayers - 1];
+                d.reshape(out.numRows, cols);
+                Activation last = layers.get(numLayers - 1).getFunction();
+                total += last.loss(out.data, y.data, out.getNumElements());
+                CommonOps_FDRM_Parallel.subtract(out, y, d);
+                if (!softmax) {
+                    last.derivative(out.data, d.data, out.numRows, cols);
+                }
+                CommonOps_FDRM_Parallel.scale_parallel(1f / cols, d);
+
+                // backward
+                for (int l = numLayers - 1; l >= 0; l--) {
+                    DenseF layer = layers.get(l);
+                    FMatrixRMaj prev = l == 0 ? x : a[l - 1];
+                    MatrixMatrixMult_FDRM_Parallel.multTransB_reorder(delta[l], prev, gradW[l]);
+                    CommonOps_FDRM_Parallel.sumRows(delta[l], gradB[l]);
+                    if (regularization != 0) {
+                        CommonOps_FDRM_Parallel.addEquals(gradW[l], regularization, layer.getW());
+                    }
+                    if (l > 0) {
+                        delta[l - 1].reshape(prev.numRows, cols);
+                        MatrixMatrixMult_FDRM_Parallel.multTransA_reorder(layer.getW(), delta[l], delta[l - 1]);
+                        layers.get(l - 1).getFunction().derivative(prev.data, delta[l - 1].data, prev.numRows, cols);
+                    }
+                }
+
+                // update
+                adam.update(params, grads);
+            }
+            loss.add(total / n);
+        }
+    }
+
+    /**
+     * Copies the registers order[start:start+cols] into the columns of 'batch'.
+     */
+    private static void gather(FMatrixRMaj data, int[] order, int start, int cols, FMatrixRMaj batch) {
+        batch.reshape(data.numRows, cols);
+        int n = data.numCols;
+        for (int i = 0; i < data.numRows; i++) {
+            int row = i * n;
+            int index = i * cols;
+            for (int j = 0; j < cols; j++) {
+                batch.data[index + j] = data.data[row + order[start + j]];
+            }
+        }
+    }
+
+    private void shuffle(int[] order) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setLearningRate(double learningRate) {
+        adam.setLearningRate(learningRate);
+    }
+
+    public void setRegularization(double regularization) {
+        this.regularization = (float) regularization;
+    }
+
+    /**
+     * @param beta1 decay of the first moment
+     * @param beta2 decay of the second moment
+     * @param epsilon added to the root of the second moment
+     */
+    public void setAdam(double beta1, double beta2, double epsilon) {
+        adam.setAdam(beta1, beta2, epsilon);
+    }
+
+    /**
+     * Uses the plain gradient step instead of Adam.
+     */
+    public void disableAdam() {
+        adam.disable();
+    }
+
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * @return mean loss of every epoch
+     */
+    public List<Double> getLoss() {
+        return loss;
+    }
+}
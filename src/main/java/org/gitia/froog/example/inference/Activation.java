@@ -0,0 +1,362 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.inference;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.DoubleUnaryOperator;
+import org.gitia.froog.example.parallel.TransferFunction_DDRM;
+import org.gitia.froog.example.parallel.TransferFunction_FDRM;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * Transfer functions of the layers evaluated in place over plain arrays, so
+ * the inference paths do not need a SimpleMatrix for each call. The
+ * functions are applied to whole columns, so softmax, that normalizes each
+ * register, is one more function.
+ * <p>
+ * Each function also gives the trainers its fused kernel, its derivative and
+ * the loss used when it is the output layer, in both precisions.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public enum Activation {
+
+    PURELIM(z -> z, TransferFunction_DDRM.PURELIM, TransferFunction_FDRM.PURELIM) {
+        @Override
+        public void apply(double[] z, int offset, int length) {
+        }
+
+        @Override
+        public void applyColumns(double[] z, int rows, int cols) {
+        }
+
+        @Override
+        public void derivative(double[] a, double[] d, int rows, int cols) {
+        }
+
+        @Override
+        public void derivative(float[] a, float[] d, int rows, int cols) {
+        }
+    },
+    TANSIG(Math::tanh, TransferFunction_DDRM.TANSIG, TransferFunction_FDRM.TANSIG) {
+        @Override
+        public void derivative(double[] a, double[] d, int rows, int cols) {
+            int size = rows * cols;
+            for (int i = 0; i < size; i++) {
+                d[i] *= 1 - a[i] * a[i];
+            }
+        }
+
+        @Override
+        public void derivative(float[] a, float[] d, int rows, int cols) {
+            int size = rows * cols;
+            for (int i = 0; i < size; i++) {
+                d[i] *= 1 - a[i] * a[i];
+            }
+        }
+    },
+    LOGSIG(z -> 1 / (1 + Math.exp(-z)), TransferFunction_DDRM.LOGSIG, TransferFunction_FDRM.LOGSIG) {
+        @Override
+        public void derivative(double[] a, double[] d, int rows, int cols) {
+            int size = rows * cols;
+            for (int i = 0; i < size; i++) {
+                d[i] *= a[i] * (1 - a[i]);
+            }
+        }
+
+        @Override
+        public void derivative(float[] a, float[] d, int rows, int cols) {
+            int size = rows * cols;
+            for (int i = 0; i < size; i++) {
+                d[i] *= a[i] * (1 - a[i]);
+            }
+        }
+    },
+    RELU(z -> Math.max(0, z), TransferFunction_DDRM.RELU, TransferFunction_FDRM.RELU) {
+        @Override
+        public void derivative(double[] a, double[] d, int rows, int cols) {
+            int size = rows * cols;
+            for (int i = 0; i < size; i++) {
+                if (a[i] <= 0) {
+                    d[i] = 0;
+                }
+            }
+        }
+
+        @Override
+        public void derivative(float[] a, float[] d, int rows, int cols) {
+            int size = rows * cols;
+            for (int i = 0; i < size; i++) {
+                if (a[i] <= 0) {
+                    d[i] = 0;
+                }
+            }
+        }
+    },
+    SOFTMAX(null, TransferFunction_DDRM.SOFTMAX, TransferFunction_FDRM.SOFTMAX) {
+        @Override
+        public void apply(double[] z, int offset, int length) {
+            int end = offset + length;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = offset; i < end; i++) {
+                max = Math.max(max, z[i]);
+            }
+            double sum = 0;
+            for (int i = offset; i < end; i++) {
+                z[i] = Math.exp(z[i] - max);
+                sum += z[i];
+            }
+            for (int i = offset; i < end; i++) {
+                z[i] /= sum;
+            }
+        }
+
+        @Override
+        public void applyColumns(double[] z, int rows, int cols) {
+            double[] max = new double[cols];
+            double[] sum = new double[cols];
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            for (int i = 0; i < rows; i++) {
+                int index = i * cols;
+                for (int j = 0; j < cols; j++) {
+                    max[j] = Math.max(max[j], z[index + j]);
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                int index = i * cols;
+                for (int j = 0; j < cols; j++) {
+                    double e = Math.exp(z[index + j] - max[j]);
+                    z[index + j] = e;
+                    sum[j] += e;
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                int index = i * cols;
+                for (int j = 0; j < cols; j++) {
+                    z[index + j] /= sum[j];
+                }
+            }
+        }
+
+        /**
+         * The Jacobian of every column times its delta: d = a .* (d - a'd).
+         */
+        @Override
+        public void derivative(double[] a, double[] d, int rows, int cols) {
+            double[] dot = new double[cols];
+            for (int i = 0; i < rows; i++) {
+                int index = i * cols;
+                for (int j = 0; j < cols; j++) {
+                    dot[j] += a[index + j] * d[index + j];
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                int index = i * cols;
+                for (int j = 0; j < cols; j++) {
+                    d[index + j] = a[index + j] * (d[index + j] - dot[j]);
+                }
+            }
+        }
+
+        @Override
+        public void derivative(float[] a, float[] d, int rows, int cols) {
+            double[] dot = new double[cols];
+            for (int i = 0; i < rows; i++) {
+                int index = i * cols;
+                for (int j = 0; j < cols; j++) {
+                    dot[j] += a[index + j] * d[index + j];
+                }
+            }
+            for (int i = 0; i < rows; i++) {
+                int index = i * cols;
+                for (int j = 0; j < cols; j++) {
+                    d[index + j] = a[index + j] * (d[index + j] - (float) dot[j]);
+                }
+            }
+        }
+
+        /**
+         * Cross entropy, the loss a softmax output is trained with.
+         */
+        @Override
+        public double loss(double[] a, double[] y, int size) {
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                if (y[i] != 0) {
+                    total -= y[i] * Math.log(Math.max(a[i], 1e-300));
+                }
+            }
+            return total;
+        }
+
+        @Override
+        public double loss(float[] a, float[] y, int size) {
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                if (y[i] != 0) {
+                    total -= y[i] * Math.log(Math.max(a[i], 1e-30f));
+                }
+            }
+            return total;
+        }
+    };
+
+    // function of each neuron, null when the whole column is needed
+    private final DoubleUnaryOperator element;
+    private final TransferFunction_DDRM kernel;
+    private final TransferFunction_FDRM kernelF;
+
+    Activation(DoubleUnaryOperator element, TransferFunction_DDRM kernel, TransferFunction_FDRM kernelF) {
+        this.element = element;
+        this.kernel = kernel;
+        this.kernelF = kernelF;
+    }
+
+    /**
+     * @return the function fused into the double precision products
+     */
+    public TransferFunction_DDRM kernel() {
+        return kernel;
+    }
+
+    /**
+     * @return the function fused into the single precision products
+     */
+    public TransferFunction_FDRM kernelF() {
+        return kernelF;
+    }
+
+    /**
+     * d = d .* f'(z), with the derivative written in terms of the output
+     * a = f(z), for registers stored in horizontal format.
+     *
+     * @param a outputs, [rows x cols]. Not modified.
+     * @param d deltas, [rows x cols]. Modified.
+     * @param rows number of neurons
+     * @param cols number of registers
+     */
+    public abstract void derivative(double[] a, double[] d, int rows, int cols);
+
+    /**
+     * Single precision version of {@link #derivative(double[], double[], int, int)}.
+     *
+     * @param a outputs, [rows x cols]. Not modified.
+     * @param d deltas, [rows x cols]. Modified.
+     * @param rows number of neurons
+     * @param cols number of registers
+     */
+    public abstract void derivative(float[] a, float[] d, int rows, int cols);
+
+    /**
+     * Loss of an output layer with this function: half the squared error,
+     * except softmax that uses the cross entropy.
+     *
+     * @param a outputs. Not modified.
+     * @param y expected outputs. Not modified.
+     * @param size number of values
+     * @return sum of the loss over the values
+     */
+    public double loss(double[] a, double[] y, int size) {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            double e = a[i] - y[i];
+            total += 0.5 * e * e;
+        }
+        return total;
+    }
+
+    /**
+     * Single precision version of {@link #loss(double[], double[], int)}.
+     *
+     * @param a outputs. Not modified.
+     * @param y expected outputs. Not modified.
+     * @param size number of values
+     * @return sum of the loss over the values
+     */
+    public double loss(float[] a, float[] y, int size) {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            double e = a[i] - y[i];
+            total += 0.5 * e * e;
+        }
+        return total;
+    }
+
+    /**
+     * Applies the function in place to the net input of one register.
+     *
+     * @param z net inputs. Modified.
+     * @param offset index of the first neuron
+     * @param length number of neurons
+     */
+    public void apply(double[] z, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            z[i] = element.applyAsDouble(z[i]);
+        }
+    }
+
+    /**
+     * Applies the function in place to the net inputs of several registers
+     * stored row-major in horizontal format (a column is a register).
+     *
+     * @param z net inputs, [rows x cols]. Modified.
+     * @param rows number of neurons
+     * @param cols number of registers
+     */
+    public void applyColumns(double[] z, int rows, int cols) {
+        apply(z, 0, rows * cols);
+    }
+
+    /**
+     * Finds the activation equivalent to a layer function, by its name
+     * ({@link TransferFunction#toString()}) or else by the name of its class.
+     *
+     * @param function transfer function of a layer
+     * @return the equivalent activation
+     */
+    public static Activation of(TransferFunction function) {
+        Activation a = forName(String.valueOf(function));
+        if (a == null) {
+            a = forName(function.getClass().getSimpleName().toLowerCase(Locale.ROOT));
+        }
+        if (a == null) {
+            throw new IllegalArgumentException("Unsupported transfer function: " + function);
+        }
+        return a;
+    }
+
+    /**
+     * @param name one of the names in {@link TransferFunction}
+     * @return the equivalent activation, null if there is none
+     */
+    private static Activation forName(String name) {
+        if (TransferFunction.TANSIG.equals(name)) {
+            return TANSIG;
+        } else if (TransferFunction.LOGSIG.equals(name)) {
+            return LOGSIG;
+        } else if (TransferFunction.RELU.equals(name)) {
+            return RELU;
+        } else if (TransferFunction.SOFTMAX.equals(name)) {
+            return SOFTMAX;
+        } else if (TransferFunction.PURELIM.equals(name)) {
+            return PURELIM;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.inference;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.parallel.MatrixMatrixMult_DDRM_Parallel;
+import org.gitia.froog.example.parallel.ParallelContext;
+
+/**
+ * Inference front-end that joins the registers sent concurrently by many
+ * threads into one matrix, so each layer runs one matrix product per batch
+ * and its weights are read once for all of them instead of once per
+ * register.
+ * <p>
+ * A dispatcher thread waits for the first register of a batch, then keeps
+ * collecting registers until there are {@code maxBatch} of them or
+ * {@code maxDelay} microseconds have passed since the first one, runs the
+ * batch and completes the future of every register with its output.
+ * </p>
+ * <p>
+ * Every layer is one fused product of
+ * {@link MatrixMatrixMult_DDRM_Parallel#multAddBias}. Big layers are
+ * evaluated on the {@link ParallelContext} that was current when the
+ * instance was created, the small ones in the dispatcher thread.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class BatchingInference implements AutoCloseable {
+
+    private final Weights weights;
+    private final ParallelContext context;
+    private final ParallelContext serial = ParallelContext.create("batching-inference-serial", 1);
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    // buffers of the dispatcher: input and output of each layer for a full batch
+    private final DMatrixRMaj input;
+    private final DMatrixRMaj[] outputs;
+    private volatile int parallelWork = 1 << 20;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong registers = new AtomicLong();
+
+    /**
+     * @param net trained network, its weights are copied
+     * @param maxBatch maximum number of registers evaluated together
+     * @param maxDelay maximum time in microseconds the first register of a
+     * batch waits for others
+     */
+    public BatchingInference(Feedforward net, int maxBatch, long maxDelay) {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("maxBatch must be at least 1");
+        }
+        this.weights = new Weights(net);
+        this.context = ParallelContext.current();
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelay);
+        this.input = new DMatrixRMaj(weights.numInputs(), maxBatch);
+        this.outputs = new DMatrixRMaj[weights.numLayers()];
+        for (int l = 0; l < outputs.length; l++) {
+            outputs[l] = new DMatrixRMaj(weights.numNeurons(l), maxBatch);
+        }
+        dispatcher = new Thread(this::dispatch, "batching-inference");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Queues one register.
+     *
+     * @param x register, one value per input. It must not be modified until
+     * the future is completed.
+     * @return future with the output of the last layer
+     */
+    public CompletableFuture<double[]> submit(double[] x) {
+        if (x.length != weights.numInputs()) {
+            throw new IllegalArgumentException("The register must have " + weights.numInputs() + " values");
+        }
+        if (!running) {
+            throw closed();
+        }
+        Request request = new Request(x);
+        queue.add(request);
+        // close() may have drained the queue between the check and the add;
+        // if the request is still there nobody will evaluate it
+        if (!running && queue.remove(request)) {
+            throw closed();
+        }
+        return request.future;
+    }
+
+    private void dispatch() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || wait <= 0) {
+                        break;
+                    }
+                    Request next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                run(batch);
+            } catch (InterruptedException ex) {
+                running = false;
+                fail(batch, ex);
+                fail(queue, ex);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                fail(batch, ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Completes exceptionally the requests, removing them from the collection.
+     */
+    private static void fail(Collection<Request> requests, Throwable cause) {
+        for (Iterator<Request> it = requests.iterator(); it.hasNext();) {
+            Request r = it.next();
+            it.remove();
+            r.future.completeExceptionally(cause);
+        }
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("The inference front-end is closed");
+    }
+
+    /**
+     * Evaluates the batch and scatters the columns of the output.
+     */
+    private void run(List<Request> batch) {
+        int n = batch.size();
+        int inputs = weights.numInputs();
+        // gather: register j is column j of the input
+        input.reshape(inputs, n);
+        for (int j = 0; j < n; j++) {
+            double[] x = batch.get(j).x;
+            for (int i = 0, index = j; i < inputs; i++, index += n) {
+                input.data[index] = x[i];
+            }
+        }
+
+        DMatrixRMaj in = input;
+        for (int l = 0; l < outputs.length; l++) {
+            mult(l, in, outputs[l]);
+            in = outputs[l];
+        }
+
+        int rows = weights.numOutputs();
+        for (int j = 0; j < n; j++) {
+            double[] y = new double[rows];
+            for (int i = 0, index = j; i < rows; i++, index += n) {
+                y[i] = in.data[index];
+            }
+            batch.get(j).future.complete(y);
+        }
+        batches.incrementAndGet();
+        registers.addAndGet(n);
+    }
+
+    /**
+     * out = f(w * in + b) for the layer 'l', on the context of the instance
+     * once the layer is big enough.
+     */
+    private void mult(int l, DMatrixRMaj in, DMatrixRMaj out) {
+        long work = (long) weights.numNeurons(l) * weights.inputs[l] * in.numCols;
+        ParallelContext target = work < parallelWork ? serial : context;
+        target.run(() -> MatrixMatrixMult_DDRM_Parallel.multAddBias(weights.matrixW[l], in,
+                weights.matrixB[l], weights.functions[l].kernel(), out));
+    }
+
+    /**
+     * Stops accepting registers, evaluates the ones already queued and waits
+     * for the dispatcher to finish. The registers the dispatcher did not
+     * take, if it was interrupted, are completed exceptionally. If the
+     * calling thread is interrupted it stops waiting, fails the registers
+     * still queued and keeps its interrupt flag set.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            dispatcher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        fail(queue, closed());
+        serial.close();
+    }
+
+    /**
+     * @return number of batches evaluated
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return number of registers evaluated
+     */
+    public long getRegisters() {
+        return registers.get();
+    }
+
+    /**
+     * @return average number of registers per batch
+     */
+    public double getAverageBatch() {
+        long b = batches.get();
+        return b == 0 ? 0 : (double) registers.get() / b;
+    }
+
+    /**
+     * @param parallelWork multiply-adds of a layer from which it is evaluated
+     * in parallel
+     */
+    public void setParallelWork(int parallelWork) {
+        this.parallelWork = parallelWork;
+    }
+
+    private static class Request {
+
+        final double[] x;
+        final CompletableFuture<double[]> future = new CompletableFuture<>();
+
+        Request(double[] x) {
+            this.x = x;
+        }
+    }
+}
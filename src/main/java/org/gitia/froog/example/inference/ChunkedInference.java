@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.inference;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DSubmatrixD1;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.parallel.MatrixMatrixMult_DDRM_Parallel;
+import org.gitia.froog.example.parallel.ParallelContext;
+
+/**
+ * Output of a network over a large set of registers computed in blocks of
+ * columns, so the activations of the hidden layers only exist for the
+ * blocks being evaluated instead of for the whole set.
+ * <p>
+ * The blocks run in parallel on the {@link ParallelContext} that was current
+ * when the instance was created. Every block reads its columns of the input
+ * in place, runs the layers with the fused products of
+ * {@link MatrixMatrixMult_DDRM_Parallel#multAddBias} over buffers taken from
+ * a pool and writes its columns of the output into the matrix given by the
+ * caller, so the memory
+ * used is about (workers x block x widest layer) whatever the number of
+ * registers.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class ChunkedInference {
+
+    private final Weights weights;
+    private final ParallelContext context;
+    private final int blockSize;
+    private final Queue<Buffers> pool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param net trained network, its weights are copied
+     * @param blockSize registers evaluated together by each task
+     */
+    public ChunkedInference(Feedforward net, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be at least 1");
+        }
+        this.weights = new Weights(net);
+        this.context = ParallelContext.current();
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @param input [inputs x registers]. Not modified.
+     * @param output [outputs x registers]. Reshaped. Can be null.
+     * @return 'output'
+     */
+    public DMatrixRMaj output(DMatrixRMaj input, DMatrixRMaj output) {
+        if (input.numRows != weights.numInputs()) {
+            throw new IllegalArgumentException("input must have " + weights.numInputs() + " rows");
+        }
+        int n = input.numCols;
+        if (output == null) {
+            output = new DMatrixRMaj(weights.numOutputs(), n);
+        }
+        output.reshape(weights.numOutputs(), n);
+        final DMatrixRMaj target = output;
+        int blocks = (n + blockSize - 1) / blockSize;
+        context.forEach(blocks, t -> {
+            Buffers buffers = pool.poll();
+            if (buffers == null) {
+                buffers = new Buffers();
+            }
+            int start = t * blockSize;
+            run(input, start, Math.min(blockSize, n - start), target, buffers);
+            pool.add(buffers);
+        });
+        return output;
+    }
+
+    /**
+     * Evaluates the registers start:start+cols.
+     */
+    private void run(DMatrixRMaj input, int start, int cols, DMatrixRMaj target, Buffers buffers) {
+        int n = input.numCols;
+        buffers.view.set(input, 0, input.numRows, start, start + cols);
+        MatrixMatrixMult_DDRM_Parallel.multAddBias(weights.matrixW[0], buffers.view, weights.matrixB[0],
+                weights.functions[0].kernel(), buffers.outputs[0]);
+        for (int l = 1; l < weights.numLayers(); l++) {
+            MatrixMatrixMult_DDRM_Parallel.multAddBias(weights.matrixW[l], buffers.outputs[l - 1],
+                    weights.matrixB[l], weights.functions[l].kernel(), buffers.outputs[l]);
+        }
+
+        double[] out = buffers.outputs[weights.numLayers() - 1].data;
+        for (int i = 0; i < weights.numOutputs(); i++) {
+            System.arraycopy(out, i * cols, target.data, i * n + start, cols);
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * View of the input and output of each layer for one block.
+     */
+    private class Buffers {
+
+        final DSubmatrixD1 view = new DSubmatrixD1();
+        final DMatrixRMaj[] outputs = new DMatrixRMaj[weights.numLayers()];
+
+        Buffers() {
+            for (int l = 0; l < outputs.length; l++) {
+                outputs[l] = new DMatrixRMaj(weights.numNeurons(l), blockSize);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.inference;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.ejml.simple.SimpleMatrix;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.lossfunction.LossFunction;
+import org.gitia.froog.optimizer.Backpropagation;
+import org.gitia.froog.optimizer.accelerate.AccelerateRule;
+import org.gitia.froog.transferfunction.TransferFunction;
+import org.gitia.jdataanalysis.CSV;
+import org.gitia.jdataanalysis.data.stats.STD;
+
+/**
+ * Scores the iris registers one by one, as an online service would, and
+ * prints the latency percentiles.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class IrisOnline {
+
+    public static void main(String[] args) {
+        //get data
+        SimpleMatrix input = CSV.open("src/main/resources/iris/iris-in.csv");
+        SimpleMatrix output = CSV.open("src/main/resources/iris/iris-out.csv");
+
+        //Standard Desviation
+        STD std = new STD();
+        std.fit(input);
+
+        //normalization
+        input = std.eval(input);
+
+        Random random = new Random(1);
+
+        //set data in horizontal format (a column is a register and a row is a feature)
+        input = input.transpose();
+        output = output.transpose();
+
+        Backpropagation bp = new Backpropagation();
+        bp.setEpoch(1000);
+        bp.setAcceleration(AccelerateRule.momentumRumelhart(0.9));
+        bp.setClassification(true);
+        bp.setLossFunction(LossFunction.CROSSENTROPY);
+
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(input.numRows(), 6, TransferFunction.TANSIG, random));
+        net.addLayer(new Dense(6, output.numRows(), TransferFunction.SOFTMAX, random));
+        bp.train(net, input, output);
+
+        //one buffer per register and one inference instance, reused for every request
+        OnlineInference inference = new OnlineInference(net);
+        double[] x = new double[inference.numInputs()];
+        int requests = 100000;
+        long[] latency = new long[requests];
+        int hits = 0;
+        for (int r = 0; r < requests; r++) {
+            int col = r % input.numCols();
+            for (int i = 0; i < x.length; i++) {
+                x[i] = input.get(i, col);
+            }
+            long start = System.nanoTime();
+            int label = inference.classify(x);
+            latency[r] = System.nanoTime() - start;
+            if (output.get(label, col) == 1) {
+                hits++;
+            }
+        }
+
+        Arrays.sort(latency);
+        System.out.println("Accuracy: " + (double) hits / requests);
+        System.out.println("p50 (us): " + latency[requests / 2] / 1000.0);
+        System.out.println("p99 (us): " + latency[requests * 99 / 100] / 1000.0);
+        System.out.println("max (us): " + latency[requests - 1] / 1000.0);
+    }
+}
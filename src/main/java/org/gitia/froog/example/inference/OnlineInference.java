@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.inference;
+
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.parallel.ParallelContext;
+
+/**
+ * Inference of one register at a time over a trained {@link Feedforward}.
+ * <p>
+ * The weights are copied once from the network and the output of every layer
+ * is kept in a buffer that is reused on each call, so scoring a register does
+ * not allocate. Small layers are evaluated serially; only layers with at
+ * least {@link #getParallelRows()} neurons are split across the workers of
+ * {@link ParallelContext#current()}, where the dot products pay for the
+ * fork/join.
+ * </p>
+ * <p>
+ * An instance is not thread safe: use {@link #share()} to get one per thread
+ * over the same weights.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class OnlineInference {
+
+    // rows of each block when a layer is evaluated in parallel
+    private static final int ROWS_PER_TASK = 64;
+
+    private final Weights weights;
+    private final double[][] outputs;
+    private int parallelRows = 1024;
+
+    /**
+     * Copies the weights of the network. Later changes to the network are not
+     * seen by this instance.
+     *
+     * @param net trained network
+     */
+    public OnlineInference(Feedforward net) {
+        weights = new Weights(net);
+        outputs = newBuffers();
+    }
+
+    private OnlineInference(OnlineInference other) {
+        weights = other.weights;
+        parallelRows = other.parallelRows;
+        outputs = newBuffers();
+    }
+
+    private double[][] newBuffers() {
+        double[][] buffers = new double[weights.numLayers()][];
+        for (int l = 0; l < buffers.length; l++) {
+            buffers[l] = new double[weights.numNeurons(l)];
+        }
+        return buffers;
+    }
+
+    /**
+     * @return a new instance with its own buffers over the same weights
+     */
+    public OnlineInference share() {
+        return new OnlineInference(this);
+    }
+
+    /**
+     * Evaluates one register.
+     *
+     * @param x register, one value per input
+     * @return output of the last layer. The array is reused by the next call.
+     */
+    public double[] output(double[] x) {
+        if (x.length != weights.numInputs()) {
+            throw new IllegalArgumentException("The register must have " + weights.numInputs() + " values");
+        }
+        double[] in = x;
+        for (int l = 0; l < outputs.length; l++) {
+            double[] out = outputs[l];
+            if (out.length >= parallelRows) {
+                multParallel(weights.w[l], in, weights.b[l], out);
+            } else {
+                mult(weights.w[l], in, weights.b[l], out, 0, out.length);
+            }
+            weights.functions[l].apply(out, 0, out.length);
+            in = out;
+        }
+        return in;
+    }
+
+    /**
+     * Evaluates one register and copies the result.
+     *
+     * @param x register, one value per input
+     * @param y where the output of the last layer is stored. Modified.
+     */
+    public void output(double[] x, double[] y) {
+        double[] out = output(x);
+        System.arraycopy(out, 0, y, 0, out.length);
+    }
+
+    /**
+     * @param x register, one value per input
+     * @return index of the output with the largest value
+     */
+    public int classify(double[] x) {
+        double[] out = output(x);
+        int best = 0;
+        for (int i = 1; i < out.length; i++) {
+            if (out[i] > out[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * out[i] = w[i,:] * x + b[i] for the rows start:end. Four partial sums
+     * let the JIT keep the loop free of a serial dependency.
+     */
+    static void mult(double[] w, double[] x, double[] b, double[] out, int start, int end) {
+        int n = x.length;
+        for (int i = start; i < end; i++) {
+            int index = i * n;
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int j = 0;
+            for (; j <= n - 4; j += 4) {
+                s0 += w[index + j] * x[j];
+                s1 += w[index + j + 1] * x[j + 1];
+                s2 += w[index + j + 2] * x[j + 2];
+                s3 += w[index + j + 3] * x[j + 3];
+            }
+            for (; j < n; j++) {
+                s0 += w[index + j] * x[j];
+            }
+            out[i] = b[i] + (s0 + s1) + (s2 + s3);
+        }
+    }
+
+    private static void multParallel(double[] w, double[] x, double[] b, double[] out) {
+        int tasks = (out.length + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        ParallelContext.current().forEach(tasks, t -> {
+            int start = t * ROWS_PER_TASK;
+            mult(w, x, b, out, start, Math.min(out.length, start + ROWS_PER_TASK));
+        });
+    }
+
+    /**
+     * @return number of neurons from which a layer is evaluated in parallel
+     */
+    public int getParallelRows() {
+        return parallelRows;
+    }
+
+    /**
+     * @param parallelRows number of neurons from which a layer is evaluated
+     * in parallel
+     */
+    public void setParallelRows(int parallelRows) {
+        this.parallelRows = parallelRows;
+    }
+
+    /**
+     * @return number of inputs of the network
+     */
+    public int numInputs() {
+        return weights.numInputs();
+    }
+
+    /**
+     * @return number of outputs of the network
+     */
+    public int numOutputs() {
+        return weights.numOutputs();
+    }
+}
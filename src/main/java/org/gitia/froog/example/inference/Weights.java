@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.inference;
+
+import java.util.List;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.layer.Dense;
+
+/**
+ * Copy of the parameters of a trained network in plain arrays, shared by the
+ * inference paths of this package.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+final class Weights {
+
+    final double[][] w; // [layer][neuron * inputs + input]
+    final double[][] b; // [layer][neuron]
+    final int[] inputs;
+    final Activation[] functions;
+    // the same arrays as matrices, for the kernels of the parallel package
+    final DMatrixRMaj[] matrixW; // [neurons x inputs]
+    final DMatrixRMaj[] matrixB; // [neurons x 1]
+
+    /**
+     * Later changes to the network are not seen by this copy.
+     *
+     * @param net trained network
+     */
+    Weights(Feedforward net) {
+        List<Dense> layers = net.getLayers();
+        int n = layers.size();
+        w = new double[n][];
+        b = new double[n][];
+        inputs = new int[n];
+        functions = new Activation[n];
+        matrixW = new DMatrixRMaj[n];
+        matrixB = new DMatrixRMaj[n];
+        for (int l = 0; l < n; l++) {
+            Dense layer = layers.get(l);
+            w[l] = layer.getW().getDDRM().getData().clone();
+            b[l] = layer.getB().getDDRM().getData().clone();
+            inputs[l] = layer.getW().numCols();
+            functions[l] = Activation.of(layer.getFunction());
+            matrixW[l] = DMatrixRMaj.wrap(b[l].length, inputs[l], w[l]);
+            matrixB[l] = DMatrixRMaj.wrap(b[l].length, 1, b[l]);
+        }
+    }
+
+    int numLayers() {
+        return w.length;
+    }
+
+    int numInputs() {
+        return inputs[0];
+    }
+
+    int numOutputs() {
+        return b[b.length - 1].length;
+    }
+
+    int numNeurons(int layer) {
+        return b[layer].length;
+    }
+}
@@ -0,0 +1,82 @@
+package org.gitia.froog.example.parallel;
+
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Row-major boolean matrix packed one bit per element, 64 elements per word.
+ * It takes 1/8 of the memory of a {@link org.ejml.data.BMatrixRMaj}, which
+ * matters for the ReLU and dropout masks of the hidden layers (300 x 50000
+ * elements).
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class BitMask {
+
+    public long[] data;
+    public int numRows;
+    public int numCols;
+
+    public BitMask(int numRows, int numCols) {
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.data = new long[words(numRows * numCols)];
+    }
+
+    /**
+     * Changes the shape of the mask, growing the storage if needed. The
+     * values are not preserved.
+     */
+    public void reshape(int numRows, int numCols) {
+        int words = words(numRows * numCols);
+        if (data.length < words) {
+            data = new long[words];
+        }
+        this.numRows = numRows;
+        this.numCols = numCols;
+    }
+
+    public boolean get(int index) {
+        return (data[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean get(int row, int col) {
+        return get(row * numCols + col);
+    }
+
+    public void set(int index, boolean value) {
+        if (value) {
+            data[index >>> 6] |= 1L << index;
+        } else {
+            data[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    public void set(int row, int col, boolean value) {
+        set(row * numCols + col, value);
+    }
+
+    public int getNumElements() {
+        return numRows * numCols;
+    }
+
+    /**
+     * @param elements number of elements
+     * @return words needed to store them
+     */
+    public static int words(int elements) {
+        return (elements + 63) >>> 6;
+    }
+}
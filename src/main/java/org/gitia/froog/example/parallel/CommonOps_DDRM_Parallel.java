@@ -0,0 +1,1922 @@
+package org.gitia.froog.example.parallel;
+
+import java.util.function.DoubleBinaryOperator;
+import org.ejml.MatrixDimensionException;
+import org.ejml.data.BMatrixRMaj;
+import org.ejml.data.DMatrixD1;
+import org.ejml.data.DMatrixRMaj;
+
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class CommonOps_DDRM_Parallel {
+
+    // below this many elements an operation runs serially in the calling thread
+    static final int SERIAL_CUTOFF = 1 << 15;
+    // smallest block of elements given to a task
+    static final int MIN_CHUNK = 1 << 12;
+    // elements of a double in a cache line, chunks start on a multiple of it
+    private static final int LINE = 8;
+    // fixed block of the reductions, see reduce
+    static final int REDUCE_BLOCK = 1 << 12;
+
+    /**
+     * Operation over the elements start:end of one or more matrices.
+     */
+    interface Chunk {
+
+        void apply(int start, int end);
+    }
+
+    /**
+     * Runs 'op' over 0:size split in contiguous chunks, a few per worker, so
+     * every task runs a tight loop over its own cache lines. Small sizes are
+     * run serially.
+     */
+    static void forChunks(int size, Chunk op) {
+        ParallelContext context = ParallelContext.current();
+        int workers = context.getParallelism();
+        if (size < SERIAL_CUTOFF || workers == 1) {
+            op.apply(0, size);
+            return;
+        }
+        int chunks = Math.min(4 * workers, (size + MIN_CHUNK - 1) / MIN_CHUNK);
+        int chunk = ((size + chunks - 1) / chunks + LINE - 1) / LINE * LINE;
+        context.forEach((size + chunk - 1) / chunk, t -> {
+            int start = t * chunk;
+            op.apply(start, Math.min(size, start + chunk));
+        });
+    }
+
+    /**
+     * Runs 'op' over 'n' items (rows or columns) of 'length' elements each,
+     * giving every task a range of consecutive items with at least
+     * MIN_CHUNK elements. Small matrices are run serially.
+     */
+    static void forRows(int n, int length, Chunk op) {
+        ParallelContext context = ParallelContext.current();
+        int workers = context.getParallelism();
+        long size = (long) n * length;
+        if (size < SERIAL_CUTOFF || workers == 1 || n < 2) {
+            op.apply(0, n);
+            return;
+        }
+        int perTask = Math.max(1, MIN_CHUNK / Math.max(1, length));
+        perTask = Math.max(perTask, (n + 4 * workers - 1) / (4 * workers));
+        int items = perTask;
+        context.forEach((n + items - 1) / items, t -> {
+            int start = t * items;
+            op.apply(start, Math.min(n, start + items));
+        });
+    }
+
+    /**
+     * Partial result of a reduction over the elements start:end.
+     */
+    interface ChunkReduce {
+
+        double apply(int start, int end);
+    }
+
+    /**
+     * Reduces 0:size in blocks of REDUCE_BLOCK elements. The blocks do not
+     * depend on the number of workers and their partial results are combined
+     * in order, so sums give the same bits with one worker or many.
+     */
+    static double reduce(int size, ChunkReduce op, DoubleBinaryOperator combine) {
+        int blocks = (size + REDUCE_BLOCK - 1) / REDUCE_BLOCK;
+        if (blocks <= 1) {
+            return op.apply(0, size);
+        }
+        double[] partial = new double[blocks];
+        forRows(blocks, REDUCE_BLOCK, (start, end) -> {
+            for (int b = start; b < end; b++) {
+                int first = b * REDUCE_BLOCK;
+                partial[b] = op.apply(first, Math.min(size, first + REDUCE_BLOCK));
+            }
+        });
+        double result = partial[0];
+        for (int b = 1; b < blocks; b++) {
+            result = combine.applyAsDouble(result, partial[b]);
+        }
+        return result;
+    }
+
+    public static void elementExp_parallel(DMatrixD1 A, DMatrixD1 C) {
+
+        if (A.numCols != C.numCols || A.numRows != C.numRows) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = A.getNumElements();
+        final double[] dataA = A.data;
+        final double[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = Math.exp(dataA[i]);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs an in-place element by element scalar multiplication.<br>
+     * <br>
+     * a<sub>ij</sub> = &alpha;*a<sub>ij</sub>
+     * </p>
+     *
+     * @param a The matrix that is to be scaled. Modified.
+     * @param alpha the amount each element is multiplied by.
+     */
+    public static void scale_parallel(double alpha, DMatrixD1 a) {
+        // on very small matrices (2 by 2) the call to getNumElements() can slow it down
+        // slightly compared to other libraries since it involves an extra multiplication.
+        final int size = a.getNumElements();
+
+        final double[] dataA = a.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] *= alpha;
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Element-wise power operation  <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> ^ b
+     * <p>
+     *
+     * @param A left side
+     * @param b right scalar
+     * @param C output (modified)
+     */
+    public static void elementPower(DMatrixD1 A, double b, DMatrixD1 C) {
+
+        if (A.numRows != C.numRows || A.numCols != C.numCols) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = A.getNumElements();
+        final double[] dataA = A.data;
+        final double[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = Math.pow(dataA[i], b);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the an element by element multiplication operation:<br>
+     * <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> * b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a The left matrix in the multiplication operation. Modified.
+     * @param b The right matrix in the multiplication operation. Not modified.
+     */
+    public static void elementMult(DMatrixD1 a, DMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] *= dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the an element by element multiplication operation:<br>
+     * <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> * b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a The left matrix in the multiplication operation. Not modified.
+     * @param b The right matrix in the multiplication operation. Not modified.
+     * @param c Where the results of the operation are stored. Modified.
+     */
+    public static void elementMult(DMatrixD1 a, DMatrixD1 b, DMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows
+                || a.numRows != c.numRows || a.numCols != c.numCols) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] * dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the an element by element division operation:<br>
+     * <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> / b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a The left matrix in the division operation. Modified.
+     * @param b The right matrix in the division operation. Not modified.
+     */
+    public static void elementDiv(DMatrixD1 a, DMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] /= dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the an element by element division operation:<br>
+     * <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> / b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a The left matrix in the division operation. Not modified.
+     * @param b The right matrix in the division operation. Not modified.
+     * @param c Where the results of the operation are stored. Modified.
+     */
+    public static void elementDiv(DMatrixD1 a, DMatrixD1 b, DMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows
+                || a.numRows != c.numRows || a.numCols != c.numCols) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] / dataB[i];
+            }
+        });
+    }
+    
+    /**
+     * <p>
+     * Element-wise power operation  <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> ^ b<sub>ij</sub>
+     * <p>
+     *
+     * @param A left side
+     * @param B right side
+     * @param C output (modified)
+     */
+    public static void elementPower(DMatrixD1 A, DMatrixD1 B, DMatrixD1 C) {
+
+        if (A.numRows != B.numRows || A.numRows != C.numRows
+                || A.numCols != B.numCols || A.numCols != C.numCols) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = A.getNumElements();
+
+        final double[] dataA = A.data;
+        final double[] dataB = B.data;
+        final double[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = Math.pow(dataA[i], dataB[i]);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Element-wise power operation  <br>
+     * c<sub>ij</sub> = a ^ b<sub>ij</sub>
+     * <p>
+     *
+     * @param a left scalar
+     * @param B right side
+     * @param C output (modified)
+     */
+    public static void elementPower(double a, DMatrixD1 B, DMatrixD1 C) {
+
+        if (B.numRows != C.numRows || B.numCols != C.numCols) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = B.getNumElements();
+
+        final double[] dataB = B.data;
+        final double[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = Math.pow(a, dataB[i]);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Element-wise log operation  <br>
+     * c<sub>ij</sub> = Math.log(a<sub>ij</sub>)
+     * <p>
+     *
+     * @param A input
+     * @param C output (modified)
+     */
+    public static void elementLog(DMatrixD1 A, DMatrixD1 C) {
+
+        if (A.numCols != C.numCols || A.numRows != C.numRows) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = A.getNumElements();
+
+        final double[] dataA = A.data;
+        final double[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = Math.log(dataA[i]);
+            }
+        });
+
+    }
+    
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * a = a + b <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> + b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a A Matrix. Modified.
+     * @param b A Matrix. Not modified.
+     */
+    public static void addEquals(DMatrixD1 a, DMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] += dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * a = a + &beta; * b  <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> + &beta; * b<sub>ij</sub>
+     * </p>
+     *
+     * @param beta The number that matrix 'b' is multiplied by.
+     * @param a A Matrix. Modified.
+     * @param b A Matrix. Not modified.
+     */
+    public static void addEquals(DMatrixD1 a, double beta, DMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] += beta * dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * c = a + b <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> + b<sub>ij</sub> <br>
+     * </p>
+     *
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param a A Matrix. Not modified.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix where the results are stored. Modified.
+     */
+    public static void add(final DMatrixD1 a, final DMatrixD1 b, final DMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The matrices are not all the same dimension.");
+        }
+
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] + dataB[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * c = a + &beta; * b <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> + &beta; * b<sub>ij</sub> <br>
+     * </p>
+     *
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param a A Matrix. Not modified.
+     * @param beta Scaling factor for matrix b.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix where the results are stored. Modified.
+     */
+    public static void add(DMatrixD1 a, double beta, DMatrixD1 b, DMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The matrices are not all the same dimension.");
+        }
+
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] + beta * dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * c = &alpha; * a + &beta; * b <br>
+     * c<sub>ij</sub> = &alpha; * a<sub>ij</sub> + &beta; * b<sub>ij</sub> <br>
+     * </p>
+     *
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param alpha A scaling factor for matrix a.
+     * @param a A Matrix. Not modified.
+     * @param beta A scaling factor for matrix b.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix where the results are stored. Modified.
+     */
+    public static void add(double alpha, DMatrixD1 a, double beta, DMatrixD1 b, DMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The matrices are not all the same dimension.");
+        }
+
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = alpha * dataA[i] + beta * dataB[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * c = &alpha; * a + b <br>
+     * c<sub>ij</sub> = &alpha; * a<sub>ij</sub> + b<sub>ij</sub> <br>
+     * </p>
+     *
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param alpha A scaling factor for matrix a.
+     * @param a A Matrix. Not modified.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix where the results are stored. Modified.
+     */
+    public static void add(double alpha, DMatrixD1 a, DMatrixD1 b, DMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The matrices are not all the same dimension.");
+        }
+
+        c.reshape(a.numRows, a.numCols);
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = alpha * dataA[i] + dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs an in-place scalar addition:<br>
+     * <br>
+     * a = a + val<br>
+     * a<sub>ij</sub> = a<sub>ij</sub> + val<br>
+     * </p>
+     *
+     * @param a A matrix. Modified.
+     * @param val The value that's added to each element.
+     */
+    public static void add(DMatrixD1 a, double val) {
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] += val;
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs scalar addition:<br>
+     * <br>
+     * c = a + val<br>
+     * c<sub>ij</sub> = a<sub>ij</sub> + val<br>
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @param c A matrix. Modified.
+     * @param val The value that's added to each element.
+     */
+    public static void add(DMatrixD1 a, double val, DMatrixD1 c) {
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] + val;
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs matrix scalar subtraction:<br>
+     * <br>
+     * c = a - val<br>
+     * c<sub>ij</sub> = a<sub>ij</sub> - val<br>
+     * </p>
+     *
+     * @param a (input) A matrix. Not modified.
+     * @param val (input) The value that's subtracted to each element.
+     * @param c (Output) A matrix. Modified.
+     */
+    public static void subtract(DMatrixD1 a, double val, DMatrixD1 c) {
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] - val;
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs matrix scalar subtraction:<br>
+     * <br>
+     * c = val - a<br>
+     * c<sub>ij</sub> = val - a<sub>ij</sub><br>
+     * </p>
+     *
+     * @param val (input) The value that's subtracted to each element.
+     * @param a (input) A matrix. Not modified.
+     * @param c (Output) A matrix. Modified.
+     */
+    public static void subtract(double val, DMatrixD1 a, DMatrixD1 c) {
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = val - dataA[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs the following subtraction operation:<br>
+     * <br>
+     * a = a - b  <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> - b<sub>ij</sub>
+     * </p>
+     *
+     * @param a A Matrix. Modified.
+     * @param b A Matrix. Not modified.
+     */
+    public static void subtractEquals(DMatrixD1 a, DMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] -= dataB[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs the following subtraction operation:<br>
+     * <br>
+     * c = a - b  <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> - b<sub>ij</sub>
+     * </p>
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param a A Matrix. Not modified.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix. Modified.
+     */
+    public static void subtract(DMatrixD1 a, DMatrixD1 b, DMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        final double[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] - dataB[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs an element by element scalar multiplication.<br>
+     * <br>
+     * b<sub>ij</sub> = &alpha;*a<sub>ij</sub>
+     * </p>
+     *
+     * @param alpha the amount each element is multiplied by.
+     * @param a The matrix that is to be scaled. Not modified.
+     * @param b Where the scaled matrix is stored. Modified.
+     */
+    public static void scale(double alpha, DMatrixD1 a, DMatrixD1 b) {
+        b.reshape(a.numRows, a.numCols);
+
+        final int size = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataB[i] = dataA[i] * alpha;
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs an in-place element by element scalar division with the scalar
+     * on top.<br>
+     * <br>
+     * a<sub>ij</sub> = &alpha;/a<sub>ij</sub>
+     * </p>
+     *
+     * @param a The matrix whose elements are divide the scalar. Modified.
+     * @param alpha top value in division
+     */
+    public static void divide(double alpha, DMatrixD1 a) {
+        final int size = a.getNumElements();
+
+        final double[] dataA = a.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] = alpha / dataA[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs an in-place element by element scalar division with the scalar
+     * on bottom.<br>
+     * <br>
+     * a<sub>ij</sub> = a<sub>ij</sub>/&alpha;
+     * </p>
+     *
+     * @param a The matrix whose elements are to be divided. Modified.
+     * @param alpha the amount each element is divided by.
+     */
+    public static void divide(DMatrixD1 a, double alpha) {
+        final int size = a.getNumElements();
+
+        final double[] dataA = a.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] /= alpha;
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs an element by element scalar division with the scalar on
+     * top.<br>
+     * <br>
+     * b<sub>ij</sub> = &alpha;/a<sub>ij</sub>
+     * </p>
+     *
+     * @param alpha The numerator.
+     * @param a The matrix whose elements are the divisor. Not modified.
+     * @param b Where the results are stored. Modified.
+     */
+    public static void divide(double alpha, DMatrixD1 a, DMatrixD1 b) {
+        b.reshape(a.numRows, a.numCols);
+
+        final int size = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataB[i] = alpha / dataA[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs an element by element scalar division with the scalar on
+     * botton.<br>
+     * <br>
+     * b<sub>ij</sub> = a<sub>ij</sub> /&alpha;
+     * </p>
+     *
+     * @param a The matrix whose elements are to be divided. Not modified.
+     * @param alpha the amount each element is divided by.
+     * @param b Where the results are stored. Modified.
+     */
+    public static void divide(DMatrixD1 a, double alpha, DMatrixD1 b) {
+        b.reshape(a.numRows, a.numCols);
+
+        final int size = a.getNumElements();
+
+        final double[] dataA = a.data;
+        final double[] dataB = b.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataB[i] = dataA[i] / alpha;
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Changes the sign of every element in the matrix.<br>
+     * <br>
+     * a<sub>ij</sub> = -a<sub>ij</sub>
+     * </p>
+     *
+     * @param a A matrix. Modified.
+     */
+    public static void changeSign(DMatrixD1 a) {
+        final int size = a.getNumElements();
+
+        final double[] dataA = a.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] = -dataA[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Changes the sign of every element in the matrix.<br>
+     * <br>
+     * output<sub>ij</sub> = -input<sub>ij</sub>
+     * </p>
+     *
+     * @param input A matrix. Modified.
+     */
+    public static void changeSign(DMatrixD1 input, DMatrixD1 output) {
+        output.reshape(input.numRows, input.numCols);
+
+        final int size = input.getNumElements();
+
+        final double[] dataInput = input.data;
+        final double[] dataOutput = output.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = -dataInput[i];
+            }
+        });
+
+    }
+    
+//    /**
+//     * Converts the columns in a matrix into a set of vectors.
+//     *
+//     * @param A Matrix.  Not modified.
+//     * @param v
+//     * @return An array of vectors.
+//     */
+//    public static DMatrixRMaj[] columnsToVector(DMatrixRMaj A, DMatrixRMaj[] v)
+//    {
+//        DMatrixRMaj[]ret;
+//        if( v == null || v.length < A.numCols ) {
+//            ret = new DMatrixRMaj[ A.numCols ];
+//        } else {
+//            ret = v;
+//        }
+//
+//        for( int i = 0; i < ret.length; i++ ) {
+//            if( ret[i] == null ) {
+//                ret[i] = new DMatrixRMaj(A.numRows,1);
+//            } else {
+//                ret[i].reshape(A.numRows,1, false);
+//            }
+//
+//            DMatrixRMaj u = ret[i];
+//
+//            for( int j = 0; j < A.numRows; j++ ) {
+//                u.set(j,0, A.get(j,i));
+//            }
+//        }
+//
+//        return ret;
+//    }
+//    /**
+//     * Converts the rows in a matrix into a set of vectors.
+//     *
+//     * @param A Matrix.  Not modified.
+//     * @param v
+//     * @return An array of vectors.
+//     */
+//    public static DMatrixRMaj[] rowsToVector(DMatrixRMaj A, DMatrixRMaj[] v)
+//    {
+//        DMatrixRMaj[]ret;
+//        if( v == null || v.length < A.numRows ) {
+//            ret = new DMatrixRMaj[ A.numRows ];
+//        } else {
+//            ret = v;
+//        }
+//
+//
+//        for( int i = 0; i < ret.length; i++ ) {
+//            if( ret[i] == null ) {
+//                ret[i] = new DMatrixRMaj(A.numCols,1);
+//            } else {
+//                ret[i].reshape(A.numCols,1, false);
+//            }
+//
+//            DMatrixRMaj u = ret[i];
+//
+//            for( int j = 0; j < A.numCols; j++ ) {
+//                u.set(j,0, A.get(i,j));
+//            }
+//        }
+//
+//        return ret;
+//    }
+//    /**
+//     * <p>
+//     * The Kronecker product of two matrices is defined as:<br>
+//     * C<sub>ij</sub> = a<sub>ij</sub>B<br>
+//     * where C<sub>ij</sub> is a sub matrix inside of C &isin; &real; <sup>m*k &times; n*l</sup>,
+//     * A &isin; &real; <sup>m &times; n</sup>, and B &isin; &real; <sup>k &times; l</sup>.
+//     * </p>
+//     *
+//     * @param A The left matrix in the operation. Not modified.
+//     * @param B The right matrix in the operation. Not modified.
+//     * @param C Where the results of the operation are stored. Modified.
+//     */
+//    public static void kron(DMatrixRMaj A , DMatrixRMaj B , DMatrixRMaj C )
+//    {
+//        int numColsC = A.numCols*B.numCols;
+//        int numRowsC = A.numRows*B.numRows;
+//
+//        if( C.numCols != numColsC || C.numRows != numRowsC) {
+//            throw new MatrixDimensionException("C does not have the expected dimensions");
+//        }
+//
+//        // TODO see comment below
+//        // this will work well for small matrices
+//        // but an alternative version should be made for large matrices
+//        for( int i = 0; i < A.numRows; i++ ) {
+//            for( int j = 0; j < A.numCols; j++ ) {
+//                double a = A.get(i,j);
+//
+//                for( int rowB = 0; rowB < B.numRows; rowB++ ) {
+//                    for( int colB = 0; colB < B.numCols; colB++ ) {
+//                        double val = a*B.get(rowB,colB);
+//                        C.set(i*B.numRows+rowB,j*B.numCols+colB,val);
+//                    }
+//                }
+//            }
+//        }
+//    }
+    /**
+     * <p>
+     * Returns the value of the element in the matrix that has the largest value.<br>
+     * <br>
+     * Max{ a<sub>ij</sub> } for all i and j<br>
+     * </p>
+     * <p>
+     * As in CommonOps_DDRM the search starts from the first element and NaNs
+     * are skipped, unless the first element is NaN. Each block starts from
+     * its first number, and the blocks are compared in order with the same
+     * comparison, so the result is the same element.
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @return The max element value of the matrix.
+     */
+    public static double elementMax(DMatrixD1 a) {
+        final double[] data = a.data;
+        if (Double.isNaN(data[0])) {
+            return data[0];
+        }
+        return reduce(a.getNumElements(), (start, end) -> {
+            double max = data[start];
+            for (int i = start + 1; i < end; i++) {
+                double val = data[i];
+                if (val >= max || Double.isNaN(max)) {
+                    max = val;
+                }
+            }
+            return max;
+        }, (max, val) -> val >= max ? val : max);
+    }
+
+    /**
+     * <p>
+     * Returns the absolute value of the element in the matrix that has the largest absolute value.<br>
+     * <br>
+     * Max{ |a<sub>ij</sub>| } for all i and j<br>
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @return The max abs element value of the matrix.
+     */
+    public static double elementMaxAbs(DMatrixD1 a) {
+        final double[] data = a.data;
+        return reduce(a.getNumElements(), (start, end) -> {
+            double max = 0;
+            for (int i = start; i < end; i++) {
+                double val = Math.abs(data[i]);
+                if (val > max) {
+                    max = val;
+                }
+            }
+            return max;
+        }, (max, val) -> val > max ? val : max);
+    }
+
+    /**
+     * <p>
+     * Returns the value of the element in the matrix that has the minimum value.<br>
+     * <br>
+     * Min{ a<sub>ij</sub> } for all i and j<br>
+     * </p>
+     * <p>
+     * The first element and NaNs are handled like in {@link #elementMax}.
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @return The value of element in the matrix with the minimum value.
+     */
+    public static double elementMin(DMatrixD1 a) {
+        final double[] data = a.data;
+        if (Double.isNaN(data[0])) {
+            return data[0];
+        }
+        return reduce(a.getNumElements(), (start, end) -> {
+            double min = data[start];
+            for (int i = start + 1; i < end; i++) {
+                double val = data[i];
+                if (val < min || Double.isNaN(min)) {
+                    min = val;
+                }
+            }
+            return min;
+        }, (min, val) -> val < min ? val : min);
+    }
+
+    /**
+     * <p>
+     * Returns the absolute value of the element in the matrix that has the smallest absolute value.<br>
+     * <br>
+     * Min{ |a<sub>ij</sub>| } for all i and j<br>
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @return The max element value of the matrix.
+     */
+    public static double elementMinAbs(DMatrixD1 a) {
+        final double[] data = a.data;
+        return reduce(a.getNumElements(), (start, end) -> {
+            double min = Double.MAX_VALUE;
+            for (int i = start; i < end; i++) {
+                double val = Math.abs(data[i]);
+                if (val < min) {
+                    min = val;
+                }
+            }
+            return min;
+        }, (min, val) -> val < min ? val : min);
+    }
+
+    /**
+     * <p>
+     * Computes the sum of all the elements in the matrix:<br>
+     * <br>
+     * sum(i=1:m , j=1:n ; a<sub>ij</sub>)
+     * <p>
+     * <p>
+     * The elements are added in blocks of fixed size and the blocks are added
+     * in order, so the result is the same for any number of workers.
+     * </p>
+     *
+     * @param mat An m by n matrix. Not modified.
+     * @return The sum of the elements.
+     */
+    public static double elementSum(DMatrixD1 mat) {
+        final double[] data = mat.data;
+        return reduce(mat.getNumElements(), (start, end) -> {
+            double total = 0;
+            for (int i = start; i < end; i++) {
+                total += data[i];
+            }
+            return total;
+        }, Double::sum);
+    }
+
+    /**
+     * <p>
+     * Computes the sum of the absolute value all the elements in the
+     * matrix:<br>
+     * <br>
+     * sum(i=1:m , j=1:n ; |a<sub>ij</sub>|)
+     * <p>
+     * <p>
+     * Reproducible for any number of workers, see {@link #elementSum}.
+     * </p>
+     *
+     * @param mat An m by n matrix. Not modified.
+     * @return The sum of the absolute value of each element.
+     */
+    public static double elementSumAbs(DMatrixD1 mat) {
+        final double[] data = mat.data;
+        return reduce(mat.getNumElements(), (start, end) -> {
+            double total = 0;
+            for (int i = start; i < end; i++) {
+                total += Math.abs(data[i]);
+            }
+            return total;
+        }, Double::sum);
+    }
+
+//    /**
+//     * Multiplies every element in row i by value[i].
+//     *
+//     * @param values array. Not modified.
+//     * @param A Matrix. Modified.
+//     */
+//    public static void multRows(double[] values, DMatrixRMaj A) {
+//        if (values.length < A.numRows) {
+//            throw new IllegalArgumentException("Not enough elements in values.");
+//        }
+//
+//        int index = 0;
+//        
+//        for (int row = 0; row < A.numRows; row++) {
+//            double v = values[row];
+//            for (int col = 0; col < A.numCols; col++, index++) {
+//                A.data[index] *= v;
+//            }
+//        }
+//    }
+//    /**
+//     * Divides every element in row i by value[i].
+//     *
+//     * @param values array. Not modified.
+//     * @param A Matrix. Modified.
+//     */
+//    public static void divideRows(double[] values, DMatrixRMaj A) {
+//        if (values.length < A.numRows) {
+//            throw new IllegalArgumentException("Not enough elements in values.");
+//        }
+//
+//        int index = 0;
+//        for (int row = 0; row < A.numRows; row++) {
+//            double v = values[row];
+//            for (int col = 0; col < A.numCols; col++, index++) {
+//                A.data[index] /= v;
+//            }
+//        }
+//    }
+//    /**
+//     * Multiplies every element in column i by value[i].
+//     *
+//     * @param A Matrix. Modified.
+//     * @param values array. Not modified.
+//     */
+//    public static void multCols(DMatrixRMaj A, double values[]) {
+//        if (values.length < A.numCols) {
+//            throw new IllegalArgumentException("Not enough elements in values.");
+//        }
+//
+//        int index = 0;
+//        for (int row = 0; row < A.numRows; row++) {
+//            for (int col = 0; col < A.numCols; col++, index++) {
+//                A.data[index] *= values[col];
+//            }
+//        }
+//    }
+//    /**
+//     * Divides every element in column i by value[i].
+//     *
+//     * @param A Matrix. Modified.
+//     * @param values array. Not modified.
+//     */
+//    public static void divideCols(DMatrixRMaj A, double values[]) {
+//        if (values.length < A.numCols) {
+//            throw new IllegalArgumentException("Not enough elements in values.");
+//        }
+//
+//        int index = 0;
+//        for (int row = 0; row < A.numRows; row++) {
+//            for (int col = 0; col < A.numCols; col++, index++) {
+//                A.data[index] /= values[col];
+//            }
+//        }
+//    }
+    /**
+     * <p>
+     * Computes the sum of each row in the input matrix and returns the results
+     * in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = sum(i=1:n ; a<sub>ji</sub>)
+     * </p>
+     * <p>
+     * Each row is added in order by a single task, so the result does not
+     * depend on the number of workers.
+     * </p>
+     *
+     * @param input INput matrix whose rows are summed.
+     * @param output Optional storage for output. Reshaped into a column.
+     * Modified.
+     * @return Vector containing the sum of each row in the input.
+     */
+    public static DMatrixRMaj sumRows(DMatrixRMaj input, DMatrixRMaj output) {
+        if (output == null) {
+            output = new DMatrixRMaj(input.numRows, 1);
+        } else {
+            output.reshape(input.numRows, 1);
+        }
+        final double[] in = input.data;
+        final double[] out = output.data;
+        final int cols = input.numCols;
+        forRows(input.numRows, cols, (start, end) -> {
+            for (int row = start; row < end; row++) {
+                double total = 0;
+                int index = row * cols;
+                int last = index + cols;
+                for (; index < last; index++) {
+                    total += in[index];
+                }
+                out[row] = total;
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Finds the element with the minimum value along each row in the input
+     * matrix and returns the results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = min(i=1:n ; a<sub>ji</sub>)
+     * </p>
+     * <p>
+     * Every row starts from its first element and skips NaNs, so a row of
+     * infinities gives that infinity and a row of NaNs gives NaN, where
+     * CommonOps_DDRM starts from Double.MAX_VALUE. Any other row gives the
+     * same element as CommonOps_DDRM.
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a column.
+     * Modified.
+     * @return Vector containing the minimum of each row in the input.
+     */
+    public static DMatrixRMaj minRows(DMatrixRMaj input, DMatrixRMaj output) {
+        if (output == null) {
+            output = new DMatrixRMaj(input.numRows, 1);
+        } else {
+            output.reshape(input.numRows, 1);
+        }
+        final double[] in = input.data;
+        final double[] out = output.data;
+        final int cols = input.numCols;
+        forRows(input.numRows, cols, (start, end) -> {
+            for (int row = start; row < end; row++) {
+                int index = row * cols;
+                int last = index + cols;
+                double min = cols == 0 ? Double.MAX_VALUE : in[index];
+                for (index++; index < last; index++) {
+                    double v = in[index];
+                    if (v < min || Double.isNaN(min)) {
+                        min = v;
+                    }
+                }
+                out[row] = min;
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Finds the element with the maximum value along each row in the input
+     * matrix and returns the results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = max(i=1:n ; a<sub>ji</sub>)
+     * </p>
+     * <p>
+     * Every row starts from its first element and skips NaNs, so a row of
+     * infinities gives that infinity and a row of NaNs gives NaN, where
+     * CommonOps_DDRM starts from -Double.MAX_VALUE. Any other row gives the
+     * same element as CommonOps_DDRM.
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a column.
+     * Modified.
+     * @return Vector containing the maximum of each row in the input.
+     */
+    public static DMatrixRMaj maxRows(DMatrixRMaj input, DMatrixRMaj output) {
+        if (output == null) {
+            output = new DMatrixRMaj(input.numRows, 1);
+        } else {
+            output.reshape(input.numRows, 1);
+        }
+        final double[] in = input.data;
+        final double[] out = output.data;
+        final int cols = input.numCols;
+        forRows(input.numRows, cols, (start, end) -> {
+            for (int row = start; row < end; row++) {
+                int index = row * cols;
+                int last = index + cols;
+                double max = cols == 0 ? -Double.MAX_VALUE : in[index];
+                for (index++; index < last; index++) {
+                    double v = in[index];
+                    if (v > max || Double.isNaN(max)) {
+                        max = v;
+                    }
+                }
+                out[row] = max;
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Computes the sum of each column in the input matrix and returns the
+     * results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = sum(i=1:m ; a<sub>ij</sub>)
+     * </p>
+     * <p>
+     * The columns are split among the tasks and every task walks its columns
+     * row by row, so each column is added in order by a single task and the
+     * result does not depend on the number of workers.
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a row vector.
+     * Modified.
+     * @return Vector containing the sum of each column
+     */
+    public static DMatrixRMaj sumCols(DMatrixRMaj input, DMatrixRMaj output) {
+        if (output == null) {
+            output = new DMatrixRMaj(1, input.numCols);
+        } else {
+            output.reshape(1, input.numCols);
+        }
+        final double[] in = input.data;
+        final double[] out = output.data;
+        final int rows = input.numRows;
+        final int cols = input.numCols;
+        forRows(cols, rows, (start, end) -> {
+            for (int col = start; col < end; col++) {
+                out[col] = 0;
+            }
+            for (int row = 0; row < rows; row++) {
+                int index = row * cols;
+                for (int col = start; col < end; col++) {
+                    out[col] += in[index + col];
+                }
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Finds the element with the minimum value along each column in the input
+     * matrix and returns the results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = min(i=1:m ; a<sub>ij</sub>)
+     * </p>
+     * <p>
+     * The first element and NaNs are handled like in {@link #minRows}.
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a row vector.
+     * Modified.
+     * @return Vector containing the minimum of each column
+     */
+    public static DMatrixRMaj minCols(DMatrixRMaj input, DMatrixRMaj output) {
+        if (output == null) {
+            output = new DMatrixRMaj(1, input.numCols);
+        } else {
+            output.reshape(1, input.numCols);
+        }
+        final double[] in = input.data;
+        final double[] out = output.data;
+        final int rows = input.numRows;
+        final int cols = input.numCols;
+        forRows(cols, rows, (start, end) -> {
+            for (int col = start; col < end; col++) {
+                out[col] = rows == 0 ? Double.MAX_VALUE : in[col];
+            }
+            for (int row = 1; row < rows; row++) {
+                int index = row * cols;
+                for (int col = start; col < end; col++) {
+                    double v = in[index + col];
+                    if (v < out[col] || Double.isNaN(out[col])) {
+                        out[col] = v;
+                    }
+                }
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Finds the element with the maximum value along each column in the input
+     * matrix and returns the results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = max(i=1:m ; a<sub>ij</sub>)
+     * </p>
+     * <p>
+     * The first element and NaNs are handled like in {@link #maxRows}.
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a row vector.
+     * Modified.
+     * @return Vector containing the maximum of each column
+     */
+    public static DMatrixRMaj maxCols(DMatrixRMaj input, DMatrixRMaj output) {
+        if (output == null) {
+            output = new DMatrixRMaj(1, input.numCols);
+        } else {
+            output.reshape(1, input.numCols);
+        }
+        final double[] in = input.data;
+        final double[] out = output.data;
+        final int rows = input.numRows;
+        final int cols = input.numCols;
+        forRows(cols, rows, (start, end) -> {
+            for (int col = start; col < end; col++) {
+                out[col] = rows == 0 ? -Double.MAX_VALUE : in[col];
+            }
+            for (int row = 1; row < rows; row++) {
+                int index = row * cols;
+                for (int col = start; col < end; col++) {
+                    double v = in[index + col];
+                    if (v > out[col] || Double.isNaN(out[col])) {
+                        out[col] = v;
+                    }
+                }
+            }
+        });
+        return output;
+    }
+
+    
+
+    /**
+     * Applies the &lt; operator to each element in A. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementLessThan(DMatrixRMaj A, double value, BMatrixRMaj output) {
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final double[] dataA = A.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] < value;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &le; operator to each element in A. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementLessThanOrEqual(DMatrixRMaj A, double value, BMatrixRMaj output) {
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final double[] dataA = A.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] <= value;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &gt; operator to each element in A. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementMoreThan(DMatrixRMaj A, double value, BMatrixRMaj output) {
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final double[] dataA = A.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] > value;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &ge; operator to each element in A. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementMoreThanOrEqual(DMatrixRMaj A, double value, BMatrixRMaj output) {
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final double[] dataA = A.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] >= value;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the A &lt; B operator to each element. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param B Input matrix
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementLessThan(DMatrixRMaj A, DMatrixRMaj B, BMatrixRMaj output) {
+        if (A.numRows != B.numRows || A.numCols != B.numCols) {
+            throw new MatrixDimensionException("Input matrices must have the same shape");
+        }
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final double[] dataA = A.data;
+        final double[] dataB = B.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] < dataB[i];
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the A &le; B operator to each element. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param B Input matrix
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementLessThanOrEqual(DMatrixRMaj A, DMatrixRMaj B, BMatrixRMaj output) {
+        if (A.numRows != B.numRows || A.numCols != B.numCols) {
+            throw new MatrixDimensionException("Input matrices must have the same shape");
+        }
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final double[] dataA = A.data;
+        final double[] dataB = B.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] <= dataB[i];
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Returns a row matrix which contains all the elements in A which are
+     * flagged as true in 'marked'
+     * <p>
+     * Every task counts the marked elements of its block, the offsets of the
+     * blocks are added in order and then every task copies its elements, so
+     * they keep the order of A.
+     * </p>
+     *
+     * @param A Input matrix
+     * @param marked Input matrix marking elements in A
+     * @param output Storage for output row vector. Can be null. Will be
+     * reshaped.
+     * @return Row vector with marked elements
+     */
+    public static DMatrixRMaj elements(DMatrixRMaj A, BMatrixRMaj marked, DMatrixRMaj output) {
+        if (A.numRows != marked.numRows || A.numCols != marked.numCols) {
+            throw new MatrixDimensionException("Input matrices must have the same shape");
+        }
+        if (output == null) {
+            output = new DMatrixRMaj(1, 1);
+        }
+
+        final int size = A.getNumElements();
+        final int blocks = (size + REDUCE_BLOCK - 1) / REDUCE_BLOCK;
+        final boolean[] flags = marked.data;
+        final int[] offsets = new int[blocks + 1];
+        forRows(blocks, REDUCE_BLOCK, (start, end) -> {
+            for (int b = start; b < end; b++) {
+                int count = 0;
+                int last = Math.min(size, (b + 1) * REDUCE_BLOCK);
+                for (int i = b * REDUCE_BLOCK; i < last; i++) {
+                    if (flags[i]) {
+                        count++;
+                    }
+                }
+                offsets[b + 1] = count;
+            }
+        });
+        for (int b = 0; b < blocks; b++) {
+            offsets[b + 1] += offsets[b];
+        }
+
+        output.reshape(offsets[blocks], 1);
+
+        final double[] dataA = A.data;
+        final double[] dataOutput = output.data;
+        forRows(blocks, REDUCE_BLOCK, (start, end) -> {
+            for (int b = start; b < end; b++) {
+                int index = offsets[b];
+                int last = Math.min(size, (b + 1) * REDUCE_BLOCK);
+                for (int i = b * REDUCE_BLOCK; i < last; i++) {
+                    if (flags[i]) {
+                        dataOutput[index++] = dataA[i];
+                    }
+                }
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Counts the number of elements in A which are true
+     *
+     * @param A input matrix
+     * @return number of true elements
+     */
+    public static int countTrue(BMatrixRMaj A) {
+        final boolean[] data = A.data;
+        return (int) reduce(A.getNumElements(), (start, end) -> {
+            int total = 0;
+            for (int i = start; i < end; i++) {
+                if (data[i]) {
+                    total++;
+                }
+            }
+            return total;
+        }, Double::sum);
+    }
+
+    /**
+     * Applies the &lt; operator to each element in A. Results are stored in a
+     * packed mask.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Mask with results
+     */
+    public static BitMask elementLessThan(DMatrixRMaj A, double value, BitMask output) {
+        if (output == null) {
+            output = new BitMask(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final double[] dataA = A.data;
+        final long[] words = output.data;
+        final int size = A.getNumElements();
+        forRows(BitMask.words(size), 64, (start, end) -> {
+            for (int w = start; w < end; w++) {
+                int first = w << 6;
+                int last = Math.min(size, first + 64);
+                long word = 0;
+                for (int i = first; i < last; i++) {
+                    if (dataA[i] < value) {
+                        word |= 1L << i;
+                    }
+                }
+                words[w] = word;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &gt; operator to each element in A. Results are stored in a
+     * packed mask.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Mask with results
+     */
+    public static BitMask elementMoreThan(DMatrixRMaj A, double value, BitMask output) {
+        if (output == null) {
+            output = new BitMask(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final double[] dataA = A.data;
+        final long[] words = output.data;
+        final int size = A.getNumElements();
+        forRows(BitMask.words(size), 64, (start, end) -> {
+            for (int w = start; w < end; w++) {
+                int first = w << 6;
+                int last = Math.min(size, first + 64);
+                long word = 0;
+                for (int i = first; i < last; i++) {
+                    if (dataA[i] > value) {
+                        word |= 1L << i;
+                    }
+                }
+                words[w] = word;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &ge; operator to each element in A. Results are stored in a
+     * packed mask.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Mask with results
+     */
+    public static BitMask elementMoreThanOrEqual(DMatrixRMaj A, double value, BitMask output) {
+        if (output == null) {
+            output = new BitMask(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final double[] dataA = A.data;
+        final long[] words = output.data;
+        final int size = A.getNumElements();
+        forRows(BitMask.words(size), 64, (start, end) -> {
+            for (int w = start; w < end; w++) {
+                int first = w << 6;
+                int last = Math.min(size, first + 64);
+                long word = 0;
+                for (int i = first; i < last; i++) {
+                    if (dataA[i] >= value) {
+                        word |= 1L << i;
+                    }
+                }
+                words[w] = word;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Counts the number of elements in A which are true
+     *
+     * @param A input mask
+     * @return number of true elements
+     */
+    public static int countTrue(BitMask A) {
+        final long[] words = A.data;
+        return (int) reduce(BitMask.words(A.getNumElements()), (start, end) -> {
+            int total = 0;
+            for (int w = start; w < end; w++) {
+                total += Long.bitCount(words[w]);
+            }
+            return total;
+        }, Double::sum);
+    }
+
+    /**
+     * <p>
+     * Applies a mask in place, scaling the elements that are kept:<br>
+     * <br>
+     * a<sub>ij</sub> = mask<sub>ij</sub> ? &alpha; * a<sub>ij</sub> : 0
+     * </p>
+     * <p>
+     * With &alpha; = 1 and the mask of z &gt; 0 it is the derivative of ReLU,
+     * with &alpha; = 1 / (1 - p) it is an inverted dropout.
+     * </p>
+     *
+     * @param a A matrix. Modified.
+     * @param mask Which elements are kept. Not modified.
+     * @param alpha the amount each kept element is multiplied by.
+     */
+    public static void elementMult(DMatrixD1 a, BitMask mask, double alpha) {
+        if (a.numCols != mask.numCols || a.numRows != mask.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'mask' matrices do not have compatible dimensions");
+        }
+
+        final double[] dataA = a.data;
+        final long[] words = mask.data;
+        final int size = a.getNumElements();
+        forRows(BitMask.words(size), 64, (start, end) -> {
+            for (int w = start; w < end; w++) {
+                long word = words[w];
+                int first = w << 6;
+                int last = Math.min(size, first + 64);
+                for (int i = first; i < last; i++) {
+                    dataA[i] = (word & (1L << i)) != 0 ? dataA[i] * alpha : 0;
+                }
+            }
+        });
+    }
+
+}
@@ -0,0 +1,1622 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.parallel;
+
+import org.ejml.MatrixDimensionException;
+import org.ejml.data.BMatrixRMaj;
+import org.ejml.data.FMatrixD1;
+import org.ejml.data.FMatrixRMaj;
+
+import static org.gitia.froog.example.parallel.CommonOps_DDRM_Parallel.REDUCE_BLOCK;
+import static org.gitia.froog.example.parallel.CommonOps_DDRM_Parallel.forChunks;
+import static org.gitia.froog.example.parallel.CommonOps_DDRM_Parallel.forRows;
+import static org.gitia.froog.example.parallel.CommonOps_DDRM_Parallel.reduce;
+
+/**
+ * Single precision version of {@link CommonOps_DDRM_Parallel}. It splits the
+ * work in the same chunks, so a float operation moves half the bytes of its
+ * double counterpart.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class CommonOps_FDRM_Parallel {
+
+    public static void elementExp_parallel(FMatrixD1 A, FMatrixD1 C) {
+
+        if (A.numCols != C.numCols || A.numRows != C.numRows) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = A.getNumElements();
+        final float[] dataA = A.data;
+        final float[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = (float) Math.exp(dataA[i]);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs an in-place element by element scalar multiplication.<br>
+     * <br>
+     * a<sub>ij</sub> = &alpha;*a<sub>ij</sub>
+     * </p>
+     *
+     * @param a The matrix that is to be scaled. Modified.
+     * @param alpha the amount each element is multiplied by.
+     */
+    public static void scale_parallel(float alpha, FMatrixD1 a) {
+        // on very small matrices (2 by 2) the call to getNumElements() can slow it down
+        // slightly compared to other libraries since it involves an extra multiplication.
+        final int size = a.getNumElements();
+
+        final float[] dataA = a.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] *= alpha;
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Element-wise power operation  <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> ^ b
+     * <p>
+     *
+     * @param A left side
+     * @param b right scalar
+     * @param C output (modified)
+     */
+    public static void elementPower(FMatrixD1 A, float b, FMatrixD1 C) {
+
+        if (A.numRows != C.numRows || A.numCols != C.numCols) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = A.getNumElements();
+        final float[] dataA = A.data;
+        final float[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = (float) Math.pow(dataA[i], b);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the an element by element multiplication operation:<br>
+     * <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> * b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a The left matrix in the multiplication operation. Modified.
+     * @param b The right matrix in the multiplication operation. Not modified.
+     */
+    public static void elementMult(FMatrixD1 a, FMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] *= dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the an element by element multiplication operation:<br>
+     * <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> * b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a The left matrix in the multiplication operation. Not modified.
+     * @param b The right matrix in the multiplication operation. Not modified.
+     * @param c Where the results of the operation are stored. Modified.
+     */
+    public static void elementMult(FMatrixD1 a, FMatrixD1 b, FMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows
+                || a.numRows != c.numRows || a.numCols != c.numCols) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] * dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the an element by element division operation:<br>
+     * <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> / b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a The left matrix in the division operation. Modified.
+     * @param b The right matrix in the division operation. Not modified.
+     */
+    public static void elementDiv(FMatrixD1 a, FMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] /= dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the an element by element division operation:<br>
+     * <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> / b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a The left matrix in the division operation. Not modified.
+     * @param b The right matrix in the division operation. Not modified.
+     * @param c Where the results of the operation are stored. Modified.
+     */
+    public static void elementDiv(FMatrixD1 a, FMatrixD1 b, FMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows
+                || a.numRows != c.numRows || a.numCols != c.numCols) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] / dataB[i];
+            }
+        });
+    }
+    
+    /**
+     * <p>
+     * Element-wise power operation  <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> ^ b<sub>ij</sub>
+     * <p>
+     *
+     * @param A left side
+     * @param B right side
+     * @param C output (modified)
+     */
+    public static void elementPower(FMatrixD1 A, FMatrixD1 B, FMatrixD1 C) {
+
+        if (A.numRows != B.numRows || A.numRows != C.numRows
+                || A.numCols != B.numCols || A.numCols != C.numCols) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = A.getNumElements();
+
+        final float[] dataA = A.data;
+        final float[] dataB = B.data;
+        final float[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = (float) Math.pow(dataA[i], dataB[i]);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Element-wise power operation  <br>
+     * c<sub>ij</sub> = a ^ b<sub>ij</sub>
+     * <p>
+     *
+     * @param a left scalar
+     * @param B right side
+     * @param C output (modified)
+     */
+    public static void elementPower(float a, FMatrixD1 B, FMatrixD1 C) {
+
+        if (B.numRows != C.numRows || B.numCols != C.numCols) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = B.getNumElements();
+
+        final float[] dataB = B.data;
+        final float[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = (float) Math.pow(a, dataB[i]);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Element-wise log operation  <br>
+     * c<sub>ij</sub> = (float) Math.log(a<sub>ij</sub>)
+     * <p>
+     *
+     * @param A input
+     * @param C output (modified)
+     */
+    public static void elementLog(FMatrixD1 A, FMatrixD1 C) {
+
+        if (A.numCols != C.numCols || A.numRows != C.numRows) {
+            throw new MatrixDimensionException("All matrices must be the same shape");
+        }
+
+        int size = A.getNumElements();
+
+        final float[] dataA = A.data;
+        final float[] dataC = C.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = (float) Math.log(dataA[i]);
+            }
+        });
+
+    }
+    
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * a = a + b <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> + b<sub>ij</sub> <br>
+     * </p>
+     *
+     * @param a A Matrix. Modified.
+     * @param b A Matrix. Not modified.
+     */
+    public static void addEquals(FMatrixD1 a, FMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] += dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * a = a + &beta; * b  <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> + &beta; * b<sub>ij</sub>
+     * </p>
+     *
+     * @param beta The number that matrix 'b' is multiplied by.
+     * @param a A Matrix. Modified.
+     * @param b A Matrix. Not modified.
+     */
+    public static void addEquals(FMatrixD1 a, float beta, FMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] += beta * dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * c = a + b <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> + b<sub>ij</sub> <br>
+     * </p>
+     *
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param a A Matrix. Not modified.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix where the results are stored. Modified.
+     */
+    public static void add(final FMatrixD1 a, final FMatrixD1 b, final FMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The matrices are not all the same dimension.");
+        }
+
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] + dataB[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * c = a + &beta; * b <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> + &beta; * b<sub>ij</sub> <br>
+     * </p>
+     *
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param a A Matrix. Not modified.
+     * @param beta Scaling factor for matrix b.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix where the results are stored. Modified.
+     */
+    public static void add(FMatrixD1 a, float beta, FMatrixD1 b, FMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The matrices are not all the same dimension.");
+        }
+
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] + beta * dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * c = &alpha; * a + &beta; * b <br>
+     * c<sub>ij</sub> = &alpha; * a<sub>ij</sub> + &beta; * b<sub>ij</sub> <br>
+     * </p>
+     *
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param alpha A scaling factor for matrix a.
+     * @param a A Matrix. Not modified.
+     * @param beta A scaling factor for matrix b.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix where the results are stored. Modified.
+     */
+    public static void add(float alpha, FMatrixD1 a, float beta, FMatrixD1 b, FMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The matrices are not all the same dimension.");
+        }
+
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = alpha * dataA[i] + beta * dataB[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs the following operation:<br>
+     * <br>
+     * c = &alpha; * a + b <br>
+     * c<sub>ij</sub> = &alpha; * a<sub>ij</sub> + b<sub>ij</sub> <br>
+     * </p>
+     *
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param alpha A scaling factor for matrix a.
+     * @param a A Matrix. Not modified.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix where the results are stored. Modified.
+     */
+    public static void add(float alpha, FMatrixD1 a, FMatrixD1 b, FMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The matrices are not all the same dimension.");
+        }
+
+        c.reshape(a.numRows, a.numCols);
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = alpha * dataA[i] + dataB[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs an in-place scalar addition:<br>
+     * <br>
+     * a = a + val<br>
+     * a<sub>ij</sub> = a<sub>ij</sub> + val<br>
+     * </p>
+     *
+     * @param a A matrix. Modified.
+     * @param val The value that's added to each element.
+     */
+    public static void add(FMatrixD1 a, float val) {
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] += val;
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs scalar addition:<br>
+     * <br>
+     * c = a + val<br>
+     * c<sub>ij</sub> = a<sub>ij</sub> + val<br>
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @param c A matrix. Modified.
+     * @param val The value that's added to each element.
+     */
+    public static void add(FMatrixD1 a, float val, FMatrixD1 c) {
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] + val;
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs matrix scalar subtraction:<br>
+     * <br>
+     * c = a - val<br>
+     * c<sub>ij</sub> = a<sub>ij</sub> - val<br>
+     * </p>
+     *
+     * @param a (input) A matrix. Not modified.
+     * @param val (input) The value that's subtracted to each element.
+     * @param c (Output) A matrix. Modified.
+     */
+    public static void subtract(FMatrixD1 a, float val, FMatrixD1 c) {
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] - val;
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs matrix scalar subtraction:<br>
+     * <br>
+     * c = val - a<br>
+     * c<sub>ij</sub> = val - a<sub>ij</sub><br>
+     * </p>
+     *
+     * @param val (input) The value that's subtracted to each element.
+     * @param a (input) A matrix. Not modified.
+     * @param c (Output) A matrix. Modified.
+     */
+    public static void subtract(float val, FMatrixD1 a, FMatrixD1 c) {
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = val - dataA[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs the following subtraction operation:<br>
+     * <br>
+     * a = a - b  <br>
+     * a<sub>ij</sub> = a<sub>ij</sub> - b<sub>ij</sub>
+     * </p>
+     *
+     * @param a A Matrix. Modified.
+     * @param b A Matrix. Not modified.
+     */
+    public static void subtractEquals(FMatrixD1 a, FMatrixD1 b) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] -= dataB[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs the following subtraction operation:<br>
+     * <br>
+     * c = a - b  <br>
+     * c<sub>ij</sub> = a<sub>ij</sub> - b<sub>ij</sub>
+     * </p>
+     * <p>
+     * Matrix C can be the same instance as Matrix A and/or B.
+     * </p>
+     *
+     * @param a A Matrix. Not modified.
+     * @param b A Matrix. Not modified.
+     * @param c A Matrix. Modified.
+     */
+    public static void subtract(FMatrixD1 a, FMatrixD1 b, FMatrixD1 c) {
+        if (a.numCols != b.numCols || a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numRows, a.numCols);
+
+        final int length = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        final float[] dataC = c.data;
+        forChunks(length, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataC[i] = dataA[i] - dataB[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs an element by element scalar multiplication.<br>
+     * <br>
+     * b<sub>ij</sub> = &alpha;*a<sub>ij</sub>
+     * </p>
+     *
+     * @param alpha the amount each element is multiplied by.
+     * @param a The matrix that is to be scaled. Not modified.
+     * @param b Where the scaled matrix is stored. Modified.
+     */
+    public static void scale(float alpha, FMatrixD1 a, FMatrixD1 b) {
+        b.reshape(a.numRows, a.numCols);
+
+        final int size = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataB[i] = dataA[i] * alpha;
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs an in-place element by element scalar division with the scalar
+     * on top.<br>
+     * <br>
+     * a<sub>ij</sub> = &alpha;/a<sub>ij</sub>
+     * </p>
+     *
+     * @param a The matrix whose elements are divide the scalar. Modified.
+     * @param alpha top value in division
+     */
+    public static void divide(float alpha, FMatrixD1 a) {
+        final int size = a.getNumElements();
+
+        final float[] dataA = a.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] = alpha / dataA[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs an in-place element by element scalar division with the scalar
+     * on bottom.<br>
+     * <br>
+     * a<sub>ij</sub> = a<sub>ij</sub>/&alpha;
+     * </p>
+     *
+     * @param a The matrix whose elements are to be divided. Modified.
+     * @param alpha the amount each element is divided by.
+     */
+    public static void divide(FMatrixD1 a, float alpha) {
+        final int size = a.getNumElements();
+
+        final float[] dataA = a.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] /= alpha;
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Performs an element by element scalar division with the scalar on
+     * top.<br>
+     * <br>
+     * b<sub>ij</sub> = &alpha;/a<sub>ij</sub>
+     * </p>
+     *
+     * @param alpha The numerator.
+     * @param a The matrix whose elements are the divisor. Not modified.
+     * @param b Where the results are stored. Modified.
+     */
+    public static void divide(float alpha, FMatrixD1 a, FMatrixD1 b) {
+        b.reshape(a.numRows, a.numCols);
+
+        final int size = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataB[i] = alpha / dataA[i];
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Performs an element by element scalar division with the scalar on
+     * botton.<br>
+     * <br>
+     * b<sub>ij</sub> = a<sub>ij</sub> /&alpha;
+     * </p>
+     *
+     * @param a The matrix whose elements are to be divided. Not modified.
+     * @param alpha the amount each element is divided by.
+     * @param b Where the results are stored. Modified.
+     */
+    public static void divide(FMatrixD1 a, float alpha, FMatrixD1 b) {
+        b.reshape(a.numRows, a.numCols);
+
+        final int size = a.getNumElements();
+
+        final float[] dataA = a.data;
+        final float[] dataB = b.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataB[i] = dataA[i] / alpha;
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Changes the sign of every element in the matrix.<br>
+     * <br>
+     * a<sub>ij</sub> = -a<sub>ij</sub>
+     * </p>
+     *
+     * @param a A matrix. Modified.
+     */
+    public static void changeSign(FMatrixD1 a) {
+        final int size = a.getNumElements();
+
+        final float[] dataA = a.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataA[i] = -dataA[i];
+            }
+        });
+
+    }
+
+    /**
+     * <p>
+     * Changes the sign of every element in the matrix.<br>
+     * <br>
+     * output<sub>ij</sub> = -input<sub>ij</sub>
+     * </p>
+     *
+     * @param input A matrix. Modified.
+     */
+    public static void changeSign(FMatrixD1 input, FMatrixD1 output) {
+        output.reshape(input.numRows, input.numCols);
+
+        final int size = input.getNumElements();
+
+        final float[] dataInput = input.data;
+        final float[] dataOutput = output.data;
+        forChunks(size, (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = -dataInput[i];
+            }
+        });
+
+    }
+    
+    /**
+     * <p>
+     * Returns the value of the element in the matrix that has the largest value.<br>
+     * <br>
+     * Max{ a<sub>ij</sub> } for all i and j<br>
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @return The max element value of the matrix.
+     */
+    public static float elementMax(FMatrixD1 a) {
+        final float[] data = a.data;
+        return (float) reduce(a.getNumElements(), (start, end) -> {
+            float max = -Float.MAX_VALUE;
+            for (int i = start; i < end; i++) {
+                float val = data[i];
+                if (val >= max) {
+                    max = val;
+                }
+            }
+            return max;
+        }, Math::max);
+    }
+
+    /**
+     * <p>
+     * Returns the absolute value of the element in the matrix that has the largest absolute value.<br>
+     * <br>
+     * Max{ |a<sub>ij</sub>| } for all i and j<br>
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @return The max abs element value of the matrix.
+     */
+    public static float elementMaxAbs(FMatrixD1 a) {
+        final float[] data = a.data;
+        return (float) reduce(a.getNumElements(), (start, end) -> {
+            float max = 0;
+            for (int i = start; i < end; i++) {
+                float val = Math.abs(data[i]);
+                if (val > max) {
+                    max = val;
+                }
+            }
+            return max;
+        }, Math::max);
+    }
+
+    /**
+     * <p>
+     * Returns the value of the element in the matrix that has the minimum value.<br>
+     * <br>
+     * Min{ a<sub>ij</sub> } for all i and j<br>
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @return The value of element in the matrix with the minimum value.
+     */
+    public static float elementMin(FMatrixD1 a) {
+        final float[] data = a.data;
+        return (float) reduce(a.getNumElements(), (start, end) -> {
+            float min = Float.MAX_VALUE;
+            for (int i = start; i < end; i++) {
+                float val = data[i];
+                if (val < min) {
+                    min = val;
+                }
+            }
+            return min;
+        }, Math::min);
+    }
+
+    /**
+     * <p>
+     * Returns the absolute value of the element in the matrix that has the smallest absolute value.<br>
+     * <br>
+     * Min{ |a<sub>ij</sub>| } for all i and j<br>
+     * </p>
+     *
+     * @param a A matrix. Not modified.
+     * @return The max element value of the matrix.
+     */
+    public static float elementMinAbs(FMatrixD1 a) {
+        final float[] data = a.data;
+        return (float) reduce(a.getNumElements(), (start, end) -> {
+            float min = Float.MAX_VALUE;
+            for (int i = start; i < end; i++) {
+                float val = Math.abs(data[i]);
+                if (val < min) {
+                    min = val;
+                }
+            }
+            return min;
+        }, Math::min);
+    }
+
+    /**
+     * <p>
+     * Computes the sum of all the elements in the matrix:<br>
+     * <br>
+     * sum(i=1:m , j=1:n ; a<sub>ij</sub>)
+     * <p>
+     * <p>
+     * The elements are added in blocks of fixed size and the blocks are added
+     * in order, so the result is the same for any number of workers.
+     * </p>
+     *
+     * @param mat An m by n matrix. Not modified.
+     * @return The sum of the elements.
+     */
+    public static float elementSum(FMatrixD1 mat) {
+        final float[] data = mat.data;
+        return (float) reduce(mat.getNumElements(), (start, end) -> {
+            double total = 0;
+            for (int i = start; i < end; i++) {
+                total += data[i];
+            }
+            return total;
+        }, Double::sum);
+    }
+
+    /**
+     * <p>
+     * Computes the sum of the absolute value all the elements in the
+     * matrix:<br>
+     * <br>
+     * sum(i=1:m , j=1:n ; |a<sub>ij</sub>|)
+     * <p>
+     * <p>
+     * Reproducible for any number of workers, see {@link #elementSum}.
+     * </p>
+     *
+     * @param mat An m by n matrix. Not modified.
+     * @return The sum of the absolute value of each element.
+     */
+    public static float elementSumAbs(FMatrixD1 mat) {
+        final float[] data = mat.data;
+        return (float) reduce(mat.getNumElements(), (start, end) -> {
+            double total = 0;
+            for (int i = start; i < end; i++) {
+                total += Math.abs(data[i]);
+            }
+            return total;
+        }, Double::sum);
+    }
+
+    /**
+     * <p>
+     * Computes the sum of each row in the input matrix and returns the results
+     * in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = sum(i=1:n ; a<sub>ji</sub>)
+     * </p>
+     * <p>
+     * Each row is added in order by a single task, so the result does not
+     * depend on the number of workers.
+     * </p>
+     *
+     * @param input INput matrix whose rows are summed.
+     * @param output Optional storage for output. Reshaped into a column.
+     * Modified.
+     * @return Vector containing the sum of each row in the input.
+     */
+    public static FMatrixRMaj sumRows(FMatrixRMaj input, FMatrixRMaj output) {
+        if (output == null) {
+            output = new FMatrixRMaj(input.numRows, 1);
+        } else {
+            output.reshape(input.numRows, 1);
+        }
+        final float[] in = input.data;
+        final float[] out = output.data;
+        final int cols = input.numCols;
+        forRows(input.numRows, cols, (start, end) -> {
+            for (int row = start; row < end; row++) {
+                float total = 0;
+                int index = row * cols;
+                int last = index + cols;
+                for (; index < last; index++) {
+                    total += in[index];
+                }
+                out[row] = total;
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Finds the element with the minimum value along each row in the input
+     * matrix and returns the results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = min(i=1:n ; a<sub>ji</sub>)
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a column.
+     * Modified.
+     * @return Vector containing the sum of each row in the input.
+     */
+    public static FMatrixRMaj minRows(FMatrixRMaj input, FMatrixRMaj output) {
+        if (output == null) {
+            output = new FMatrixRMaj(input.numRows, 1);
+        } else {
+            output.reshape(input.numRows, 1);
+        }
+        final float[] in = input.data;
+        final float[] out = output.data;
+        final int cols = input.numCols;
+        forRows(input.numRows, cols, (start, end) -> {
+            for (int row = start; row < end; row++) {
+                float min = Float.MAX_VALUE;
+                int index = row * cols;
+                int last = index + cols;
+                for (; index < last; index++) {
+                    float v = in[index];
+                    if (v < min) {
+                        min = v;
+                    }
+                }
+                out[row] = min;
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Finds the element with the maximum value along each row in the input
+     * matrix and returns the results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = max(i=1:n ; a<sub>ji</sub>)
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a column.
+     * Modified.
+     * @return Vector containing the sum of each row in the input.
+     */
+    public static FMatrixRMaj maxRows(FMatrixRMaj input, FMatrixRMaj output) {
+        if (output == null) {
+            output = new FMatrixRMaj(input.numRows, 1);
+        } else {
+            output.reshape(input.numRows, 1);
+        }
+        final float[] in = input.data;
+        final float[] out = output.data;
+        final int cols = input.numCols;
+        forRows(input.numRows, cols, (start, end) -> {
+            for (int row = start; row < end; row++) {
+                float max = -Float.MAX_VALUE;
+                int index = row * cols;
+                int last = index + cols;
+                for (; index < last; index++) {
+                    float v = in[index];
+                    if (v > max) {
+                        max = v;
+                    }
+                }
+                out[row] = max;
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Computes the sum of each column in the input matrix and returns the
+     * results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = min(i=1:m ; a<sub>ij</sub>)
+     * </p>
+     * <p>
+     * The columns are split among the tasks and every task walks its columns
+     * row by row, so each column is added in order by a single task and the
+     * result does not depend on the number of workers.
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a row vector.
+     * Modified.
+     * @return Vector containing the sum of each column
+     */
+    public static FMatrixRMaj sumCols(FMatrixRMaj input, FMatrixRMaj output) {
+        if (output == null) {
+            output = new FMatrixRMaj(1, input.numCols);
+        } else {
+            output.reshape(1, input.numCols);
+        }
+        final float[] in = input.data;
+        final float[] out = output.data;
+        final int rows = input.numRows;
+        final int cols = input.numCols;
+        forRows(cols, rows, (start, end) -> {
+            for (int col = start; col < end; col++) {
+                out[col] = 0;
+            }
+            for (int row = 0; row < rows; row++) {
+                int index = row * cols;
+                for (int col = start; col < end; col++) {
+                    out[col] += in[index + col];
+                }
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Finds the element with the minimum value along column in the input matrix
+     * and returns the results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = min(i=1:m ; a<sub>ij</sub>)
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a row vector.
+     * Modified.
+     * @return Vector containing the minimum of each column
+     */
+    public static FMatrixRMaj minCols(FMatrixRMaj input, FMatrixRMaj output) {
+        if (output == null) {
+            output = new FMatrixRMaj(1, input.numCols);
+        } else {
+            output.reshape(1, input.numCols);
+        }
+        final float[] in = input.data;
+        final float[] out = output.data;
+        final int rows = input.numRows;
+        final int cols = input.numCols;
+        forRows(cols, rows, (start, end) -> {
+            for (int col = start; col < end; col++) {
+                out[col] = Float.MAX_VALUE;
+            }
+            for (int row = 0; row < rows; row++) {
+                int index = row * cols;
+                for (int col = start; col < end; col++) {
+                    out[col] = Math.min(out[col], in[index + col]);
+                }
+            }
+        });
+        return output;
+    }
+
+    /**
+     * <p>
+     * Finds the element with the minimum value along column in the input matrix
+     * and returns the results in a vector:<br>
+     * <br>
+     * b<sub>j</sub> = min(i=1:m ; a<sub>ij</sub>)
+     * </p>
+     *
+     * @param input Input matrix
+     * @param output Optional storage for output. Reshaped into a row vector.
+     * Modified.
+     * @return Vector containing the maximum of each column
+     */
+    public static FMatrixRMaj maxCols(FMatrixRMaj input, FMatrixRMaj output) {
+        if (output == null) {
+            output = new FMatrixRMaj(1, input.numCols);
+        } else {
+            output.reshape(1, input.numCols);
+        }
+        final float[] in = input.data;
+        final float[] out = output.data;
+        final int rows = input.numRows;
+        final int cols = input.numCols;
+        forRows(cols, rows, (start, end) -> {
+            for (int col = start; col < end; col++) {
+                out[col] = -Float.MAX_VALUE;
+            }
+            for (int row = 0; row < rows; row++) {
+                int index = row * cols;
+                for (int col = start; col < end; col++) {
+                    out[col] = Math.max(out[col], in[index + col]);
+                }
+            }
+        });
+        return output;
+    }
+
+    
+
+    /**
+     * Applies the &lt; operator to each element in A. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementLessThan(FMatrixRMaj A, float value, BMatrixRMaj output) {
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final float[] dataA = A.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] < value;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &le; operator to each element in A. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementLessThanOrEqual(FMatrixRMaj A, float value, BMatrixRMaj output) {
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final float[] dataA = A.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] <= value;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &gt; operator to each element in A. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementMoreThan(FMatrixRMaj A, float value, BMatrixRMaj output) {
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final float[] dataA = A.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] > value;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &ge; operator to each element in A. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementMoreThanOrEqual(FMatrixRMaj A, float value, BMatrixRMaj output) {
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final float[] dataA = A.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] >= value;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the A &lt; B operator to each element. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param B Input matrix
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementLessThan(FMatrixRMaj A, FMatrixRMaj B, BMatrixRMaj output) {
+        if (A.numRows != B.numRows || A.numCols != B.numCols) {
+            throw new MatrixDimensionException("Input matrices must have the same shape");
+        }
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final float[] dataA = A.data;
+        final float[] dataB = B.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] < dataB[i];
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the A &le; B operator to each element. Results are stored in a
+     * boolean matrix.
+     *
+     * @param A Input matrix
+     * @param B Input matrix
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Boolean matrix with results
+     */
+    public static BMatrixRMaj elementLessThanOrEqual(FMatrixRMaj A, FMatrixRMaj B, BMatrixRMaj output) {
+        if (A.numRows != B.numRows || A.numCols != B.numCols) {
+            throw new MatrixDimensionException("Input matrices must have the same shape");
+        }
+        if (output == null) {
+            output = new BMatrixRMaj(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final float[] dataA = A.data;
+        final float[] dataB = B.data;
+        final boolean[] dataOutput = output.data;
+        forChunks(A.getNumElements(), (start, end) -> {
+            for (int i = start; i < end; i++) {
+                dataOutput[i] = dataA[i] <= dataB[i];
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Returns a row matrix which contains all the elements in A which are
+     * flagged as true in 'marked'
+     * <p>
+     * Every task counts the marked elements of its block, the offsets of the
+     * blocks are added in order and then every task copies its elements, so
+     * they keep the order of A.
+     * </p>
+     *
+     * @param A Input matrix
+     * @param marked Input matrix marking elements in A
+     * @param output Storage for output row vector. Can be null. Will be
+     * reshaped.
+     * @return Row vector with marked elements
+     */
+    public static FMatrixRMaj elements(FMatrixRMaj A, BMatrixRMaj marked, FMatrixRMaj output) {
+        if (A.numRows != marked.numRows || A.numCols != marked.numCols) {
+            throw new MatrixDimensionException("Input matrices must have the same shape");
+        }
+        if (output == null) {
+            output = new FMatrixRMaj(1, 1);
+        }
+
+        final int size = A.getNumElements();
+        final int blocks = (size + REDUCE_BLOCK - 1) / REDUCE_BLOCK;
+        final boolean[] flags = marked.data;
+        final int[] offsets = new int[blocks + 1];
+        forRows(blocks, REDUCE_BLOCK, (start, end) -> {
+            for (int b = start; b < end; b++) {
+                int count = 0;
+                int last = Math.min(size, (b + 1) * REDUCE_BLOCK);
+                for (int i = b * REDUCE_BLOCK; i < last; i++) {
+                    if (flags[i]) {
+                        count++;
+                    }
+                }
+                offsets[b + 1] = count;
+            }
+        });
+        for (int b = 0; b < blocks; b++) {
+            offsets[b + 1] += offsets[b];
+        }
+
+        output.reshape(offsets[blocks], 1);
+
+        final float[] dataA = A.data;
+        final float[] dataOutput = output.data;
+        forRows(blocks, REDUCE_BLOCK, (start, end) -> {
+            for (int b = start; b < end; b++) {
+                int index = offsets[b];
+                int last = Math.min(size, (b + 1) * REDUCE_BLOCK);
+                for (int i = b * REDUCE_BLOCK; i < last; i++) {
+                    if (flags[i]) {
+                        dataOutput[index++] = dataA[i];
+                    }
+                }
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Counts the number of elements in A which are true
+     *
+     * @param A input matrix
+     * @return number of true elements
+     */
+    public static int countTrue(BMatrixRMaj A) {
+        final boolean[] data = A.data;
+        return (int) reduce(A.getNumElements(), (start, end) -> {
+            int total = 0;
+            for (int i = start; i < end; i++) {
+                if (data[i]) {
+                    total++;
+                }
+            }
+            return total;
+        }, Double::sum);
+    }
+
+    /**
+     * Applies the &lt; operator to each element in A. Results are stored in a
+     * packed mask.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Mask with results
+     */
+    public static BitMask elementLessThan(FMatrixRMaj A, float value, BitMask output) {
+        if (output == null) {
+            output = new BitMask(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final float[] dataA = A.data;
+        final long[] words = output.data;
+        final int size = A.getNumElements();
+        forRows(BitMask.words(size), 64, (start, end) -> {
+            for (int w = start; w < end; w++) {
+                int first = w << 6;
+                int last = Math.min(size, first + 64);
+                long word = 0;
+                for (int i = first; i < last; i++) {
+                    if (dataA[i] < value) {
+                        word |= 1L << i;
+                    }
+                }
+                words[w] = word;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &gt; operator to each element in A. Results are stored in a
+     * packed mask.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Mask with results
+     */
+    public static BitMask elementMoreThan(FMatrixRMaj A, float value, BitMask output) {
+        if (output == null) {
+            output = new BitMask(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final float[] dataA = A.data;
+        final long[] words = output.data;
+        final int size = A.getNumElements();
+        forRows(BitMask.words(size), 64, (start, end) -> {
+            for (int w = start; w < end; w++) {
+                int first = w << 6;
+                int last = Math.min(size, first + 64);
+                long word = 0;
+                for (int i = first; i < last; i++) {
+                    if (dataA[i] > value) {
+                        word |= 1L << i;
+                    }
+                }
+                words[w] = word;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Applies the &ge; operator to each element in A. Results are stored in a
+     * packed mask.
+     *
+     * @param A Input matrix
+     * @param value value each element is compared against
+     * @param output (Optional) Storage for results. Can be null. Is reshaped.
+     * @return Mask with results
+     */
+    public static BitMask elementMoreThanOrEqual(FMatrixRMaj A, float value, BitMask output) {
+        if (output == null) {
+            output = new BitMask(A.numRows, A.numCols);
+        }
+
+        output.reshape(A.numRows, A.numCols);
+
+        final float[] dataA = A.data;
+        final long[] words = output.data;
+        final int size = A.getNumElements();
+        forRows(BitMask.words(size), 64, (start, end) -> {
+            for (int w = start; w < end; w++) {
+                int first = w << 6;
+                int last = Math.min(size, first + 64);
+                long word = 0;
+                for (int i = first; i < last; i++) {
+                    if (dataA[i] >= value) {
+                        word |= 1L << i;
+                    }
+                }
+                words[w] = word;
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Counts the number of elements in A which are true
+     *
+     * @param A input mask
+     * @return number of true elements
+     */
+    public static int countTrue(BitMask A) {
+        final long[] words = A.data;
+        return (int) reduce(BitMask.words(A.getNumElements()), (start, end) -> {
+            int total = 0;
+            for (int w = start; w < end; w++) {
+                total += Long.bitCount(words[w]);
+            }
+            return total;
+        }, Double::sum);
+    }
+
+    /**
+     * <p>
+     * Applies a mask in place, scaling the elements that are kept:<br>
+     * <br>
+     * a<sub>ij</sub> = mask<sub>ij</sub> ? &alpha; * a<sub>ij</sub> : 0
+     * </p>
+     * <p>
+     * With &alpha; = 1 and the mask of z &gt; 0 it is the derivative of ReLU,
+     * with &alpha; = 1 / (1 - p) it is an inverted dropout.
+     * </p>
+     *
+     * @param a A matrix. Modified.
+     * @param mask Which elements are kept. Not modified.
+     * @param alpha the amount each kept element is multiplied by.
+     */
+    public static void elementMult(FMatrixD1 a, BitMask mask, float alpha) {
+        if (a.numCols != mask.numCols || a.numRows != mask.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'mask' matrices do not have compatible dimensions");
+        }
+
+        final float[] dataA = a.data;
+        final long[] words = mask.data;
+        final int size = a.getNumElements();
+        forRows(BitMask.words(size), 64, (start, end) -> {
+            for (int w = start; w < end; w++) {
+                long word = words[w];
+                int first = w << 6;
+                int last = Math.min(size, first + 64);
+                for (int i = first; i < last; i++) {
+                    dataA[i] = (word & (1L << i)) != 0 ? dataA[i] * alpha : 0;
+                }
+            }
+        });
+    }
+
+}
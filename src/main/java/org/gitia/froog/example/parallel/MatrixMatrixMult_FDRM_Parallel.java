@@ -0,0 +1,680 @@
+package org.gitia.froog.example.parallel;
+
+import org.ejml.MatrixDimensionException;
+import org.ejml.data.FMatrix1Row;
+import org.ejml.dense.row.CommonOps_FDRM;
+
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Single precision version of {@link MatrixMatrixMult_DDRM_Parallel}. The
+ * blocks are the same, so a packed panel takes half the cache.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MatrixMatrixMult_FDRM_Parallel {
+
+    // register tile computed by the micro kernel of mult_blocked
+    private static final int MR = 4;
+    private static final int NR = 4;
+    // slice of the inner dimension packed at once (a KC x NR panel of 'b' fits in L1)
+    private static final int KC = 256;
+    // rows of 'a' swept over one packed panel of 'b' (MC x KC of 'a' stays in L2)
+    private static final int MC = 128;
+    // upper bound on the columns of 'b' packed by a single task
+    private static final int NC = 1024;
+    // floats of 'c' a task of multAddBias keeps to activate in cache (256 KB)
+    private static final int L2_FLOATS = 64 * 1024;
+    // packed panels of 'b' and border tile of each thread, reused by every product
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    public static void mult_reorder(FMatrix1Row a, FMatrix1Row b, FMatrix1Row c) {
+        if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numCols != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numRows, b.numCols);
+
+        if (a.numCols == 0 || a.numRows == 0) {
+            CommonOps_FDRM.fill(c, 0);
+            return;
+        }
+        //float valA;
+        //int indexCbase = 0;
+        int endOfKLoop = b.numRows * b.numCols;
+
+        ParallelContext.current().forEach(a.numRows, i -> {
+            int indexCbase = i * c.numCols;
+            float valA;
+            int indexA = i * a.numCols;
+            // need to assign c.data to a value initially
+            int indexB = 0;
+            int indexC = indexCbase;
+            int end = indexB + b.numCols;
+
+            valA = a.get(indexA++);
+            while (indexB < end) {
+                c.set(indexC++, valA * b.get(indexB++));
+            }
+
+            // now add to it
+            while (indexB != endOfKLoop) { // k loop
+                indexC = indexCbase;
+                end = indexB + b.numCols;
+                valA = a.get(indexA++);
+                while (indexB < end) { // j loop
+                    c.plus(indexC++, valA * b.get(indexB++));
+                }
+            }
+        });
+    }
+
+    /**
+     * @see CommonOps_FDRM#mult( org.ejml.data.FMatrix1Row,
+     * org.ejml.data.FMatrix1Row, org.ejml.data.FMatrix1Row)
+     */
+    public static void mult_small(FMatrix1Row a, FMatrix1Row b, FMatrix1Row c) {
+        if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numCols != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numRows, b.numCols);
+
+        ParallelContext.current().forEach(a.numRows, i -> {
+            int index = i * b.numRows;
+            int cIndex = i * b.numCols;
+            for (int j = 0; j < b.numCols; j++) {
+                int indexA = index;
+                float total = 0;
+                int indexB = j;
+                int end = indexA + b.numRows;
+                while (indexA < end) {
+                    total += a.get(indexA++) * b.get(indexB);
+                    indexB += b.numCols;
+                }
+                c.set(cIndex++, total);
+            }
+        });
+
+    }
+
+    /**
+     * @see CommonOps_FDRM#multTransA( org.ejml.data.FMatrix1Row,
+     * org.ejml.data.FMatrix1Row, org.ejml.data.FMatrix1Row)
+     */
+    public static void multTransA_reorder(FMatrix1Row a, FMatrix1Row b, FMatrix1Row c) {
+        if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numRows != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numCols, b.numCols);
+
+        if (a.numCols == 0 || a.numRows == 0) {
+            CommonOps_FDRM.fill(c, 0);
+            return;
+        }
+
+        ParallelContext.current().forEach(a.numCols, i -> {
+            int indexC_start = i * c.numCols;
+
+            // first assign R
+            float valA = a.get(i);
+            int indexB = 0;
+            int end = indexB + b.numCols;
+            int indexC = indexC_start;
+            while (indexB < end) {
+                c.set(indexC++, valA * b.get(indexB++));
+            }
+            // now increment it
+            for (int k = 1; k < a.numRows; k++) {
+                valA = a.unsafe_get(k, i);
+                end = indexB + b.numCols;
+                indexC = indexC_start;
+                // this is the loop for j
+                while (indexB < end) {
+                    c.plus(indexC++, valA * b.get(indexB++));
+                }
+            }
+        });
+    }
+
+    /**
+     * @see CommonOps_FDRM#multAdd( org.ejml.data.FMatrix1Row,
+     * org.ejml.data.FMatrix1Row, org.ejml.data.FMatrix1Row)
+     */
+    public static void multAdd_reorder(FMatrix1Row a, FMatrix1Row b, FMatrix1Row c) {
+        if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numCols != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+
+        c.reshape(a.numRows, b.numCols);
+
+        if (a.numCols == 0 || a.numRows == 0) {
+            return;
+        }
+
+        int endOfKLoop = b.numRows * b.numCols;
+
+        ParallelContext.current().forEach(a.numRows, i -> {
+            int indexA = i * a.numCols;
+            // need to assign c.data to a value initially
+            int indexB = 0;
+            int cStart = i * c.numCols;
+            int indexC = cStart;
+            int end = indexB + b.numCols;
+
+            float valA = a.get(indexA++);
+
+            while (indexB < end) {
+                c.plus(indexC++, valA * b.get(indexB++));
+            }
+
+            //indexC = cStart;
+            // now add to it
+            while (indexB != endOfKLoop) { // k loop
+                indexC = cStart;
+                end = indexB + b.numCols;
+
+                valA = a.get(indexA++);
+
+                while (indexB < end) { // j loop
+                    c.plus(indexC++, valA * b.get(indexB++));
+                }
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Cache-blocked version of {@link #mult_reorder}:<br>
+     * <br>
+     * c = a * b
+     * </p>
+     * <p>
+     * The inner dimension is processed in slices of KC. For every slice the
+     * rows of 'a' are packed into MR-tall micro panels, then the columns of 'b'
+     * are split among the tasks. Each task packs its own block of 'b' into
+     * NR-wide micro panels and computes the MR x NR tiles of 'c' in registers,
+     * so the tasks never write the same element of 'c'.
+     * </p>
+     *
+     * @see CommonOps_FDRM#mult( org.ejml.data.FMatrix1Row,
+     * org.ejml.data.FMatrix1Row, org.ejml.data.FMatrix1Row)
+     */
+    public static void mult_blocked(FMatrix1Row a, FMatrix1Row b, FMatrix1Row c) {
+        if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numCols != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numRows, b.numCols);
+
+        if (a.numCols == 0 || a.numRows == 0) {
+            CommonOps_FDRM.fill(c, 0);
+            return;
+        }
+
+        blocked(a, false, b, false, c, false, null, null);
+    }
+
+    /**
+     * <p>
+     * c = a * b<sup>T</sup>
+     * </p>
+     * <p>
+     * Blocked like {@link #mult_blocked}; the transposed panels of 'b' are read
+     * straight from its row-major storage while packing.
+     * </p>
+     *
+     * @see CommonOps_FDRM#multTransB( org.ejml.data.FMatrix1Row,
+     * org.ejml.data.FMatrix1Row, org.ejml.data.FMatrix1Row)
+     */
+    public static void multTransB_reorder(FMatrix1Row a, FMatrix1Row b, FMatrix1Row c) {
+        if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numCols != b.numCols) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numRows, b.numRows);
+
+        if (a.numCols == 0 || a.numRows == 0) {
+            CommonOps_FDRM.fill(c, 0);
+            return;
+        }
+
+        blocked(a, false, b, true, c, false, null, null);
+    }
+
+    /**
+     * <p>
+     * c = a<sup>T</sup> * b<sup>T</sup>
+     * </p>
+     * <p>
+     * Blocked like {@link #mult_blocked}; both transposes are taken while
+     * packing.
+     * </p>
+     *
+     * @see CommonOps_FDRM#multTransAB( org.ejml.data.FMatrix1Row,
+     * org.ejml.data.FMatrix1Row, org.ejml.data.FMatrix1Row)
+     */
+    public static void multTransAB_reorder(FMatrix1Row a, FMatrix1Row b, FMatrix1Row c) {
+        if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numRows != b.numCols) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numCols, b.numRows);
+
+        if (a.numCols == 0 || a.numRows == 0) {
+            CommonOps_FDRM.fill(c, 0);
+            return;
+        }
+
+        blocked(a, true, b, true, c, false, null, null);
+    }
+
+    /**
+     * <p>
+     * c = c + a * b<sup>T</sup>
+     * </p>
+     *
+     * @see CommonOps_FDRM#multAddTransB( org.ejml.data.FMatrix1Row,
+     * org.ejml.data.FMatrix1Row, org.ejml.data.FMatrix1Row)
+     */
+    public static void multAddTransB_reorder(FMatrix1Row a, FMatrix1Row b, FMatrix1Row c) {
+        if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numCols != b.numCols) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numRows, b.numRows);
+
+        if (a.numCols == 0 || a.numRows == 0) {
+            return;
+        }
+
+        blocked(a, false, b, true, c, true, null, null);
+    }
+
+    /**
+     * <p>
+     * c = c + a<sup>T</sup> * b<sup>T</sup>
+     * </p>
+     *
+     * @see CommonOps_FDRM#multAddTransAB( org.ejml.data.FMatrix1Row,
+     * org.ejml.data.FMatrix1Row, org.ejml.data.FMatrix1Row)
+     */
+    public static void multAddTransAB_reorder(FMatrix1Row a, FMatrix1Row b, FMatrix1Row c) {
+        if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numRows != b.numCols) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        }
+        c.reshape(a.numCols, b.numRows);
+
+        if (a.numCols == 0 || a.numRows == 0) {
+            return;
+        }
+
+        blocked(a, true, b, true, c, true, null, null);
+    }
+
+    /**
+     * <p>
+     * Fused forward pass of a layer:<br>
+     * <br>
+     * c = f(a * b + bias)
+     * </p>
+     * <p>
+     * 'bias' is added to every column and 'function' is applied by each task
+     * to its block of columns as soon as the block is complete, while it is
+     * still in cache, instead of making two more passes over 'c'. The blocks
+     * are narrowed so every one of them fits in L2.
+     * </p>
+     *
+     * @param a weights, [neurons x inputs]. Not modified.
+     * @param b input, a column is a register. Not modified.
+     * @param bias column vector with one value per neuron. Not modified.
+     * @param function transfer function applied to the result,
+     * {@link TransferFunction_FDRM#PURELIM} for none. Not null.
+     * @param c Where the results of the operation are stored. Modified.
+     */
+    public static void multAddBias(FMatrix1Row a, FMatrix1Row b, FMatrix1Row bias,
+            TransferFunction_FDRM function, FMatrix1Row c) {
+        if (function == null) {
+            throw new IllegalArgumentException("'function' can not be null, use TransferFunction_FDRM.PURELIM");
+        } else if (a == c || b == c) {
+            throw new IllegalArgumentException("Neither 'a' or 'b' can be the same matrix as 'c'");
+        } else if (a.numCols != b.numRows) {
+            throw new MatrixDimensionException("The 'a' and 'b' matrices do not have compatible dimensions");
+        } else if (bias.numRows != a.numRows || bias.numCols != 1) {
+            throw new MatrixDimensionException("'bias' must be a column vector with one value for each row of 'a'");
+        }
+        c.reshape(a.numRows, b.numCols);
+
+        if (a.numCols == 0 || a.numRows == 0) {
+            CommonOps_FDRM.fill(c, 0);
+            addBias(bias, c, 0, c.numCols);
+            function.apply(c, 0, c.numCols);
+            return;
+        }
+
+        blocked(a, false, b, false, c, false, bias, function);
+    }
+
+    /**
+     * Blocked product shared by the kernels above. 'transA' and 'transB' tell
+     * how 'a' and 'b' are read while packing, 'add' accumulates the result
+     * into 'c' instead of overwriting it. 'function' is null only for the
+     * plain products; otherwise 'bias' and 'function' are applied to each
+     * block of columns after its last slice. 'c' must already have its final shape and 'a' and 'b' must not
+     * be empty.
+     */
+    private static void blocked(FMatrix1Row a, boolean transA, FMatrix1Row b, boolean transB,
+            FMatrix1Row c, boolean add, FMatrix1Row bias, TransferFunction_FDRM function) {
+        final int m = c.numRows;
+        final int n = c.numCols;
+        final int k = transA ? a.numRows : a.numCols;
+        final int mPanels = (m + MR - 1) / MR;
+        final int nc = function == null
+                ? columnsPerTask(n, NC)
+                : columnsPerTask(n, Math.max(NR, L2_FLOATS / m));
+        final int tasks = (n + nc - 1) / nc;
+        final float[] aPack = new float[mPanels * MR * Math.min(KC, k)];
+
+        final ParallelContext context = ParallelContext.current();
+        for (int pc = 0; pc < k; pc += KC) {
+            final int p0 = pc;
+            final int kc = Math.min(KC, k - pc);
+            final boolean first = pc == 0 && !add;
+
+            context.forEach(mPanels, ip -> {
+                packA(a, transA, m, ip * MR, p0, kc, aPack, ip * MR * kc);
+            });
+
+            context.forEach(tasks, t -> {
+                int j0 = t * nc;
+                int cols = Math.min(nc, n - j0);
+                int nPanels = (cols + NR - 1) / NR;
+                Buffers buffers = BUFFERS.get();
+                float[] bPack = buffers.pack(nPanels * NR * kc);
+                packB(b, transB, p0, kc, j0, cols, bPack);
+
+                for (int ic = 0; ic < m; ic += MC) {
+                    int iEnd = Math.min(m, ic + MC);
+                    for (int jp = 0; jp < nPanels; jp++) {
+                        int j = jp * NR;
+                        for (int i = ic; i < iEnd; i += MR) {
+                            kernel(kc, aPack, i * kc, bPack, j * kc, c, i, j0 + j,
+                                    Math.min(MR, m - i), Math.min(NR, cols - j), first, buffers.tile);
+                        }
+                    }
+                }
+
+                if (function != null && p0 + kc == k) {
+                    addBias(bias, c, j0, cols);
+                    function.apply(c, j0, cols);
+                }
+            });
+        }
+    }
+
+    /**
+     * c[i, j0:j0+cols] += bias[i] for every row i.
+     */
+    private static void addBias(FMatrix1Row bias, FMatrix1Row c, int j0, int cols) {
+        for (int i = 0; i < c.numRows; i++) {
+            float value = bias.data[i];
+            int index = i * c.numCols + j0;
+            int end = index + cols;
+            for (; index < end; index++) {
+                c.data[index] += value;
+            }
+        }
+    }
+
+    /**
+     * Width of the block of columns of 'c' handled by each task of
+     * {@link #blocked}. Wide enough to amortize the packing, narrow
+     * enough to give every worker a few tasks to balance the load, and never
+     * more than 'max'.
+     */
+    private static int columnsPerTask(int n, int max) {
+        int workers = ParallelContext.current().getParallelism();
+        int nc = (n + 2 * workers - 1) / (2 * workers);
+        nc = Math.max(NR, Math.min(max, nc));
+        return (nc + NR - 1) / NR * NR;
+    }
+
+    /**
+     * Copies rows i0:i0+MR and columns p0:p0+kc of 'a' (or of a<sup>T</sup>
+     * when 'trans' is set) in column order into an MR-tall micro panel,
+     * padding the rows beyond 'm' with zeros.
+     */
+    private static void packA(FMatrix1Row a, boolean trans, int m, int i0, int p0, int kc,
+            float[] pack, int offset) {
+        int rows = Math.min(MR, m - i0);
+        if (trans) {
+            // a row of 'a' holds one column of the panel: MR contiguous values
+            int index = offset;
+            for (int p = 0; p < kc; p++) {
+                int indexA = (p0 + p) * a.numCols + i0;
+                int r = 0;
+                for (; r < rows; r++) {
+                    pack[index++] = a.data[indexA + r];
+                }
+                for (; r < MR; r++) {
+                    pack[index++] = 0;
+                }
+            }
+            return;
+        }
+        for (int r = 0; r < MR; r++) {
+            int index = offset + r;
+            if (r < rows) {
+                int indexA = (i0 + r) * a.numCols + p0;
+                for (int p = 0; p < kc; p++, index += MR) {
+                    pack[index] = a.data[indexA + p];
+                }
+            } else {
+                for (int p = 0; p < kc; p++, index += MR) {
+                    pack[index] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies rows p0:p0+kc and columns j0:j0+cols of 'b' (or of b<sup>T</sup>
+     * when 'trans' is set) into consecutive NR-wide micro panels, padding the
+     * columns beyond 'cols' with zeros.
+     */
+    private static void packB(FMatrix1Row b, boolean trans, int p0, int kc, int j0, int cols,
+            float[] pack) {
+        for (int j = 0; j < cols; j += NR) {
+            int width = Math.min(NR, cols - j);
+            int index = j * kc;
+            if (trans) {
+                // a row of 'b' holds one column of the panel: walk it contiguously
+                for (int w = 0; w < NR; w++) {
+                    int indexP = index + w;
+                    if (w < width) {
+                        int indexB = (j0 + j + w) * b.numCols + p0;
+                        for (int p = 0; p < kc; p++, indexP += NR) {
+                            pack[indexP] = b.data[indexB + p];
+                        }
+                    } else {
+                        for (int p = 0; p < kc; p++, indexP += NR) {
+                            pack[indexP] = 0;
+                        }
+                    }
+                }
+                continue;
+            }
+            for (int p = 0; p < kc; p++) {
+                int indexB = (p0 + p) * b.numCols + j0 + j;
+                int w = 0;
+                for (; w < width; w++) {
+                    pack[index++] = b.data[indexB + w];
+                }
+                for (; w < NR; w++) {
+                    pack[index++] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the MR x NR tile c[i:i+MR, j:j+NR] from one packed panel of 'a'
+     * and one packed panel of 'b'. The tile is overwritten when 'first' is set
+     * and accumulated otherwise.
+     */
+    private static void kernel(int kc, float[] aPack, int indexA, float[] bPack, int indexB,
+            FMatrix1Row c, int i, int j, int rows, int cols, boolean first, float[] tile) {
+        float c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        float c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        float c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        float c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+        for (int p = 0; p < kc; p++) {
+            float b0 = bPack[indexB];
+            float b1 = bPack[indexB + 1];
+            float b2 = bPack[indexB + 2];
+            float b3 = bPack[indexB + 3];
+            float a0 = aPack[indexA];
+            float a1 = aPack[indexA + 1];
+            float a2 = aPack[indexA + 2];
+            float a3 = aPack[indexA + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+            indexA += MR;
+            indexB += NR;
+        }
+
+        float[] data = c.data;
+        int stride = c.numCols;
+        int index = i * stride + j;
+        if (rows == MR && cols == NR) {
+            if (first) {
+                data[index] = c00;
+                data[index + 1] = c01;
+                data[index + 2] = c02;
+                data[index + 3] = c03;
+                index += stride;
+                data[index] = c10;
+                data[index + 1] = c11;
+                data[index + 2] = c12;
+                data[index + 3] = c13;
+                index += stride;
+                data[index] = c20;
+                data[index + 1] = c21;
+                data[index + 2] = c22;
+                data[index + 3] = c23;
+                index += stride;
+                data[index] = c30;
+                data[index + 1] = c31;
+                data[index + 2] = c32;
+                data[index + 3] = c33;
+            } else {
+                data[index] += c00;
+                data[index + 1] += c01;
+                data[index + 2] += c02;
+                data[index + 3] += c03;
+                index += stride;
+                data[index] += c10;
+                data[index + 1] += c11;
+                data[index + 2] += c12;
+                data[index + 3] += c13;
+                index += stride;
+                data[index] += c20;
+                data[index + 1] += c21;
+                data[index + 2] += c22;
+                data[index + 3] += c23;
+                index += stride;
+                data[index] += c30;
+                data[index + 1] += c31;
+                data[index + 2] += c32;
+                data[index + 3] += c33;
+            }
+            return;
+        }
+
+        // partial tile at the bottom or right border of 'c'
+        tile[0] = c00;
+        tile[1] = c01;
+        tile[2] = c02;
+        tile[3] = c03;
+        tile[4] = c10;
+        tile[5] = c11;
+        tile[6] = c12;
+        tile[7] = c13;
+        tile[8] = c20;
+        tile[9] = c21;
+        tile[10] = c22;
+        tile[11] = c23;
+        tile[12] = c30;
+        tile[13] = c31;
+        tile[14] = c32;
+        tile[15] = c33;
+        for (int r = 0; r < rows; r++) {
+            int indexC = index + r * stride;
+            for (int w = 0; w < cols; w++) {
+                if (first) {
+                    data[indexC + w] = tile[r * NR + w];
+                } else {
+                    data[indexC + w] += tile[r * NR + w];
+                }
+            }
+        }
+    }
+
+    /**
+     * Scratch space of one thread for {@link #blocked}. A task packs and
+     * consumes its panel without running other tasks in between, so the
+     * thread can reuse it for the next one.
+     */
+    private static final class Buffers {
+
+        final float[] tile = new float[MR * NR];
+        private float[] pack = new float[0];
+
+        float[] pack(int size) {
+            if (pack.length < size) {
+                pack = new float[size];
+            }
+            return pack;
+        }
+    }
+}
@@ -1,5 +1,5 @@
+package org.gitia.froog.example.parallel;
 
-import java.util.stream.IntStream;
 import org.ejml.MatrixDimensionException;
 import org.ejml.data.DMatrix1Row;
 import org.ejml.data.DMatrixD1;
@@ -45,7 +45,7 @@ public class MatrixVectorMult_DDRM_Parallel {
             CommonOps_DDRM.fill(C, 0);
             return;
         }
-        IntStream.range(0, A.numRows).parallel().forEach(i -> {
+        ParallelContext.current().forEach(A.numRows, i -> {
             double total = 0;
             int idxA = i * A.numCols;
             for (int j = 0; j < A.numCols; j++) {
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.parallel;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Pool of workers where the parallel kernels run.
+ * <p>
+ * By default the kernels use the common pool, so two models trained side by
+ * side, or inference running next to training, take workers from each
+ * other. A context with its own {@link ForkJoinPool} isolates a workload and
+ * sizes it:
+ * </p>
+ * <pre>
+ * ParallelContext training = ParallelContext.named("mnist", 12);
+ * try (ParallelContext.Scope scope = training.bind()) {
+ *     sgd.train(net, source);
+ * }
+ * </pre>
+ * <p>
+ * The kernels look up the context with {@link #current()}: the context of the
+ * pool when they run inside one of its workers, otherwise the one bound to
+ * the calling thread with {@link #run}, {@link #call} or {@link #bind}, and
+ * the common pool if there is none.
+ * </p>
+ * <p>
+ * The JVM can not pin threads to cores. The cores given to a context are a
+ * hint: they size the pool when no parallelism is given and are kept in
+ * {@link #getCores()} for whoever launches the process (taskset, numactl).
+ * Contexts that must not interfere should be given disjoint cores.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class ParallelContext implements AutoCloseable {
+
+    private static final ParallelContext COMMON = new ParallelContext();
+    private static final Map<String, ParallelContext> NAMED = new ConcurrentHashMap<>();
+    private static final ThreadLocal<ParallelContext> BOUND = new ThreadLocal<>();
+
+    private final String name;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int[] cores;
+
+    private ParallelContext() {
+        this.name = "common";
+        this.pool = ForkJoinPool.commonPool();
+        this.parallelism = ForkJoinPool.getCommonPoolParallelism();
+        this.cores = new int[0];
+    }
+
+    private ParallelContext(String name, int parallelism, int[] cores) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.name = name;
+        this.parallelism = parallelism;
+        this.cores = cores.clone();
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            Worker w = new Worker(p, this);
+            w.setName(name + "-worker-" + count.getAndIncrement());
+            w.setDaemon(true);
+            return w;
+        }, null, false);
+    }
+
+    /**
+     * @param name prefix of the names of the workers
+     * @param parallelism number of workers
+     * @return a new context with its own pool
+     */
+    public static ParallelContext create(String name, int parallelism) {
+        return new ParallelContext(name, parallelism, new int[0]);
+    }
+
+    /**
+     * @param name prefix of the names of the workers
+     * @param cores cores this workload should run on, one worker per core
+     * @return a new context with its own pool
+     */
+    public static ParallelContext create(String name, int... cores) {
+        return new ParallelContext(name, cores.length, cores);
+    }
+
+    /**
+     * Context registered under 'name', created with 'parallelism' workers the
+     * first time it is asked for. Used to share one pool per model between
+     * the optimizer and the inference of that model.
+     *
+     * @param name name of the context
+     * @param parallelism number of workers of the context
+     * @return the context
+     * @throws IllegalArgumentException if the context exists with another
+     * number of workers
+     */
+    public static ParallelContext named(String name, int parallelism) {
+        ParallelContext context = NAMED.computeIfAbsent(name, n -> create(n, parallelism));
+        if (context.parallelism != parallelism) {
+            throw new IllegalArgumentException("The context " + name + " has " + context.parallelism
+                    + " workers, not " + parallelism);
+        }
+        return context;
+    }
+
+    /**
+     * @return the context over the common pool
+     */
+    public static ParallelContext common() {
+        return COMMON;
+    }
+
+    /**
+     * @return the context the kernels called from this thread run on
+     */
+    public static ParallelContext current() {
+        Thread t = Thread.currentThread();
+        if (t instanceof Worker) {
+            return ((Worker) t).context;
+        }
+        ParallelContext bound = BOUND.get();
+        return bound == null ? COMMON : bound;
+    }
+
+    /**
+     * Binds this context to the calling thread until the returned scope is
+     * closed, then restores the previous one.
+     *
+     * @return the scope of the binding
+     */
+    public Scope bind() {
+        ParallelContext previous = BOUND.get();
+        BOUND.set(this);
+        return () -> {
+            if (previous == null) {
+                BOUND.remove();
+            } else {
+                BOUND.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Runs 'task' in the calling thread with this context bound.
+     *
+     * @param task work that calls the kernels
+     */
+    @SuppressWarnings("try")
+    public void run(Runnable task) {
+        try (Scope ignored = bind()) {
+            task.run();
+        }
+    }
+
+    /**
+     * Runs 'task' in the calling thread with this context bound.
+     *
+     * @param <T> type of the result
+     * @param task work that calls the kernels
+     * @return the result of the task
+     */
+    @SuppressWarnings("try")
+    public <T> T call(Supplier<T> task) {
+        try (Scope ignored = bind()) {
+            return task.get();
+        }
+    }
+
+    /**
+     * Runs body(0) ... body(n - 1) on the workers of this context, giving
+     * every task a range of consecutive indices, a few ranges per worker.
+     * Returns when all of them are done.
+     *
+     * @param n number of indices
+     * @param body work of one index
+     */
+    public void forEach(int n, IntConsumer body) {
+        if (n <= 0) {
+            return;
+        }
+        if (n == 1 || parallelism == 1) {
+            for (int i = 0; i < n; i++) {
+                body.accept(i);
+            }
+            return;
+        }
+        int leaf = Math.max(1, n / (4 * parallelism));
+        Range range = new Range(body, 0, n, leaf);
+        Thread t = Thread.currentThread();
+        if (t instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) t).getPool() == pool) {
+            range.invoke();
+        } else {
+            pool.invoke(range);
+        }
+    }
+
+    /**
+     * @return name of the context
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of workers
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return cores given when the context was created, empty if none
+     */
+    public int[] getCores() {
+        return cores.clone();
+    }
+
+    /**
+     * @return the pool of this context
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Shuts the pool down and removes the context from the named ones. The
+     * common context can not be closed.
+     */
+    @Override
+    public void close() {
+        if (this == COMMON) {
+            return;
+        }
+        NAMED.remove(name, this);
+        pool.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelContext{" + name + ", parallelism=" + parallelism
+                + (cores.length > 0 ? ", cores=" + Arrays.toString(cores) : "") + "}";
+    }
+
+    /**
+     * Binding of a context to a thread.
+     */
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    private static class Worker extends ForkJoinWorkerThread {
+
+        final ParallelContext context;
+
+        Worker(ForkJoinPool pool, ParallelContext context) {
+            super(pool);
+            this.context = context;
+        }
+    }
+
+    /**
+     * Halves lo:hi until it has at most 'leaf' indices.
+     */
+    private static class Range extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer body;
+        private final int lo, hi, leaf;
+
+        Range(IntConsumer body, int lo, int hi, int leaf) {
+            this.body = body;
+            this.lo = lo;
+            this.hi = hi;
+            this.leaf = leaf;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= leaf) {
+                for (int i = lo; i < hi; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Range(body, lo, mid, leaf), new Range(body, mid, hi, leaf));
+        }
+    }
+}
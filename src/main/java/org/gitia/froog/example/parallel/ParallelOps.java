@@ -0,0 +1,342 @@
+package org.gitia.froog.example.parallel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import org.ejml.EjmlParameters;
+import org.ejml.data.DMatrix1Row;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.RandomMatrices_DDRM;
+
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Entry points that pick the fastest matrix product for the shape of the
+ * operands and the number of workers.
+ * <p>
+ * The decision is based on the work of the product (m * n * k) and the
+ * columns of 'b', compared against thresholds measured on this machine by
+ * {@link #calibrate()} and saved in a properties file (see
+ * {@link #CONFIG_PROPERTY}). The file keeps one set of thresholds per
+ * number of workers, and the set of the parallelism of
+ * {@link ParallelContext#current()} is used; without one conservative
+ * defaults are used. With a single worker the parallel kernels would run
+ * serially, so the product is always the one of EJML.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class ParallelOps {
+
+    /**
+     * System property with the path of the thresholds file. By default it is
+     * ~/.froog/parallel-ops.properties
+     */
+    public static final String CONFIG_PROPERTY = "froog.parallelops.config";
+
+    // the keys are prefixed with "workers.<parallelism>."
+    static final String KEY_WORKERS = "workers";
+    static final String KEY_REORDER_WORK = "mult.reorder.work";
+    static final String KEY_BLOCKED_WORK = "mult.blocked.work";
+    static final String KEY_SMALL_COLS = "mult.small.cols";
+
+    // square sizes used to calibrate, as in the dimensiones sweep of Main
+    static final int[] DIMENSIONES = {20, 30, 40, 50, 70, 100, 150, 200, 300, 400, 600, 800, 1000};
+    // columns of 'b' used to calibrate mult_small, with 'a' of SMALL_DIM x SMALL_DIM
+    static final int[] SMALL_COLS = {1, 2, 4, 8, 16, 32, 64, 128};
+    static final int SMALL_DIM = 600;
+
+    private static final Thresholds DEFAULTS = new Thresholds(
+            // from this work on the parallel mult_reorder beats EJML
+            200L * 200 * 200,
+            // from this work on mult_blocked beats every other product
+            300L * 300 * 300,
+            // up to this many columns in 'b' the parallel mult_small is used
+            EjmlParameters.MULT_COLUMN_SWITCH);
+
+    // thresholds of every parallelism that was calibrated
+    private static final Map<Integer, Thresholds> THRESHOLDS = new ConcurrentHashMap<>();
+
+    static {
+        load();
+    }
+
+    /**
+     * <p>
+     * c = a * b
+     * </p>
+     * <p>
+     * Chooses between {@link CommonOps_DDRM#mult}, and the
+     * {@link MatrixMatrixMult_DDRM_Parallel} mult_small, mult_reorder and
+     * mult_blocked kernels.
+     * </p>
+     *
+     * @param a The left matrix in the multiplication operation. Not modified.
+     * @param b The right matrix in the multiplication operation. Not modified.
+     * @param c Where the results of the operation are stored. Modified.
+     */
+    public static void mult(DMatrix1Row a, DMatrix1Row b, DMatrix1Row c) {
+        int workers = ParallelContext.current().getParallelism();
+        if (workers == 1) {
+            CommonOps_DDRM.mult(a, b, c);
+            return;
+        }
+        Thresholds t = THRESHOLDS.getOrDefault(workers, DEFAULTS);
+        long work = (long) a.numRows * a.numCols * b.numCols;
+
+        if (work < t.reorderWork && work < t.blockedWork) {
+            CommonOps_DDRM.mult(a, b, c);
+        } else if (b.numCols <= t.smallCols && work >= t.reorderWork) {
+            MatrixMatrixMult_DDRM_Parallel.mult_small(a, b, c);
+        } else if (work >= t.blockedWork) {
+            MatrixMatrixMult_DDRM_Parallel.mult_blocked(a, b, c);
+        } else {
+            MatrixMatrixMult_DDRM_Parallel.mult_reorder(a, b, c);
+        }
+    }
+
+    /**
+     * Same as {@link #calibrate(PrintStream)} without printing the times.
+     *
+     * @return the thresholds that were saved
+     * @throws IOException if the file can not be written
+     */
+    public static Properties calibrate() throws IOException {
+        return calibrate(null);
+    }
+
+    /**
+     * Measures every implementation on {@link ParallelContext#current()} and
+     * stores the thresholds of its parallelism in the properties file,
+     * replacing the ones in use for it. The square sizes of
+     * {@link #DIMENSIONES} give the work thresholds, and the products of a
+     * SMALL_DIM x SMALL_DIM matrix by the few columns of {@link #SMALL_COLS}
+     * give the columns up to which mult_small is used.
+     *
+     * @param log receives the time of every size, null to measure quietly
+     * @return the thresholds that were saved, without the prefix
+     * @throws IOException if the file can not be written
+     */
+    public static Properties calibrate(PrintStream log) throws IOException {
+        int workers = ParallelContext.current().getParallelism();
+        Random r = new Random(1);
+        boolean[] reorderWins = new boolean[DIMENSIONES.length];
+        boolean[] blockedWins = new boolean[DIMENSIONES.length];
+
+        // let the JIT compile every kernel before timing the small sizes
+        for (int i = 0; i < 3; i++) {
+            timeAll(DIMENSIONES[DIMENSIONES.length / 2], DIMENSIONES[DIMENSIONES.length / 2], r);
+            timeAll(SMALL_DIM, SMALL_COLS[SMALL_COLS.length / 2], r);
+        }
+        for (int i = 0; i < DIMENSIONES.length; i++) {
+            int dim = DIMENSIONES[i];
+            long[] t = timeAll(dim, dim, r);
+            if (log != null) {
+                log.println("dim:\t" + dim + "\tserial:\t" + t[0] + "\treorder:\t" + t[1]
+                        + "\tblocked:\t" + t[2] + "\tsmall:\t" + t[3]);
+            }
+            reorderWins[i] = t[1] < t[0];
+            blockedWins[i] = t[2] < t[0] && t[2] < t[1];
+        }
+        // mult_small is used up to the last number of columns of the run in
+        // which it beats every other product
+        int newSmallCols = 0;
+        for (int cols : SMALL_COLS) {
+            long[] t = timeAll(SMALL_DIM, cols, r);
+            if (log != null) {
+                log.println("cols:\t" + cols + "\tserial:\t" + t[0] + "\treorder:\t" + t[1]
+                        + "\tblocked:\t" + t[2] + "\tsmall:\t" + t[3]);
+            }
+            if (t[3] >= Math.min(t[0], Math.min(t[1], t[2]))) {
+                break;
+            }
+            newSmallCols = cols;
+        }
+        Thresholds thresholds = new Thresholds(threshold(reorderWins), threshold(blockedWins), newSmallCols);
+
+        File file = configFile();
+        Properties all = read(file);
+        if (all == null) {
+            all = new Properties();
+        }
+        Properties p = thresholds.toProperties();
+        for (String key : p.stringPropertyNames()) {
+            all.setProperty(prefix(workers) + key, p.getProperty(key));
+        }
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Can not create " + dir);
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            all.store(out, "ParallelOps thresholds");
+        }
+        THRESHOLDS.put(workers, thresholds);
+        return p;
+    }
+
+    /**
+     * Reads the thresholds of every parallelism in the file, if there is one.
+     */
+    static void load() {
+        Properties p = read(configFile());
+        if (p == null) {
+            return;
+        }
+        for (String key : p.stringPropertyNames()) {
+            if (key.startsWith(KEY_WORKERS + ".") && key.endsWith("." + KEY_REORDER_WORK)) {
+                String workers = key.substring(KEY_WORKERS.length() + 1, key.length() - KEY_REORDER_WORK.length() - 1);
+                try {
+                    int n = Integer.parseInt(workers);
+                    THRESHOLDS.put(n, Thresholds.of(p, prefix(n)));
+                } catch (NumberFormatException ex) {
+                    System.err.println("ParallelOps: invalid thresholds for " + workers + " workers, ignored");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the properties of the file, null if there is none or it can
+     * not be read
+     */
+    private static Properties read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties p = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            p.load(in);
+        } catch (IOException ex) {
+            System.err.println("ParallelOps: can not read " + file + ", using defaults");
+            return null;
+        }
+        return p;
+    }
+
+    private static String prefix(int workers) {
+        return KEY_WORKERS + "." + workers + ".";
+    }
+
+    static File configFile() {
+        String path = System.getProperty(CONFIG_PROPERTY);
+        if (path != null) {
+            return new File(path);
+        }
+        return new File(System.getProperty("user.home"), ".froog" + File.separator + "parallel-ops.properties");
+    }
+
+    /**
+     * Best times of EJML, mult_reorder, mult_blocked and mult_small for a
+     * [dim x dim] matrix times a [dim x cols] one.
+     */
+    private static long[] timeAll(int dim, int cols, Random r) {
+        DMatrixRMaj a = RandomMatrices_DDRM.rectangle(dim, dim, -200, 200, r);
+        DMatrixRMaj b = RandomMatrices_DDRM.rectangle(dim, cols, -200, 200, r);
+        DMatrixRMaj c = new DMatrixRMaj(dim, cols);
+        return new long[]{
+            bestTime(() -> CommonOps_DDRM.mult(a, b, c)),
+            bestTime(() -> MatrixMatrixMult_DDRM_Parallel.mult_reorder(a, b, c)),
+            bestTime(() -> MatrixMatrixMult_DDRM_Parallel.mult_blocked(a, b, c)),
+            bestTime(() -> MatrixMatrixMult_DDRM_Parallel.mult_small(a, b, c))};
+    }
+
+    /**
+     * Work of the smallest size from which an implementation wins at every
+     * larger size, so a single lucky measurement does not move the threshold.
+     */
+    private static long threshold(boolean[] wins) {
+        long work = Long.MAX_VALUE;
+        for (int i = wins.length - 1; i >= 0 && wins[i]; i--) {
+            long dim = DIMENSIONES[i];
+            work = dim * dim * dim;
+        }
+        return work;
+    }
+
+    /**
+     * Best of a few runs after one warm up run, in nanoseconds.
+     */
+    private static long bestTime(Runnable op) {
+        op.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            op.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * Calibrates the common pool, or a context with the number of workers
+     * given as first argument, printing the times.
+     */
+    @SuppressWarnings("try")
+    public static void main(String[] args) throws IOException {
+        ParallelContext context = args.length > 0
+                ? ParallelContext.create("parallel-ops-calibration", Integer.parseInt(args[0]))
+                : ParallelContext.common();
+        try (ParallelContext.Scope ignored = context.bind()) {
+            Properties p = calibrate(System.out);
+            System.out.println("Saved in " + configFile() + " for " + context.getParallelism() + " workers");
+            p.list(System.out);
+        } finally {
+            if (context != ParallelContext.common()) {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Thresholds of one parallelism.
+     */
+    private static final class Thresholds {
+
+        final long reorderWork;
+        final long blockedWork;
+        final int smallCols;
+
+        Thresholds(long reorderWork, long blockedWork, int smallCols) {
+            this.reorderWork = reorderWork;
+            this.blockedWork = blockedWork;
+            this.smallCols = smallCols;
+        }
+
+        static Thresholds of(Properties p, String prefix) {
+            return new Thresholds(
+                    Long.parseLong(p.getProperty(prefix + KEY_REORDER_WORK, String.valueOf(DEFAULTS.reorderWork))),
+                    Long.parseLong(p.getProperty(prefix + KEY_BLOCKED_WORK, String.valueOf(DEFAULTS.blockedWork))),
+                    Integer.parseInt(p.getProperty(prefix + KEY_SMALL_COLS, String.valueOf(DEFAULTS.smallCols))));
+        }
+
+        Properties toProperties() {
+            Properties p = new Properties();
+            p.setProperty(KEY_REORDER_WORK, String.valueOf(reorderWork));
+            p.setProperty(KEY_BLOCKED_WORK, String.valueOf(blockedWork));
+            p.setProperty(KEY_SMALL_COLS, String.valueOf(smallCols));
+            return p;
+        }
+    }
+}
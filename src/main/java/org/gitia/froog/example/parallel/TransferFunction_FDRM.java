@@ -0,0 +1,140 @@
+package org.gitia.froog.example.parallel;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+import org.ejml.data.FMatrix1Row;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Single precision version of {@link TransferFunction_DDRM}, used by the fused
+ * kernels of {@link MatrixMatrixMult_FDRM_Parallel}.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public interface TransferFunction_FDRM {
+
+    /**
+     * Applies the function in place to the columns j0:j0+cols of 'c'.
+     *
+     * @param c matrix with one register per column. Modified.
+     * @param j0 first column
+     * @param cols number of columns
+     */
+    void apply(FMatrix1Row c, int j0, int cols);
+
+    TransferFunction_FDRM PURELIM = (c, j0, cols) -> {
+    };
+
+    TransferFunction_FDRM TANSIG = (c, j0, cols) -> {
+        for (int i = 0; i < c.numRows; i++) {
+            int index = i * c.numCols + j0;
+            int end = index + cols;
+            for (; index < end; index++) {
+                c.data[index] = (float) Math.tanh(c.data[index]);
+            }
+        }
+    };
+
+    TransferFunction_FDRM LOGSIG = (c, j0, cols) -> {
+        for (int i = 0; i < c.numRows; i++) {
+            int index = i * c.numCols + j0;
+            int end = index + cols;
+            for (; index < end; index++) {
+                c.data[index] = 1 / (1 + (float) Math.exp(-c.data[index]));
+            }
+        }
+    };
+
+    TransferFunction_FDRM RELU = (c, j0, cols) -> {
+        for (int i = 0; i < c.numRows; i++) {
+            int index = i * c.numCols + j0;
+            int end = index + cols;
+            for (; index < end; index++) {
+                c.data[index] = Math.max(0, c.data[index]);
+            }
+        }
+    };
+
+    /**
+     * Softmax of every column. The maximum of the column is subtracted before
+     * the exponential, and the rows are walked in order so the block is read
+     * contiguously.
+     */
+    TransferFunction_FDRM SOFTMAX = (c, j0, cols) -> {
+        float[] max = new float[cols];
+        float[] sum = new float[cols];
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < c.numRows; i++) {
+            int index = i * c.numCols + j0;
+            for (int j = 0; j < cols; j++) {
+                max[j] = Math.max(max[j], c.data[index + j]);
+            }
+        }
+        for (int i = 0; i < c.numRows; i++) {
+            int index = i * c.numCols + j0;
+            for (int j = 0; j < cols; j++) {
+                float e = (float) Math.exp(c.data[index + j] - max[j]);
+                c.data[index + j] = e;
+                sum[j] += e;
+            }
+        }
+        for (int i = 0; i < c.numRows; i++) {
+            int index = i * c.numCols + j0;
+            for (int j = 0; j < cols; j++) {
+                c.data[index + j] /= sum[j];
+            }
+        }
+    };
+
+    /**
+     * Element by element function for the cases not covered above.
+     *
+     * @param f function applied to each element
+     * @return the transfer function
+     */
+    static TransferFunction_FDRM elementwise(DoubleUnaryOperator f) {
+        return (c, j0, cols) -> {
+            for (int i = 0; i < c.numRows; i++) {
+                int index = i * c.numCols + j0;
+                int end = index + cols;
+                for (; index < end; index++) {
+                    c.data[index] = (float) f.applyAsDouble(c.data[index]);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param name one of the names in {@link TransferFunction}
+     * @return the equivalent function
+     */
+    static TransferFunction_FDRM forName(String name) {
+        if (TransferFunction.TANSIG.equals(name)) {
+            return TANSIG;
+        } else if (TransferFunction.LOGSIG.equals(name)) {
+            return LOGSIG;
+        } else if (TransferFunction.RELU.equals(name)) {
+            return RELU;
+        } else if (TransferFunction.SOFTMAX.equals(name)) {
+            return SOFTMAX;
+        } else if (TransferFunction.PURELIM.equals(name)) {
+            return PURELIM;
+        }
+        throw new IllegalArgumentException("Unsupported transfer function: " + name);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.scg;
+
+import org.gitia.jdataanalysis.CSV;
+import org.gitia.jdataanalysis.data.stats.STD;
+import java.util.Random;
+import org.ejml.simple.SimpleMatrix;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.statistics.Compite;
+import org.gitia.froog.statistics.ConfusionMatrix;
+import org.gitia.froog.example.train.ConjugateGradient;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * IrisCG trained with {@link ConjugateGradient}, which evaluates several
+ * step lengths of the line search at the same time.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class IrisParallelCG {
+
+    public static void main(String[] args) {
+        //get data
+        SimpleMatrix input = CSV.open("src/main/resources/iris/iris-in.csv");
+        SimpleMatrix output = CSV.open("src/main/resources/iris/iris-out.csv");
+
+        //Standard Desviation
+        STD std = new STD();
+        std.fit(input);
+
+        //normalization
+        input = std.eval(input);
+        
+        Random random = new Random(1);
+        
+        //set data in horizontal format (a column is a register and a row is a feature)
+        input = input.transpose();
+        output = output.transpose();
+
+        //setting backpropagation
+        //los pasos de la búsqueda lineal se evalúan al mismo tiempo
+        ConjugateGradient cg = new ConjugateGradient();
+        cg.setEpoch(20);
+
+        //number of neurons
+        int Nhl = 6;
+
+        Feedforward net = new Feedforward();
+
+        //add layers to neural network
+        net.addLayer(new Dense(input.numRows(), Nhl, TransferFunction.TANSIG, random));
+        net.addLayer(new Dense(Nhl, output.numRows(), TransferFunction.SOFTMAX, random));
+        
+        //train your net
+        cg.train(net, input.getDDRM(), output.getDDRM());
+        
+        //show results
+        System.out.println("Print all output");
+        SimpleMatrix salida = net.output(input);
+        ConfusionMatrix confusionMatrix = new ConfusionMatrix();
+        confusionMatrix.eval(Compite.eval(salida.transpose()), output.transpose());
+        confusionMatrix.printStats();
+        
+    }
+}
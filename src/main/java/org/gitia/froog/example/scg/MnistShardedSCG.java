@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.scg;
+
+import java.io.IOException;
+import java.util.Random;
+import org.gitia.froog.example.data.DatasetConverter;
+import org.gitia.froog.example.data.FeatureScaling;
+import org.gitia.froog.example.data.MappedDataset;
+import org.gitia.froog.example.data.MappedDataset.Type;
+import org.gitia.froog.example.inference.ChunkedInference;
+import org.gitia.froog.example.statistics.ConfusionCounts;
+import org.gitia.froog.example.train.ScaledConjugateGradient;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.simple.SimpleMatrix;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.statistics.Clock;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * MnistSCG trained with {@link ScaledConjugateGradient}, which computes the
+ * gradients over blocks of registers in parallel.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MnistShardedSCG {
+
+    public static void main(String[] args) throws IOException {
+        //================== Preparación de los datos ==========================
+        MappedDataset in = DatasetConverter.cached("src/main/resources/mnist/mnist_train_in_50000.csv", Type.FLOAT64);
+        MappedDataset out = DatasetConverter.cached("src/main/resources/mnist/mnist_train_out_50000.csv", Type.FLOAT64);
+
+        //filtramos las columnas constantes y ajustamos la desviación standard
+        //en una pasada, los datos se escriben ya transpuestos
+        FeatureScaling scaling = FeatureScaling.fit(in);
+        System.out.println("Dimensiones iniciales: " + in.numFeatures());
+        System.out.println("Dimensiones finales: " + scaling.numOutputs());
+        SimpleMatrix input = SimpleMatrix.wrap(scaling.transform(in, null));
+        SimpleMatrix output = out.horizontal();
+        //================== /Preparación de los datos =========================
+
+        //=================  configuraciones del ensayo ========================
+        //Preparamos el algoritmo de entrenamiento
+        int inputSize = input.numRows();
+        int outputSize = output.numRows();
+
+        //==================== Preparamos la RNA =======================
+        Random r = new Random(1);
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(inputSize, 300, TransferFunction.TANSIG, r));
+        net.addLayer(new Dense(300, outputSize, TransferFunction.SOFTMAX, r));
+
+        //==================== /Preparamos la RNA ======================
+        Clock clock = new Clock();
+        clock.start();
+
+        //los gradientes se calculan por bloques de registros, en paralelo
+        ScaledConjugateGradient scg = new ScaledConjugateGradient();
+        scg.setEpoch(10);
+        scg.train(net, input.getDDRM(), output.getDDRM());
+        clock.stop();
+        clock.printTime("Time:");
+        
+        //la salida se calcula por bloques de registros, en paralelo
+        DMatrixRMaj out1 = new ChunkedInference(net, 1024).output(input.getDDRM(), null);
+
+        System.out.println("\nMatriz de Confusion 1");
+        ConfusionCounts confusionMatrix1 = ConfusionCounts.of(out1, output.getDDRM());
+        confusionMatrix1.printStats();
+    }
+}
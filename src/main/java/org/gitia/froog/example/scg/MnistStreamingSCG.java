@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.scg;
+
+import java.io.IOException;
+import java.util.Random;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.BatchSource;
+import org.gitia.froog.example.data.DatasetConverter;
+import org.gitia.froog.example.data.FeatureScaling;
+import org.gitia.froog.example.data.MappedBatchSource;
+import org.gitia.froog.example.data.MappedDataset;
+import org.gitia.froog.example.data.MappedDataset.Type;
+import org.gitia.froog.example.data.PrefetchBatchSource;
+import org.gitia.froog.example.statistics.ConfusionCounts;
+import org.gitia.froog.example.train.Gradients;
+import org.gitia.froog.example.train.ScaledConjugateGradient;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.statistics.Clock;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * The training of MnistShardedSCG with the gradients accumulated over blocks of
+ * registers read from the mapped files, so the heap holds a few blocks
+ * instead of the whole data set. The first argument is the number of
+ * registers of every block, 4096 by default.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MnistStreamingSCG {
+
+    public static void main(String[] args) throws IOException {
+        int chunk = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+
+        //================== Preparación de los datos ==========================
+        MappedDataset in = DatasetConverter.cached("src/main/resources/mnist/mnist_train_in_50000.csv", Type.FLOAT64);
+        MappedDataset out = DatasetConverter.cached("src/main/resources/mnist/mnist_train_out_50000.csv", Type.FLOAT64);
+
+        //los bloques se estandarizan al leerlos
+        FeatureScaling scaling = FeatureScaling.fit(in);
+        MappedBatchSource mapped = new MappedBatchSource(in, out, chunk);
+        mapped.setNormalizer(scaling);
+        //================== /Preparación de los datos =========================
+
+        //==================== Preparamos la RNA =======================
+        Random r = new Random(1);
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(scaling.numOutputs(), 300, TransferFunction.TANSIG, r));
+        net.addLayer(new Dense(300, out.numFeatures(), TransferFunction.SOFTMAX, r));
+        //==================== /Preparamos la RNA ======================
+
+        ScaledConjugateGradient scg = new ScaledConjugateGradient();
+        scg.setEpoch(10);
+
+        Clock clock = new Clock();
+        //un hilo lee el bloque siguiente mientras se calcula el gradiente
+        try (BatchSource source = new PrefetchBatchSource(mapped, 2)) {
+            clock.start();
+            scg.train(net, source);
+            clock.stop();
+        }
+        clock.printTime("Time:");
+        System.out.println("loss: " + scg.getLoss());
+
+        //matriz de confusión, un bloque a la vez
+        DMatrixRMaj raw = new DMatrixRMaj(1, 1);
+        DMatrixRMaj x = new DMatrixRMaj(1, 1);
+        DMatrixRMaj y = new DMatrixRMaj(1, 1);
+        Gradients g = new Gradients(net);
+        ConfusionCounts counts = new ConfusionCounts(out.numFeatures());
+        for (int start = 0; start < in.numRegisters(); start += chunk) {
+            int count = Math.min(chunk, in.numRegisters() - start);
+            in.columns(start, count, raw);
+            out.columns(start, count, y);
+            scaling.apply(raw, x);
+            counts.add(g.forward(x), y);
+        }
+        counts.printStats();
+    }
+}
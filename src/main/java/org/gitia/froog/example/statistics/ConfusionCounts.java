@@ -0,0 +1,225 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.statistics;
+
+import org.ejml.data.DMatrix1Row;
+import org.gitia.froog.example.parallel.ParallelContext;
+import org.gitia.froog.statistics.Compite;
+import org.gitia.froog.statistics.ConfusionMatrix;
+
+/**
+ * Confusion matrix computed straight from the output of a network in
+ * horizontal format (a column is a register), replacing the
+ * {@link Compite} and {@link ConfusionMatrix} chain of the examples.
+ * <p>
+ * The class of a register is the row of the largest value of its column,
+ * for the output and for the expected one-hot output, so neither matrix is
+ * transposed nor converted to one-hot. The columns are counted in parallel
+ * blocks on the current {@link ParallelContext}, each one into its own
+ * counts, which are added at the end.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class ConfusionCounts {
+
+    // registers counted by each task
+    static final int COLS_PER_TASK = 4096;
+
+    private final int classes;
+    // counts[expected * classes + predicted]
+    private final long[] counts;
+
+    /**
+     * @param classes number of classes
+     */
+    public ConfusionCounts(int classes) {
+        this.classes = classes;
+        this.counts = new long[classes * classes];
+    }
+
+    /**
+     * @param output output of the network, [classes x registers]. Not
+     * modified.
+     * @param expected expected output, [classes x registers]. Not modified.
+     * @return the counts of every pair of expected and predicted class
+     */
+    public static ConfusionCounts of(DMatrix1Row output, DMatrix1Row expected) {
+        ConfusionCounts c = new ConfusionCounts(output.numRows);
+        c.add(output, expected);
+        return c;
+    }
+
+    /**
+     * Adds the registers of a batch, so a large set can be evaluated one
+     * block at a time.
+     *
+     * @param output output of the network, [classes x registers]. Not
+     * modified.
+     * @param expected expected output, [classes x registers]. Not modified.
+     */
+    public void add(DMatrix1Row output, DMatrix1Row expected) {
+        if (output.numRows != classes || expected.numRows != classes) {
+            throw new IllegalArgumentException("output and expected must have " + classes + " rows");
+        }
+        if (output.numCols != expected.numCols) {
+            throw new IllegalArgumentException("output and expected must have the same number of registers");
+        }
+        int n = output.numCols;
+        int tasks = (n + COLS_PER_TASK - 1) / COLS_PER_TASK;
+        long[][] partial = new long[tasks][];
+        ParallelContext.current().forEach(tasks, t -> {
+            long[] local = new long[counts.length];
+            int end = Math.min(n, (t + 1) * COLS_PER_TASK);
+            for (int j = t * COLS_PER_TASK; j < end; j++) {
+                local[argmax(expected, j) * classes + argmax(output, j)]++;
+            }
+            partial[t] = local;
+        });
+        for (long[] local : partial) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += local[i];
+            }
+        }
+    }
+
+    /**
+     * @param other counts of other registers over the same classes
+     */
+    public void merge(ConfusionCounts other) {
+        if (other.classes != classes) {
+            throw new IllegalArgumentException("Expected " + classes + " classes");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    /**
+     * @param m matrix in horizontal format
+     * @param col register
+     * @return row of the largest value of the column, the first one on ties
+     */
+    public static int argmax(DMatrix1Row m, int col) {
+        int n = m.numCols;
+        double[] data = m.data;
+        int best = 0;
+        double max = data[col];
+        for (int i = 1, index = col + n; i < m.numRows; i++, index += n) {
+            if (data[index] > max) {
+                max = data[index];
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param expected expected class
+     * @param predicted predicted class
+     * @return number of registers of class 'expected' predicted as 'predicted'
+     */
+    public long get(int expected, int predicted) {
+        return counts[expected * classes + predicted];
+    }
+
+    public int numClasses() {
+        return classes;
+    }
+
+    /**
+     * @return number of registers counted
+     */
+    public long total() {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * @return number of registers predicted as their expected class
+     */
+    public long hits() {
+        long hits = 0;
+        for (int i = 0; i < classes; i++) {
+            hits += get(i, i);
+        }
+        return hits;
+    }
+
+    public double accuracy() {
+        long total = total();
+        return total == 0 ? 0 : (double) hits() / total;
+    }
+
+    /**
+     * @param c class
+     * @return hits of the class over the registers predicted as the class
+     */
+    public double precision(int c) {
+        long predicted = 0;
+        for (int i = 0; i < classes; i++) {
+            predicted += get(i, c);
+        }
+        return predicted == 0 ? 0 : (double) get(c, c) / predicted;
+    }
+
+    /**
+     * @param c class
+     * @return hits of the class over the registers of the class
+     */
+    public double recall(int c) {
+        long expected = 0;
+        for (int i = 0; i < classes; i++) {
+            expected += get(c, i);
+        }
+        return expected == 0 ? 0 : (double) get(c, c) / expected;
+    }
+
+    /**
+     * @param c class
+     * @return harmonic mean of precision and recall
+     */
+    public double f1(int c) {
+        double p = precision(c);
+        double r = recall(c);
+        return p + r == 0 ? 0 : 2 * p * r / (p + r);
+    }
+
+    /**
+     * Prints the matrix (a row per expected class), the accuracy and the
+     * precision, recall and F1 of every class.
+     */
+    public void printStats() {
+        StringBuilder sb = new StringBuilder("Confusion matrix (rows: expected, columns: predicted)\n");
+        for (int i = 0; i < classes; i++) {
+            for (int j = 0; j < classes; j++) {
+                sb.append(j == 0 ? "" : "\t").append(get(i, j));
+            }
+            sb.append('\n');
+        }
+        sb.append("Accuracy:\t").append(accuracy()).append('\n');
+        sb.append("Class\tPrecision\tRecall\tF1\n");
+        for (int c = 0; c < classes; c++) {
+            sb.append(c).append('\t').append(precision(c))
+                    .append('\t').append(recall(c))
+                    .append('\t').append(f1(c)).append('\n');
+        }
+        System.out.print(sb);
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.sweep;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.MatrixBatchSource;
+import org.gitia.froog.example.inference.ChunkedInference;
+import org.gitia.froog.example.parallel.ParallelContext;
+import org.gitia.froog.example.statistics.ConfusionCounts;
+import org.gitia.froog.example.train.StreamingSGD;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.layer.initialization.WeightInit;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * Runs a grid of batch sizes and hidden layer sizes, several repetitions of
+ * each, with a number of trials training at the same time.
+ * <p>
+ * The cores are split in equal shares, one per trainer, and each trainer
+ * runs its trials inside a {@link ParallelContext} created with its share,
+ * so the kernels of one trial do not take the workers of another. Every
+ * trial trains a network with one hidden tansig layer and a softmax output
+ * and records its wall time, throughput (registers presented per second),
+ * and train and test error. The results are written to a CSV file as the
+ * trials finish.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class Sweep {
+
+    static final String HEADER = "trial,neurons,batch,repetition,context,workers,"
+            + "seconds,samples_per_second,train_error,test_error";
+
+    private final DMatrixRMaj input;
+    private final DMatrixRMaj output;
+    private final DMatrixRMaj testInput;
+    private final DMatrixRMaj testOutput;
+    private int[] batchSizes = {32};
+    private int[] neurons = {300};
+    private int repetitions = 1;
+    private int trainers = 1;
+    private int epoch = 1;
+    private double learningRate = 0.001;
+    private double regularization = 0;
+    private long seed = 1;
+    private Trainer trainer = this::train;
+
+    /**
+     * Training procedure of one trial.
+     */
+    public interface Trainer {
+
+        /**
+         * @param net network to train. Modified.
+         * @param trial configuration of the trial
+         * @param input [inputs x registers]. Not modified.
+         * @param output [outputs x registers]. Not modified.
+         * @return number of registers presented to the network, used for the
+         * throughput
+         * @throws IOException if the data can not be read
+         */
+        long train(Feedforward net, Trial trial, DMatrixRMaj input, DMatrixRMaj output) throws IOException;
+    }
+
+    /**
+     * @param input train input in horizontal format. Not modified.
+     * @param output train expected output in horizontal format. Not modified.
+     * @param testInput test input in horizontal format. Not modified.
+     * @param testOutput test expected output in horizontal format. Not
+     * modified.
+     */
+    public Sweep(DMatrixRMaj input, DMatrixRMaj output, DMatrixRMaj testInput, DMatrixRMaj testOutput) {
+        if (input.numCols != output.numCols || testInput.numCols != testOutput.numCols) {
+            throw new IllegalArgumentException("input and output must have the same number of registers");
+        }
+        if (input.numRows != testInput.numRows || output.numRows != testOutput.numRows) {
+            throw new IllegalArgumentException("The train and test sets must have the same features");
+        }
+        this.input = input;
+        this.output = output;
+        this.testInput = testInput;
+        this.testOutput = testOutput;
+    }
+
+    /**
+     * Runs every trial of the grid.
+     *
+     * @param csv file where a line is written for each trial, can be null
+     * @return the results in the order of the grid
+     * @throws IOException if a trial fails or the file can not be written
+     */
+    public List<Result> run(Path csv) throws IOException {
+        Queue<Trial> pending = new ConcurrentLinkedQueue<>();
+        int index = 0;
+        for (int n : neurons) {
+            for (int b : batchSizes) {
+                for (int r = 0; r < repetitions; r++) {
+                    pending.add(new Trial(index, b, n, r, seed + index));
+                    index++;
+                }
+            }
+        }
+        List<Result> results = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int count = Math.max(1, Math.min(trainers, cores));
+        int share = cores / count;
+        List<ParallelContext> contexts = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        try (PrintWriter writer = csv == null ? null
+                : new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+            if (writer != null) {
+                writer.println(HEADER);
+                writer.flush();
+            }
+            for (int t = 0; t < count; t++) {
+                int[] ids = new int[share];
+                for (int i = 0; i < share; i++) {
+                    ids[i] = t * share + i;
+                }
+                ParallelContext context = ParallelContext.create("sweep-" + t, ids);
+                contexts.add(context);
+                Thread thread = new Thread(() -> {
+                    Trial next;
+                    while (errors.isEmpty() && (next = pending.poll()) != null) {
+                        Trial trial = next;
+                        try {
+                            Result result = context.call(() -> runTrial(trial, context));
+                            results.add(result);
+                            if (writer != null) {
+                                synchronized (writer) {
+                                    writer.println(result.toCsv());
+                                    writer.flush();
+                                }
+                            }
+                        } catch (RuntimeException ex) {
+                            errors.add(ex.getCause() instanceof IOException ? ex.getCause() : ex);
+                        } catch (Throwable ex) {
+                            // an Error must fail the sweep too, not only end this thread
+                            errors.add(ex);
+                        }
+                    }
+                }, "sweep-trainer-" + t);
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the trials", ex);
+        } finally {
+            for (ParallelContext context : contexts) {
+                context.close();
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IOException("A trial failed", errors.get(0));
+        }
+        List<Result> sorted = new ArrayList<>(results);
+        sorted.sort((a, b) -> Integer.compare(a.trial.index, b.trial.index));
+        return sorted;
+    }
+
+    private Result runTrial(Trial trial, ParallelContext context) {
+        Random r = new Random(trial.seed);
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(input.numRows, trial.neurons, TransferFunction.TANSIG, WeightInit.DEFAULT, r));
+        net.addLayer(new Dense(trial.neurons, output.numRows, TransferFunction.SOFTMAX, r));
+
+        long start = System.nanoTime();
+        long samples;
+        try {
+            samples = trainer.train(net, trial, input, output);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        ChunkedInference inference = new ChunkedInference(net, 1024);
+        double trainError = 1 - ConfusionCounts.of(inference.output(input, null), output).accuracy();
+        double testError = 1 - ConfusionCounts.of(inference.output(testInput, null), testOutput).accuracy();
+        return new Result(trial, context, seconds, samples / seconds, trainError, testError);
+    }
+
+    /**
+     * Default trainer: {@link StreamingSGD} with Adam over the batches of a
+     * {@link MatrixBatchSource}.
+     */
+    private long train(Feedforward net, Trial trial, DMatrixRMaj input, DMatrixRMaj output) throws IOException {
+        StreamingSGD sgd = new StreamingSGD();
+        sgd.setEpoch(epoch);
+        sgd.setLearningRate(learningRate);
+        sgd.setRegularization(regularization);
+        try (MatrixBatchSource source = new MatrixBatchSource(input, output, trial.batchSize, new Random(trial.seed))) {
+            sgd.train(net, source);
+        }
+        return (long) epoch * input.numCols;
+    }
+
+    public void setBatchSizes(int... batchSizes) {
+        this.batchSizes = batchSizes.clone();
+    }
+
+    public void setNeurons(int... neurons) {
+        this.neurons = neurons.clone();
+    }
+
+    public void setRepetitions(int repetitions) {
+        this.repetitions = repetitions;
+    }
+
+    /**
+     * @param trainers number of trials that train at the same time, each one
+     * on an equal share of the cores
+     */
+    public void setTrainers(int trainers) {
+        this.trainers = trainers;
+    }
+
+    /**
+     * @param epoch epochs of the default trainer
+     */
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    /**
+     * @param learningRate learning rate of the default trainer
+     */
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * @param regularization L2 regularization of the default trainer
+     */
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * @param seed seed of the first trial, trial i uses seed + i
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param trainer training procedure used instead of the default one
+     */
+    public void setTrainer(Trainer trainer) {
+        this.trainer = trainer;
+    }
+
+    /**
+     * One point of the grid.
+     */
+    public static class Trial {
+
+        final int index;
+        final int batchSize;
+        final int neurons;
+        final int repetition;
+        final long seed;
+
+        Trial(int index, int batchSize, int neurons, int repetition, long seed) {
+            this.index = index;
+            this.batchSize = batchSize;
+            this.neurons = neurons;
+            this.repetition = repetition;
+            this.seed = seed;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public int getNeurons() {
+            return neurons;
+        }
+
+        public int getRepetition() {
+            return repetition;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+    }
+
+    /**
+     * Measurements of one trial.
+     */
+    public static class Result {
+
+        final Trial trial;
+        final String context;
+        final int workers;
+        final double seconds;
+        final double samplesPerSecond;
+        final double trainError;
+        final double testError;
+
+        Result(Trial trial, ParallelContext context, double seconds, double samplesPerSecond,
+                double trainError, double testError) {
+            this.trial = trial;
+            this.context = context.getName();
+            this.workers = context.getParallelism();
+            this.seconds = seconds;
+            this.samplesPerSecond = samplesPerSecond;
+            this.trainError = trainError;
+            this.testError = testError;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%d,%d,%d,%d,%s,%d,%.3f,%.1f,%.6f,%.6f",
+                    trial.index, trial.neurons, trial.batchSize, trial.repetition, context, workers,
+                    seconds, samplesPerSecond, trainError, testError);
+        }
+
+        public Trial getTrial() {
+            return trial;
+        }
+
+        public double getSeconds() {
+            return seconds;
+        }
+
+        public double getSamplesPerSecond() {
+            return samplesPerSecond;
+        }
+
+        public double getTrainError() {
+            return trainError;
+        }
+
+        public double getTestError() {
+            return testError;
+        }
+    }
+}
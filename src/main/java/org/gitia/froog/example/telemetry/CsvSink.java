@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.telemetry;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a line per measurement to a CSV file. Every epoch is flushed so the
+ * file can be followed while the network trains.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class CsvSink implements MetricsSink {
+
+    private final PrintWriter writer;
+
+    /**
+     * @param path file to write, it is replaced
+     * @throws IOException if the file can not be created
+     */
+    public CsvSink(Path path) throws IOException {
+        writer = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+        writer.println(Metrics.CSV_HEADER);
+    }
+
+    @Override
+    public synchronized void accept(Metrics metrics) {
+        writer.println(metrics.toCsv());
+        if (metrics.getKind() == Metrics.Kind.EPOCH) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        writer.close();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.telemetry;
+
+import java.util.Locale;
+
+/**
+ * Measurements of one batch or one epoch of a training. The times are in
+ * nanoseconds, a phase that was not measured is -1.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class Metrics {
+
+    public enum Kind {
+        BATCH, EPOCH
+    }
+
+    static final String CSV_HEADER = "kind,epoch,batch,registers,loss,wall_ns,data_ns,forward_ns,"
+            + "backward_ns,update_ns,samples_per_second,allocated_bytes,gc_count,gc_ms";
+
+    private final Kind kind;
+    private final int epoch;
+    private final int batch;
+    private final long registers;
+    private final double loss;
+    private final long wallNanos;
+    private final long dataNanos;
+    private final long forwardNanos;
+    private final long backwardNanos;
+    private final long updateNanos;
+    private final long allocatedBytes;
+    private final long gcCount;
+    private final long gcMillis;
+
+    Metrics(Kind kind, int epoch, int batch, long registers, double loss, long wallNanos, long dataNanos,
+            long forwardNanos, long backwardNanos, long updateNanos, long allocatedBytes, long gcCount, long gcMillis) {
+        this.kind = kind;
+        this.epoch = epoch;
+        this.batch = batch;
+        this.registers = registers;
+        this.loss = loss;
+        this.wallNanos = wallNanos;
+        this.dataNanos = dataNanos;
+        this.forwardNanos = forwardNanos;
+        this.backwardNanos = backwardNanos;
+        this.updateNanos = updateNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return index of the batch in the epoch, -1 for an epoch
+     */
+    public int getBatch() {
+        return batch;
+    }
+
+    public long getRegisters() {
+        return registers;
+    }
+
+    /**
+     * @return mean loss per register
+     */
+    public double getLoss() {
+        return loss;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return time waiting for the batches
+     */
+    public long getDataNanos() {
+        return dataNanos;
+    }
+
+    public long getForwardNanos() {
+        return forwardNanos;
+    }
+
+    public long getBackwardNanos() {
+        return backwardNanos;
+    }
+
+    public long getUpdateNanos() {
+        return updateNanos;
+    }
+
+    public double getSamplesPerSecond() {
+        return wallNanos <= 0 ? 0 : registers * 1e9 / wallNanos;
+    }
+
+    /**
+     * @return bytes allocated by every thread of the JVM, -1 when the JVM
+     * does not measure it
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return number of collections
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * @return time spent in collections, as reported by the collectors
+     */
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    String toCsv() {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%.6g,%d,%d,%d,%d,%d,%.1f,%d,%d,%d",
+                kind.name().toLowerCase(Locale.ROOT), epoch, batch, registers, loss, wallNanos, dataNanos,
+                forwardNanos, backwardNanos, updateNanos, getSamplesPerSecond(), allocatedBytes, gcCount, gcMillis);
+    }
+
+    @Override
+    public String toString() {
+        String phases = forwardNanos < 0 ? ""
+                : String.format(Locale.ROOT, " (data %.3f, forward %.3f, backward %.3f, update %.3f)",
+                        dataNanos / 1e9, forwardNanos / 1e9, backwardNanos / 1e9, updateNanos / 1e9);
+        return String.format(Locale.ROOT, "%s %d%s: %d registers, loss %.5f, %.3f s%s, %.0f registers/s, "
+                + "%d MB allocated, %d GC (%d ms)",
+                kind == Kind.EPOCH ? "epoch" : "batch", epoch, kind == Kind.EPOCH ? "" : "." + batch,
+                registers, loss, wallNanos / 1e9, phases, getSamplesPerSecond(),
+                allocatedBytes >> 20, gcCount, gcMillis);
+    }
+}
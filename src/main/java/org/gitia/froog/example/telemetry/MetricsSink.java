@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.telemetry;
+
+import java.io.IOException;
+
+/**
+ * Destination of the measurements of a {@link Telemetry}.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public interface MetricsSink extends AutoCloseable {
+
+    /**
+     * @param metrics measurements of a batch or an epoch
+     */
+    void accept(Metrics metrics);
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * @param sink destination of the measurements of the epochs
+     * @return a sink that drops the measurements of the batches
+     */
+    static MetricsSink epochs(MetricsSink sink) {
+        return new MetricsSink() {
+            @Override
+            public void accept(Metrics metrics) {
+                if (metrics.getKind() == Metrics.Kind.EPOCH) {
+                    sink.accept(metrics);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                sink.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the last measurements in memory, overwriting the oldest ones, so a
+ * long training can be inspected without a file growing with it.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class RingBufferSink implements MetricsSink {
+
+    private final Metrics[] buffer;
+    private long count;
+
+    /**
+     * @param capacity number of measurements kept
+     */
+    public RingBufferSink(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        buffer = new Metrics[capacity];
+    }
+
+    @Override
+    public synchronized void accept(Metrics metrics) {
+        buffer[(int) (count % buffer.length)] = metrics;
+        count++;
+    }
+
+    /**
+     * @return the measurements kept, from the oldest to the newest
+     */
+    public synchronized List<Metrics> snapshot() {
+        int size = (int) Math.min(count, buffer.length);
+        List<Metrics> list = new ArrayList<>(size);
+        for (long i = count - size; i < count; i++) {
+            list.add(buffer[(int) (i % buffer.length)]);
+        }
+        return list;
+    }
+
+    /**
+     * @return the measurements of the epochs kept, from the oldest
+     */
+    public synchronized List<Metrics> epochs() {
+        List<Metrics> list = new ArrayList<>();
+        for (Metrics m : snapshot()) {
+            if (m.getKind() == Metrics.Kind.EPOCH) {
+                list.add(m);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return number of measurements received, including the overwritten
+     * ones
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+}
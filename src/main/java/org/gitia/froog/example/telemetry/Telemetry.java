@@ -0,0 +1,269 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.telemetry;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Measures a training batch by batch and epoch by epoch and sends the
+ * {@link Metrics} to the sinks.
+ * <p>
+ * The trainer calls the hooks in this order for every batch:
+ * {@link #batchStart(long)} once the batch was received, with the time it was
+ * asked for, {@link #dataReady()}, {@link #forwardDone()},
+ * {@link #backwardDone()} and {@link #batchEnd(long, double)} after the
+ * update, between an {@link #epochStart(int)} and an {@link #epochEnd()}. The
+ * hooks must be called from the training thread.
+ * </p>
+ * <p>
+ * Trainers whose batches run on several threads, or that go over the whole
+ * data set at once, only mark the epochs: {@link #epochStart(int)} and
+ * {@link #epochEnd(long, double)}.
+ * </p>
+ * <p>
+ * The allocated bytes are the sum over every live thread of the JVM, so the
+ * allocations of the workers of the kernels are included. The GC numbers are
+ * the count and the accumulated time reported by the collectors.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class Telemetry implements AutoCloseable {
+
+    private final List<MetricsSink> sinks = new CopyOnWriteArrayList<>();
+    private final com.sun.management.ThreadMXBean threads;
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private boolean batches = true;
+
+    // epoch
+    private int epoch;
+    private int batch;
+    private long epochStart;
+    private long epochRegisters;
+    private double epochLoss;
+    private long epochData, epochForward, epochBackward, epochUpdate;
+    private long epochAllocated, epochGcCount, epochGcMillis;
+    // batch
+    private long batchStart;
+    private long mark;
+    private long batchData, batchForward, batchBackward;
+    private long batchAllocated, batchGcCount, batchGcMillis;
+
+    public Telemetry() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    /**
+     * @param sink destination of the measurements
+     * @return this instance
+     */
+    public Telemetry addSink(MetricsSink sink) {
+        sinks.add(sink);
+        return this;
+    }
+
+    /**
+     * @param batches false to send only the measurements of the epochs, which
+     * avoids reading the allocations of every thread after each batch
+     */
+    public void setBatchMetrics(boolean batches) {
+        this.batches = batches;
+    }
+
+    public void epochStart(int epoch) {
+        this.epoch = epoch;
+        batch = 0;
+        epochRegisters = 0;
+        epochLoss = 0;
+        epochData = epochForward = epochBackward = epochUpdate = 0;
+        epochAllocated = allocated();
+        epochGcCount = gcCount();
+        epochGcMillis = gcMillis();
+        epochStart = System.nanoTime();
+    }
+
+    /**
+     * Starts a batch that is already available, with no time spent waiting
+     * for it.
+     */
+    public void batchStart() {
+        batchStart(System.nanoTime());
+    }
+
+    /**
+     * Starts a batch that was just received. The time since 'requested' is
+     * the data phase, the allocations and collections are counted from now.
+     *
+     * @param requested {@link System#nanoTime()} when the batch was asked for
+     */
+    public void batchStart(long requested) {
+        if (batches) {
+            batchAllocated = allocated();
+            batchGcCount = gcCount();
+            batchGcMillis = gcMillis();
+        }
+        batchStart = requested;
+        mark = requested;
+    }
+
+    public void dataReady() {
+        batchData = lap();
+    }
+
+    public void forwardDone() {
+        batchForward = lap();
+    }
+
+    public void backwardDone() {
+        batchBackward = lap();
+    }
+
+    /**
+     * @param registers registers of the batch
+     * @param loss sum of the loss over the registers of the batch
+     */
+    public void batchEnd(long registers, double loss) {
+        long update = lap();
+        long end = mark;
+        epochRegisters += registers;
+        epochLoss += loss;
+        epochData += batchData;
+        epochForward += batchForward;
+        epochBackward += batchBackward;
+        epochUpdate += update;
+        if (batches) {
+            send(new Metrics(Metrics.Kind.BATCH, epoch, batch, registers, loss / registers, end - batchStart,
+                    batchData, batchForward, batchBackward, update, delta(allocated(), batchAllocated),
+                    gcCount() - batchGcCount, gcMillis() - batchGcMillis));
+        }
+        batch++;
+    }
+
+    public void epochEnd() {
+        long wall = System.nanoTime() - epochStart;
+        send(new Metrics(Metrics.Kind.EPOCH, epoch, -1, epochRegisters,
+                epochRegisters == 0 ? Double.NaN : epochLoss / epochRegisters, wall,
+                epochData, epochForward, epochBackward, epochUpdate, delta(allocated(), epochAllocated),
+                gcCount() - epochGcCount, gcMillis() - epochGcMillis));
+    }
+
+    /**
+     * Ends an epoch whose batches were not measured, so only the wall time,
+     * the allocations and the collections are known besides the registers
+     * and the loss given.
+     *
+     * @param registers registers presented during the epoch
+     * @param loss sum of the loss over those registers
+     */
+    public void epochEnd(long registers, double loss) {
+        long wall = System.nanoTime() - epochStart;
+        send(new Metrics(Metrics.Kind.EPOCH, epoch, -1, registers,
+                registers == 0 ? Double.NaN : loss / registers, wall, -1, -1, -1, -1,
+                delta(allocated(), epochAllocated), gcCount() - epochGcCount, gcMillis() - epochGcMillis));
+    }
+
+    /**
+     * Measures a training that does not call the hooks, such as the train
+     * method of the froog optimizers, as a single epoch. Only the wall time,
+     * the allocations and the collections are known.
+     *
+     * @param registers registers presented during the training, for the
+     * throughput
+     * @param training the training
+     */
+    public void measure(long registers, Runnable training) {
+        long allocated = allocated();
+        long count = gcCount();
+        long millis = gcMillis();
+        long start = System.nanoTime();
+        training.run();
+        long wall = System.nanoTime() - start;
+        send(new Metrics(Metrics.Kind.EPOCH, 0, -1, registers, Double.NaN, wall, -1, -1, -1, -1,
+                delta(allocated(), allocated), gcCount() - count, gcMillis() - millis));
+    }
+
+    /**
+     * Closes every sink.
+     */
+    @Override
+    public void close() throws IOException {
+        for (MetricsSink sink : sinks) {
+            sink.close();
+        }
+    }
+
+    private long lap() {
+        long now = System.nanoTime();
+        long elapsed = now - mark;
+        mark = now;
+        return elapsed;
+    }
+
+    private void send(Metrics metrics) {
+        for (MetricsSink sink : sinks) {
+            sink.accept(metrics);
+        }
+    }
+
+    private long allocated() {
+        if (threads == null) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Allocations between two readings. A thread that ends takes its count
+     * with it, so the difference is never let below 0.
+     */
+    private static long delta(long now, long before) {
+        return now < 0 || before < 0 ? -1 : Math.max(0, now - before);
+    }
+
+    private long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : collectors) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : collectors) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
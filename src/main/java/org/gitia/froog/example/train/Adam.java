@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.example.parallel.ParallelContext;
+
+/**
+ * Adam update of the parameters of a {@link Gradients}, or the plain
+ * gradient step when it is disabled. The moments are kept per layer and the
+ * step runs in blocks on the current {@link ParallelContext}.
+ * <p>
+ * The same rule updates single precision parameters given as arrays, with
+ * the moments kept in float as well.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class Adam {
+
+    // parameters updated by each task
+    private static final int UPDATE_BLOCK = 1 << 14;
+
+    private double learningRate = 0.001;
+    private boolean enabled = true;
+    private double beta1 = 0.9;
+    private double beta2 = 0.999;
+    private double epsilon = 1e-8;
+    private double[][] mW, vW, mB, vB;
+    private float[][] mF, vF;
+    private long step;
+
+    /**
+     * Applies one step with the last gradients of 'g'.
+     *
+     * @param g gradients, its parameters are modified
+     */
+    public void update(Gradients g) {
+        if (mW == null) {
+            int numLayers = g.numLayers();
+            mW = new double[numLayers][];
+            vW = new double[numLayers][];
+            mB = new double[numLayers][];
+            vB = new double[numLayers][];
+            for (int l = 0; l < numLayers; l++) {
+                mW[l] = new double[g.getW(l).getNumElements()];
+                vW[l] = new double[g.getW(l).getNumElements()];
+                mB[l] = new double[g.getB(l).getNumElements()];
+                vB[l] = new double[g.getB(l).getNumElements()];
+            }
+        }
+        step++;
+        for (int l = 0; l < g.numLayers(); l++) {
+            update(g.getW(l), g.getGradW(l), mW[l], vW[l]);
+            update(g.getB(l), g.getGradB(l), mB[l], vB[l]);
+        }
+    }
+
+    /**
+     * Applies one step to single precision parameters. The moments of
+     * params[i] are kept until {@link #reset()}, so every call must give the
+     * same arrays in the same order.
+     *
+     * @param params parameters. Modified.
+     * @param grads gradient of every array of 'params'
+     */
+    public void update(float[][] params, float[][] grads) {
+        if (params.length != grads.length) {
+            throw new IllegalArgumentException("params and grads must have the same length");
+        }
+        if (mF == null) {
+            mF = new float[params.length][];
+            vF = new float[params.length][];
+            for (int i = 0; i < params.length; i++) {
+                mF[i] = new float[params[i].length];
+                vF[i] = new float[params[i].length];
+            }
+        }
+        step++;
+        for (int i = 0; i < params.length; i++) {
+            update(params[i], grads[i], mF[i], vF[i]);
+        }
+    }
+
+    private void update(DMatrixRMaj param, DMatrixRMaj grad, double[] m, double[] v) {
+        final double[] w = param.data;
+        final double[] gr = grad.data;
+        final int size = param.getNumElements();
+        final double lr = learningRate;
+        if (!enabled) {
+            for (int i = 0; i < size; i++) {
+                w[i] -= lr * gr[i];
+            }
+            return;
+        }
+        final double b1 = beta1, b2 = beta2, eps = epsilon;
+        final double c1 = 1 / (1 - Math.pow(b1, step));
+        final double c2 = 1 / (1 - Math.pow(b2, step));
+        int blocks = (size + UPDATE_BLOCK - 1) / UPDATE_BLOCK;
+        ParallelContext.current().forEach(blocks, t -> {
+            int end = Math.min(size, (t + 1) * UPDATE_BLOCK);
+            for (int i = t * UPDATE_BLOCK; i < end; i++) {
+                m[i] = b1 * m[i] + (1 - b1) * gr[i];
+                v[i] = b2 * v[i] + (1 - b2) * gr[i] * gr[i];
+                w[i] -= lr * (m[i] * c1) / (Math.sqrt(v[i] * c2) + eps);
+            }
+        });
+    }
+
+    private void update(float[] w, float[] g, float[] m, float[] v) {
+        final int size = w.length;
+        final float lr = (float) learningRate;
+        if (!enabled) {
+            for (int i = 0; i < size; i++) {
+                w[i] -= lr * g[i];
+            }
+            return;
+        }
+        final float b1 = (float) beta1, b2 = (float) beta2, eps = (float) epsilon;
+        final float c1 = (float) (1 / (1 - Math.pow(b1, step)));
+        final float c2 = (float) (1 / (1 - Math.pow(b2, step)));
+        int blocks = (size + UPDATE_BLOCK - 1) / UPDATE_BLOCK;
+        ParallelContext.current().forEach(blocks, t -> {
+            int end = Math.min(size, (t + 1) * UPDATE_BLOCK);
+            for (int i = t * UPDATE_BLOCK; i < end; i++) {
+                m[i] = b1 * m[i] + (1 - b1) * g[i];
+                v[i] = b2 * v[i] + (1 - b2) * g[i] * g[i];
+                w[i] -= lr * (m[i] * c1) / ((float) Math.sqrt(v[i] * c2) + eps);
+            }
+        });
+    }
+
+    /**
+     * Forgets the moments, the next update starts a new run.
+     */
+    public void reset() {
+        mW = vW = mB = vB = null;
+        mF = vF = null;
+        step = 0;
+    }
+
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    /**
+     * @param beta1 decay of the first moment
+     * @param beta2 decay of the second moment
+     * @param epsilon added to the root of the second moment
+     */
+    public void setAdam(double beta1, double beta2, double epsilon) {
+        this.enabled = true;
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Uses the plain gradient step instead of Adam.
+     */
+    public void disable() {
+        this.enabled = false;
+    }
+}
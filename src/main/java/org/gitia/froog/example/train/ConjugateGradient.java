@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.telemetry.Telemetry;
+
+/**
+ * Nonlinear conjugate gradient (Polak-Ribière, restarted when beta is
+ * negative) over the whole data set, with a parallel line search: the
+ * objective is evaluated at several step lengths along the direction at the
+ * same time, and the best one is taken.
+ * <p>
+ * The steps are the last accepted one times powers of 2, half of them
+ * shorter and half of them longer. If none of them improves the objective
+ * the next ones are shorter than all of them. Every evaluation is split in
+ * blocks of registers by {@link FullBatchGradients}, the blocks of all the
+ * steps run together.
+ * </p>
+ * <p>
+ * With a {@link Telemetry} every iteration is reported as an epoch, with the
+ * registers of every evaluation it made.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class ConjugateGradient {
+
+    // times the steps are shortened before giving up on a direction
+    private static final int MAX_SEARCHES = 8;
+
+    private int epoch = 1;
+    private double regularization = 0;
+    private int steps = 8;
+    private int blockSize = FullBatchGradients.REGISTERS_PER_TASK;
+    private final List<Double> loss = new ArrayList<>();
+    private Telemetry telemetry;
+
+    /**
+     * @param net network to train. Modified.
+     * @param input [inputs x registers]. Not modified.
+     * @param output [outputs x registers]. Not modified.
+     */
+    public void train(Feedforward net, DMatrixRMaj input, DMatrixRMaj output) {
+        FullBatchGradients f = new FullBatchGradients(net, input, output, blockSize);
+        f.setRegularization(regularization);
+        int n = f.numParameters();
+        double[] w = new double[n];
+        double[] g = new double[n];
+        double[] gNew = new double[n];
+        double[] p = new double[n];
+        double[][] points = new double[steps][n];
+        double[] alphas = new double[steps];
+
+        f.getPoint(w);
+        double e = f.gradient(w, g);
+        for (int i = 0; i < n; i++) {
+            p[i] = -g[i];
+        }
+        double gg = ScaledConjugateGradient.dot(g, g);
+        double step = gg == 0 ? 1 : 1 / Math.sqrt(gg);
+        for (int k = 0; k < epoch && gg > 0; k++) {
+            if (ScaledConjugateGradient.dot(g, p) >= 0) {
+                // not a descent direction, start again from the gradient
+                for (int i = 0; i < n; i++) {
+                    p[i] = -g[i];
+                }
+            }
+            if (telemetry != null) {
+                telemetry.epochStart(k);
+            }
+            int evaluations = 0;
+            int best = -1;
+            for (int search = 0; search < MAX_SEARCHES && best < 0; search++) {
+                for (int s = 0; s < steps; s++) {
+                    alphas[s] = step * Math.pow(2, s - steps / 2);
+                    for (int i = 0; i < n; i++) {
+                        points[s][i] = w[i] + alphas[s] * p[i];
+                    }
+                }
+                double[] losses = f.losses(points);
+                evaluations += steps;
+                double min = e;
+                for (int s = 0; s < steps; s++) {
+                    if (losses[s] < min) {
+                        min = losses[s];
+                        best = s;
+                    }
+                }
+                if (best < 0) {
+                    step = alphas[0] / Math.pow(2, steps - steps / 2);
+                }
+            }
+            if (best < 0) {
+                if (telemetry != null) {
+                    long registers = (long) evaluations * input.numCols;
+                    telemetry.epochEnd(registers, e * registers);
+                }
+                break;
+            }
+            step = alphas[best];
+            System.arraycopy(points[best], 0, w, 0, n);
+            e = f.gradient(w, gNew);
+            double ggNew = 0;
+            double gOld = 0;
+            for (int i = 0; i < n; i++) {
+                ggNew += gNew[i] * gNew[i];
+                gOld += gNew[i] * g[i];
+            }
+            double beta = (k + 1) % n == 0 ? 0 : Math.max(0, (ggNew - gOld) / gg);
+            for (int i = 0; i < n; i++) {
+                p[i] = -gNew[i] + beta * p[i];
+            }
+            double[] swap = g;
+            g = gNew;
+            gNew = swap;
+            gg = ggNew;
+            loss.add(e);
+            if (telemetry != null) {
+                long registers = (long) (evaluations + 1) * input.numCols;
+                telemetry.epochEnd(registers, e * registers);
+            }
+        }
+        f.setPoint(w);
+    }
+
+    /**
+     * @param telemetry receives the measurements of every iteration, null to
+     * measure nothing
+     */
+    public void setTelemetry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * @param epoch number of iterations over the whole data set
+     */
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * @param steps step lengths evaluated at the same time in every search
+     */
+    public void setSteps(int steps) {
+        if (steps < 1) {
+            throw new IllegalArgumentException("steps must be at least 1");
+        }
+        this.steps = steps;
+    }
+
+    /**
+     * @param blockSize registers evaluated by each task
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return objective after every iteration
+     */
+    public List<Double> getLoss() {
+        return loss;
+    }
+}
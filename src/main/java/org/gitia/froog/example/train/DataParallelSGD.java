@@ -0,0 +1,332 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.Batch;
+import org.gitia.froog.example.data.BatchSource;
+import org.gitia.froog.example.parallel.ParallelContext;
+import org.gitia.froog.example.telemetry.Telemetry;
+
+/**
+ * Synchronous data-parallel mini-batch gradient descent: every batch is
+ * split in column shards, one per worker, each worker computes the
+ * gradient of its shard, the gradients are summed with a tree all-reduce
+ * and one Adam step is applied with the sum.
+ * <p>
+ * The workers are threads of their own and run the kernels serially, so the
+ * parallelism comes from the shards instead of from splitting small
+ * products. Each worker has its own {@link Gradients}, with its own
+ * activations and gradients, over the weights of the network: the weights
+ * are only read during the pass and only written by the update, after every
+ * worker is done, so in shared memory the replicas do not need a copy of
+ * them. The result is the one of {@link StreamingSGD} with the same batches,
+ * up to the order of the sums.
+ * </p>
+ * <p>
+ * The passes of a batch run on the workers, so a {@link Telemetry} only
+ * receives the measurements of every epoch.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class DataParallelSGD {
+
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int epoch = 1;
+    private double regularization = 0;
+    private final Adam adam = new Adam();
+    private final List<Double> loss = new ArrayList<>();
+    private Telemetry telemetry;
+
+    /**
+     * @param net network to train. Modified.
+     * @param source batches of every epoch, each one is split between the
+     * workers
+     * @throws IOException if the source can not be read
+     */
+    public void train(Feedforward net, BatchSource source) throws IOException {
+        Gradients[] replicas = new Gradients[workers];
+        for (int w = 0; w < workers; w++) {
+            replicas[w] = new Gradients(net);
+            replicas[w].setRegularization(regularization);
+        }
+        if (replicas[0].getW(0).numCols != source.numInputs()) {
+            throw new IllegalArgumentException("The network expects " + replicas[0].getW(0).numCols
+                    + " inputs and the source gives " + source.numInputs());
+        }
+        adam.reset();
+        try (Group group = new Group(replicas)) {
+            for (int e = 0; e < epoch; e++) {
+                if (telemetry != null) {
+                    telemetry.epochStart(e);
+                }
+                double total = 0;
+                long registers = 0;
+                for (Batch batch = source.next(); batch != null; batch = source.next()) {
+                    total += group.step(batch);
+                    registers += batch.size();
+                    source.recycle(batch);
+                    // the sum is left in the gradients of the first replica
+                    adam.update(replicas[0]);
+                }
+                if (registers == 0) {
+                    throw new IllegalStateException("The source has no registers");
+                }
+                loss.add(total / registers);
+                if (telemetry != null) {
+                    telemetry.epochEnd(registers, total);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param workers number of shards of every batch
+     */
+    public void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be at least 1");
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * @param telemetry receives the measurements of every epoch, null to
+     * measure nothing
+     */
+    public void setTelemetry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    public void setLearningRate(double learningRate) {
+        adam.setLearningRate(learningRate);
+    }
+
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * @param beta1 decay of the first moment
+     * @param beta2 decay of the second moment
+     * @param epsilon added to the root of the second moment
+     */
+    public void setAdam(double beta1, double beta2, double epsilon) {
+        adam.setAdam(beta1, beta2, epsilon);
+    }
+
+    /**
+     * Uses the plain gradient step instead of Adam.
+     */
+    public void disableAdam() {
+        adam.disable();
+    }
+
+    /**
+     * @return mean loss of every epoch
+     */
+    public List<Double> getLoss() {
+        return loss;
+    }
+
+    /**
+     * The worker threads of one training. The caller publishes a batch and
+     * waits on 'start' and 'done', the workers meet on 'round' between the
+     * rounds of the all-reduce.
+     */
+    private static class Group implements AutoCloseable {
+
+        private final Gradients[] replicas;
+        private final Thread[] threads;
+        private final ParallelContext serial = ParallelContext.create("data-parallel-serial", 1);
+        private final CyclicBarrier start;
+        private final CyclicBarrier round;
+        private final CyclicBarrier done;
+        private final double[] losses;
+        private volatile Batch batch;
+        private volatile boolean running = true;
+        private volatile Throwable error;
+
+        Group(Gradients[] replicas) {
+            int n = replicas.length;
+            this.replicas = replicas;
+            this.threads = new Thread[n];
+            this.start = new CyclicBarrier(n + 1);
+            this.round = new CyclicBarrier(n);
+            this.done = new CyclicBarrier(n + 1);
+            this.losses = new double[n];
+            for (int w = 0; w < n; w++) {
+                int worker = w;
+                threads[w] = new Thread(() -> serial.run(() -> work(worker)), "data-parallel-worker-" + w);
+                threads[w].setDaemon(true);
+                threads[w].start();
+            }
+        }
+
+        /**
+         * Runs one batch on the workers.
+         *
+         * @return sum of the loss over the registers of the batch
+         */
+        double step(Batch b) {
+            batch = b;
+            await(start);
+            await(done);
+            if (error != null) {
+                // the failing worker was the last one to reach 'done'
+                throw new IllegalStateException("A worker failed", error);
+            }
+            double total = 0;
+            for (double l : losses) {
+                total += l;
+            }
+            return total;
+        }
+
+        private void work(int w) {
+            int n = replicas.length;
+            Gradients g = replicas[w];
+            DMatrixRMaj x = new DMatrixRMaj(1, 1);
+            DMatrixRMaj y = new DMatrixRMaj(1, 1);
+            try {
+                while (true) {
+                    start.await();
+                    if (!running) {
+                        return;
+                    }
+                    Batch b = batch;
+                    int cols = b.size();
+                    int c0 = (int) ((long) cols * w / n);
+                    int c1 = (int) ((long) cols * (w + 1) / n);
+                    if (c1 > c0) {
+                        x.reshape(b.input.numRows, c1 - c0);
+                        y.reshape(b.output.numRows, c1 - c0);
+                        CommonOps_DDRM.extract(b.input, 0, b.input.numRows, c0, c1, x, 0, 0);
+                        CommonOps_DDRM.extract(b.output, 0, b.output.numRows, c0, c1, y, 0, 0);
+                        losses[w] = g.compute(x, y);
+                        // the gradient of the shard is its mean, weight it by its share of the batch
+                        double share = (double) (c1 - c0) / cols;
+                        for (int l = 0; l < g.numLayers(); l++) {
+                            CommonOps_DDRM.scale(share, g.getGradW(l));
+                            CommonOps_DDRM.scale(share, g.getGradB(l));
+                        }
+                    } else {
+                        losses[w] = 0;
+                        for (int l = 0; l < g.numLayers(); l++) {
+                            CommonOps_DDRM.fill(g.getGradW(l), 0);
+                            CommonOps_DDRM.fill(g.getGradB(l), 0);
+                        }
+                    }
+                    // tree all-reduce: in every round the worker w adds the
+                    // gradients of w + stride, the sum ends in worker 0
+                    for (int stride = 1; stride < n; stride *= 2) {
+                        round.await();
+                        if (w % (2 * stride) == 0 && w + stride < n) {
+                            Gradients other = replicas[w + stride];
+                            for (int l = 0; l < g.numLayers(); l++) {
+                                CommonOps_DDRM.addEquals(g.getGradW(l), other.getGradW(l));
+                                CommonOps_DDRM.addEquals(g.getGradB(l), other.getGradB(l));
+                            }
+                        }
+                    }
+                    done.await();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (BrokenBarrierException ex) {
+                // another thread failed or the group was closed
+            } catch (Throwable ex) {
+                fail(ex);
+            }
+        }
+
+        /**
+         * Records the first failure and stops the group without re-arming the
+         * barriers: the other workers are interrupted, so the barrier they
+         * wait on, or the next one they reach, breaks, and 'done' is broken
+         * to release the caller.
+         */
+        private void fail(Throwable failure) {
+            synchronized (this) {
+                if (error == null) {
+                    error = failure;
+                }
+            }
+            for (Thread t : threads) {
+                if (t != Thread.currentThread()) {
+                    t.interrupt();
+                }
+            }
+            try {
+                done.await(0, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (BrokenBarrierException | TimeoutException ex) {
+                // broken, as expected
+            }
+        }
+
+        private void await(CyclicBarrier barrier) {
+            try {
+                barrier.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the workers", ex);
+            } catch (BrokenBarrierException ex) {
+                throw new IllegalStateException("A worker failed", error != null ? error : ex);
+            }
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            if (error == null && !start.isBroken()) {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (BrokenBarrierException ex) {
+                    // the workers are gone already
+                }
+            }
+            for (Thread t : threads) {
+                t.interrupt();
+            }
+            try {
+                for (Thread t : threads) {
+                    t.join();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            serial.close();
+        }
+    }
+}
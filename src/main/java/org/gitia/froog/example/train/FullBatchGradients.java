@@ -0,0 +1,349 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DSubmatrixD1;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.parallel.ParallelContext;
+
+/**
+ * Loss and gradient of a network over a whole data set, for the optimizers
+ * that work with full batches. The parameters are a point, a vector with
+ * the weights and the bias of every layer one after the other.
+ * <p>
+ * The registers are split in blocks, evaluated in parallel on the current
+ * {@link ParallelContext} and read in place from the data. Each task takes
+ * a replica of the network with its own weights and buffers from a pool, so
+ * several points can be evaluated at the same time. The gradient of every
+ * block is added to one of a fixed number of accumulators, each one takes a
+ * contiguous range of blocks in order, and the accumulators are added in
+ * order, so the result does not depend on the number of cores.
+ * </p>
+ * <p>
+ * The objective is the mean loss over the registers plus
+ * regularization / 2 times the sum of the squared weights (not the bias).
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class FullBatchGradients implements Objective {
+
+    // registers evaluated by each task
+    static final int REGISTERS_PER_TASK = 4096;
+    // gradients summed at the same time, each one over a range of blocks
+    static final int ACCUMULATORS = 16;
+
+    private final Gradients model;
+    private final DMatrixRMaj input;
+    private final DMatrixRMaj output;
+    private final int blockSize;
+    private final int blocks;
+    private final int parameters;
+    // sum of the gradients of a range of blocks, times their registers
+    private double[][] accumulators;
+    private final Queue<Replica> pool = new ConcurrentLinkedQueue<>();
+    private double regularization;
+    private long generation;
+
+    /**
+     * @param net network, its weights are the point of {@link #getPoint}
+     * @param input [inputs x registers]. Not modified.
+     * @param output [outputs x registers]. Not modified.
+     */
+    public FullBatchGradients(Feedforward net, DMatrixRMaj input, DMatrixRMaj output) {
+        this(net, input, output, REGISTERS_PER_TASK);
+    }
+
+    /**
+     * @param net network, its weights are the point of {@link #getPoint}
+     * @param input [inputs x registers]. Not modified.
+     * @param output [outputs x registers]. Not modified.
+     * @param blockSize registers evaluated by each task
+     */
+    public FullBatchGradients(Feedforward net, DMatrixRMaj input, DMatrixRMaj output, int blockSize) {
+        if (input.numCols != output.numCols) {
+            throw new IllegalArgumentException("input and output must have the same number of registers");
+        }
+        if (input.numCols == 0) {
+            throw new IllegalArgumentException("There are no registers");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be at least 1");
+        }
+        this.model = new Gradients(net);
+        if (model.getW(0).numCols != input.numRows) {
+            throw new IllegalArgumentException("The network expects " + model.getW(0).numCols
+                    + " inputs and the data has " + input.numRows);
+        }
+        this.input = input;
+        this.output = output;
+        this.blockSize = blockSize;
+        this.blocks = (input.numCols + blockSize - 1) / blockSize;
+        this.parameters = numParameters(model);
+    }
+
+    @Override
+    public int numParameters() {
+        return parameters;
+    }
+
+    @Override
+    public int numRegisters() {
+        return input.numCols;
+    }
+
+    @Override
+    public void getPoint(double[] point) {
+        store(model, point);
+    }
+
+    @Override
+    public void setPoint(double[] point) {
+        load(point, model);
+    }
+
+    @Override
+    public double gradient(double[] point, double[] gradient) {
+        int count = Math.min(blocks, ACCUMULATORS);
+        if (accumulators == null) {
+            accumulators = new double[count][parameters];
+        }
+        double[] losses = new double[count];
+        long id = ++generation;
+        ParallelContext.current().forEach(count, k -> {
+            Replica r = take(id, point);
+            try {
+                double[] sum = accumulators[k];
+                int first = (int) ((long) blocks * k / count);
+                int last = (int) ((long) blocks * (k + 1) / count);
+                for (int t = first; t < last; t++) {
+                    int cols = r.view(t);
+                    losses[k] += r.g.compute(r.x, r.y);
+                    // the gradient of the block is its mean, keep the sum
+                    int offset = 0;
+                    for (int l = 0; l < r.g.numLayers(); l++) {
+                        offset = add(t == first, cols, r.g.getGradW(l), sum, offset);
+                        offset = add(t == first, cols, r.g.getGradB(l), sum, offset);
+                    }
+                }
+            } finally {
+                pool.add(r);
+            }
+        });
+        System.arraycopy(accumulators[0], 0, gradient, 0, parameters);
+        for (int k = 1; k < count; k++) {
+            double[] sum = accumulators[k];
+            for (int i = 0; i < parameters; i++) {
+                gradient[i] += sum[i];
+            }
+        }
+        double n = input.numCols;
+        for (int i = 0; i < parameters; i++) {
+            gradient[i] /= n;
+        }
+        addWeights(regularization, point, gradient, model);
+        return sum(losses) / n + penalty(regularization, point, model);
+    }
+
+    /**
+     * Evaluates every point at the same time, each task is one block of one
+     * point.
+     *
+     * @param points where to evaluate. Not modified.
+     * @return objective at every point
+     */
+    public double[] losses(double[]... points) {
+        int count = points.length;
+        double[][] losses = new double[count][blocks];
+        long first = generation + 1;
+        generation += count;
+        ParallelContext.current().forEach(count * blocks, task -> {
+            int p = task / blocks;
+            Replica r = take(first + p, points[p]);
+            try {
+                r.view(task % blocks);
+                losses[p][task % blocks] = r.g.loss(r.x, r.y);
+            } finally {
+                pool.add(r);
+            }
+        });
+        double[] result = new double[count];
+        for (int p = 0; p < count; p++) {
+            result[p] = sum(losses[p]) / input.numCols + penalty(regularization, points[p], model);
+        }
+        return result;
+    }
+
+    /**
+     * @param regularization weight of the L2 term of the weights
+     */
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * @return a replica with the point loaded
+     */
+    private Replica take(long id, double[] point) {
+        Replica r = pool.poll();
+        if (r == null) {
+            r = new Replica(model.copy());
+        }
+        if (r.loaded != id) {
+            load(point, r.g);
+            r.loaded = id;
+        }
+        return r;
+    }
+
+    /**
+     * @return regularization / 2 times the sum of the squared weights of
+     * the point, the bias are not regularized
+     */
+    static double penalty(double regularization, double[] point, Gradients shape) {
+        if (regularization == 0) {
+            return 0;
+        }
+        double total = 0;
+        int offset = 0;
+        for (int l = 0; l < shape.numLayers(); l++) {
+            int size = shape.getW(l).getNumElements();
+            for (int i = offset; i < offset + size; i++) {
+                total += point[i] * point[i];
+            }
+            offset += size + shape.getB(l).getNumElements();
+        }
+        return 0.5 * regularization * total;
+    }
+
+    /**
+     * gradient += regularization * the weights of the point.
+     */
+    static void addWeights(double regularization, double[] point, double[] gradient, Gradients shape) {
+        if (regularization == 0) {
+            return;
+        }
+        int offset = 0;
+        for (int l = 0; l < shape.numLayers(); l++) {
+            int size = shape.getW(l).getNumElements();
+            for (int i = offset; i < offset + size; i++) {
+                gradient[i] += regularization * point[i];
+            }
+            offset += size + shape.getB(l).getNumElements();
+        }
+    }
+
+    /**
+     * @return number of weights and bias of the network of g
+     */
+    static int numParameters(Gradients g) {
+        int n = 0;
+        for (int l = 0; l < g.numLayers(); l++) {
+            n += g.getW(l).getNumElements() + g.getB(l).getNumElements();
+        }
+        return n;
+    }
+
+    /**
+     * Copies the weights and bias of g to the point.
+     */
+    static void store(Gradients g, double[] point) {
+        int offset = 0;
+        for (int l = 0; l < g.numLayers(); l++) {
+            DMatrixRMaj w = g.getW(l);
+            DMatrixRMaj b = g.getB(l);
+            System.arraycopy(w.data, 0, point, offset, w.getNumElements());
+            offset += w.getNumElements();
+            System.arraycopy(b.data, 0, point, offset, b.getNumElements());
+            offset += b.getNumElements();
+        }
+    }
+
+    /**
+     * Copies the point to the weights and bias of g.
+     */
+    static void load(double[] point, Gradients g) {
+        int offset = 0;
+        for (int l = 0; l < g.numLayers(); l++) {
+            DMatrixRMaj w = g.getW(l);
+            DMatrixRMaj b = g.getB(l);
+            System.arraycopy(point, offset, w.data, 0, w.getNumElements());
+            offset += w.getNumElements();
+            System.arraycopy(point, offset, b.data, 0, b.getNumElements());
+            offset += b.getNumElements();
+        }
+    }
+
+    /**
+     * target = alpha * m, or target += alpha * m when 'first' is not set,
+     * from the offset.
+     *
+     * @return offset after m
+     */
+    private static int add(boolean first, double alpha, DMatrixRMaj m, double[] target, int offset) {
+        double[] data = m.data;
+        int size = m.getNumElements();
+        if (first) {
+            for (int i = 0; i < size; i++) {
+                target[offset + i] = alpha * data[i];
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                target[offset + i] += alpha * data[i];
+            }
+        }
+        return offset + size;
+    }
+
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double v : values) {
+            total += v;
+        }
+        return total;
+    }
+
+    /**
+     * Network of one task with the views of the block it evaluates.
+     */
+    private class Replica {
+
+        final Gradients g;
+        final DSubmatrixD1 x = new DSubmatrixD1();
+        final DSubmatrixD1 y = new DSubmatrixD1();
+        long loaded;
+
+        Replica(Gradients g) {
+            this.g = g;
+            // the L2 term is added once to the whole gradient
+            g.setRegularization(0);
+        }
+
+        /**
+         * @return registers of the block
+         */
+        int view(int block) {
+            int c0 = block * blockSize;
+            int c1 = Math.min(input.numCols, c0 + blockSize);
+            x.set(input, 0, input.numRows, c0, c1);
+            y.set(output, 0, output.numRows, c0, c1);
+            return c1 - c0;
+        }
+    }
+}
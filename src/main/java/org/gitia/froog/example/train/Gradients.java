@@ -0,0 +1,338 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.util.List;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DSubmatrixD1;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.inference.Activation;
+import org.gitia.froog.example.parallel.CommonOps_DDRM_Parallel;
+import org.gitia.froog.example.parallel.MatrixMatrixMult_DDRM_Parallel;
+import org.gitia.froog.layer.Dense;
+
+/**
+ * Gradient of the loss of a {@link Feedforward} over a batch in horizontal
+ * format (a column is a register), with every buffer allocated once.
+ * <p>
+ * The weights are the matrices of the layers themselves, so a step written
+ * in {@link #getW(int)} and {@link #getB(int)} trains the network. A softmax
+ * output layer uses cross entropy (the delta of the output is A - Y), any
+ * other output layer the mean squared error. The gradients are averaged over
+ * the registers of the batch.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class Gradients {
+
+    private final DMatrixRMaj[] w;
+    private final DMatrixRMaj[] b;
+    private final Activation[] functions;
+    private final boolean softmax;
+    private final DMatrixRMaj[] a;
+    private final DMatrixRMaj[] delta;
+    private final DMatrixRMaj[] gradW;
+    private final DMatrixRMaj[] gradB;
+    private double regularization;
+
+    /**
+     * @param net network to train
+     */
+    public Gradients(Feedforward net) {
+        List<Dense> layers = net.getLayers();
+        int numLayers = layers.size();
+        w = new DMatrixRMaj[numLayers];
+        b = new DMatrixRMaj[numLayers];
+        functions = new Activation[numLayers];
+        a = new DMatrixRMaj[numLayers];
+        delta = new DMatrixRMaj[numLayers];
+        gradW = new DMatrixRMaj[numLayers];
+        gradB = new DMatrixRMaj[numLayers];
+        for (int l = 0; l < numLayers; l++) {
+            Dense layer = layers.get(l);
+            w[l] = layer.getW().getDDRM();
+            b[l] = layer.getB().getDDRM();
+            functions[l] = Activation.of(layer.getFunction());
+            if (functions[l] == Activation.SOFTMAX && l < numLayers - 1) {
+                throw new IllegalArgumentException("softmax is only supported in the output layer");
+            }
+            a[l] = new DMatrixRMaj(w[l].numRows, 1);
+            delta[l] = new DMatrixRMaj(w[l].numRows, 1);
+            gradW[l] = new DMatrixRMaj(w[l].numRows, w[l].numCols);
+            gradB[l] = new DMatrixRMaj(w[l].numRows, 1);
+        }
+        softmax = functions[numLayers - 1] == Activation.SOFTMAX;
+    }
+
+    private Gradients(Gradients other) {
+        int numLayers = other.w.length;
+        w = new DMatrixRMaj[numLayers];
+        b = new DMatrixRMaj[numLayers];
+        functions = other.functions;
+        softmax = other.softmax;
+        a = new DMatrixRMaj[numLayers];
+        delta = new DMatrixRMaj[numLayers];
+        gradW = new DMatrixRMaj[numLayers];
+        gradB = new DMatrixRMaj[numLayers];
+        regularization = other.regularization;
+        for (int l = 0; l < numLayers; l++) {
+            w[l] = other.w[l].copy();
+            b[l] = other.b[l].copy();
+            a[l] = new DMatrixRMaj(w[l].numRows, 1);
+            delta[l] = new DMatrixRMaj(w[l].numRows, 1);
+            gradW[l] = new DMatrixRMaj(w[l].numRows, w[l].numCols);
+            gradB[l] = new DMatrixRMaj(w[l].numRows, 1);
+        }
+    }
+
+    /**
+     * @return gradients over a copy of the weights and bias, not shared with
+     * the network, to evaluate other points while this one is in use
+     */
+    public Gradients copy() {
+        return new Gradients(this);
+    }
+
+    /**
+     * Forward and backward pass over one batch. The gradients are left in
+     * {@link #getGradW(int)} and {@link #getGradB(int)}.
+     *
+     * @param x input, [inputs x registers]. Not modified.
+     * @param y expected output, [outputs x registers]. Not modified.
+     * @return sum over the registers of the cross entropy, or of half the
+     * squared error
+     */
+    public double compute(DMatrixRMaj x, DMatrixRMaj y) {
+        forward(x);
+        return backward(x, y);
+    }
+
+    /**
+     * {@link #compute(DMatrixRMaj, DMatrixRMaj)} over a block of registers
+     * read in place, without copying it.
+     *
+     * @param x view of the input, [inputs x registers]. Not modified.
+     * @param y view of the expected output, [outputs x registers]. Not
+     * modified.
+     * @return sum over the registers of the cross entropy, or of half the
+     * squared error
+     */
+    public double compute(DSubmatrixD1 x, DSubmatrixD1 y) {
+        if (y.getCols() != x.getCols()) {
+            throw new IllegalArgumentException("x and y must have the same number of registers");
+        }
+        forward(x);
+        // the delta of the output is built over a copy of y
+        double loss = outputDelta(expected(y));
+        backwardHidden();
+        gradients(0, null, x);
+        return loss;
+    }
+
+    /**
+     * Backward pass over the activations left by {@link #forward} for the
+     * same batch.
+     *
+     * @param x input given to the forward pass. Not modified.
+     * @param y expected output, [outputs x registers]. Not modified.
+     * @return sum over the registers of the cross entropy, or of half the
+     * squared error
+     */
+    public double backward(DMatrixRMaj x, DMatrixRMaj y) {
+        if (y.numCols != x.numCols) {
+            throw new IllegalArgumentException("x and y must have the same number of registers");
+        }
+        double loss = outputDelta(y);
+        backwardHidden();
+        gradients(0, x, null);
+        return loss;
+    }
+
+    /**
+     * Delta of the output layer, averaged over the batch.
+     *
+     * @param y expected output, it may be the delta itself
+     * @return loss of the batch
+     */
+    private double outputDelta(DMatrixRMaj y) {
+        int numLayers = w.length;
+        DMatrixRMaj out = a[numLayers - 1];
+        DMatrixRMaj d = delta[numLayers - 1];
+        double loss = functions[numLayers - 1].loss(out.data, y.data, out.getNumElements());
+        CommonOps_DDRM_Parallel.subtract(out, y, d);
+        if (!softmax) {
+            functions[numLayers - 1].derivative(out.data, d.data, out.numRows, out.numCols);
+        }
+        CommonOps_DDRM_Parallel.scale_parallel(1.0 / out.numCols, d);
+        return loss;
+    }
+
+    /**
+     * Gradients of the layers after the first one, down to the delta of the
+     * first layer.
+     */
+    private void backwardHidden() {
+        for (int l = w.length - 1; l > 0; l--) {
+            DMatrixRMaj prev = a[l - 1];
+            gradients(l, prev, null);
+            delta[l - 1].reshape(prev.numRows, prev.numCols);
+            MatrixMatrixMult_DDRM_Parallel.multTransA_reorder(w[l], delta[l], delta[l - 1]);
+            functions[l - 1].derivative(prev.data, delta[l - 1].data, prev.numRows, prev.numCols);
+        }
+    }
+
+    /**
+     * Gradients of a layer from its delta and its input, given as a matrix
+     * or as a view.
+     */
+    private void gradients(int l, DMatrixRMaj in, DSubmatrixD1 view) {
+        if (view == null) {
+            MatrixMatrixMult_DDRM_Parallel.multTransB_reorder(delta[l], in, gradW[l]);
+        } else {
+            MatrixMatrixMult_DDRM_Parallel.multTransB_reorder(delta[l], view, gradW[l]);
+        }
+        CommonOps_DDRM_Parallel.sumRows(delta[l], gradB[l]);
+        if (regularization != 0) {
+            CommonOps_DDRM_Parallel.addEquals(gradW[l], regularization, w[l]);
+        }
+    }
+
+    /**
+     * Copies the view of the expected output to the delta of the output
+     * layer, where the delta is computed afterwards.
+     */
+    private DMatrixRMaj expected(DSubmatrixD1 y) {
+        DMatrixRMaj d = delta[w.length - 1];
+        int rows = y.getRows();
+        int cols = y.getCols();
+        d.reshape(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(y.original.data, (y.row0 + i) * y.original.numCols + y.col0, d.data, i * cols, cols);
+        }
+        return d;
+    }
+
+    /**
+     * Forward pass only, the gradients are not modified.
+     *
+     * @param x input, [inputs x registers]. Not modified.
+     * @param y expected output, [outputs x registers]. Not modified.
+     * @return sum over the registers of the cross entropy, or of half the
+     * squared error
+     */
+    public double loss(DMatrixRMaj x, DMatrixRMaj y) {
+        if (y.numCols != x.numCols) {
+            throw new IllegalArgumentException("x and y must have the same number of registers");
+        }
+        DMatrixRMaj out = forward(x);
+        return functions[w.length - 1].loss(out.data, y.data, out.getNumElements());
+    }
+
+    /**
+     * {@link #loss(DMatrixRMaj, DMatrixRMaj)} over a block of registers read
+     * in place.
+     *
+     * @param x view of the input, [inputs x registers]. Not modified.
+     * @param y view of the expected output, [outputs x registers]. Not
+     * modified.
+     * @return sum over the registers of the cross entropy, or of half the
+     * squared error
+     */
+    public double loss(DSubmatrixD1 x, DSubmatrixD1 y) {
+        if (y.getCols() != x.getCols()) {
+            throw new IllegalArgumentException("x and y must have the same number of registers");
+        }
+        DMatrixRMaj out = forward(x);
+        return functions[w.length - 1].loss(out.data, expected(y).data, out.getNumElements());
+    }
+
+    /**
+     * @param x input, [inputs x registers]. Not modified.
+     * @return output of the last layer. It is overwritten by the next call.
+     */
+    public DMatrixRMaj forward(DMatrixRMaj x) {
+        a[0].reshape(w[0].numRows, x.numCols);
+        MatrixMatrixMult_DDRM_Parallel.multAddBias(w[0], x, b[0], functions[0].kernel(), a[0]);
+        return forwardHidden();
+    }
+
+    /**
+     * @param x view of the input, [inputs x registers]. Not modified.
+     * @return output of the last layer. It is overwritten by the next call.
+     */
+    public DMatrixRMaj forward(DSubmatrixD1 x) {
+        a[0].reshape(w[0].numRows, x.getCols());
+        MatrixMatrixMult_DDRM_Parallel.multAddBias(w[0], x, b[0], functions[0].kernel(), a[0]);
+        return forwardHidden();
+    }
+
+    /**
+     * Forward pass of the layers after the first one.
+     */
+    private DMatrixRMaj forwardHidden() {
+        for (int l = 1; l < w.length; l++) {
+            a[l].reshape(w[l].numRows, a[l - 1].numCols);
+            MatrixMatrixMult_DDRM_Parallel.multAddBias(w[l], a[l - 1], b[l], functions[l].kernel(), a[l]);
+        }
+        return a[w.length - 1];
+    }
+
+    /**
+     * Adds to every gradient the L2 term regularization * W.
+     *
+     * @param regularization weight of the term, 0 disables it
+     */
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    public int numLayers() {
+        return w.length;
+    }
+
+    /**
+     * @param layer index of the layer
+     * @return weights of the layer, shared with the network
+     */
+    public DMatrixRMaj getW(int layer) {
+        return w[layer];
+    }
+
+    /**
+     * @param layer index of the layer
+     * @return bias of the layer, shared with the network
+     */
+    public DMatrixRMaj getB(int layer) {
+        return b[layer];
+    }
+
+    /**
+     * @param layer index of the layer
+     * @return gradient of the weights of the last {@link #compute}
+     */
+    public DMatrixRMaj getGradW(int layer) {
+        return gradW[layer];
+    }
+
+    /**
+     * @param layer index of the layer
+     * @return gradient of the bias of the last {@link #compute}
+     */
+    public DMatrixRMaj getGradB(int layer) {
+        return gradB[layer];
+    }
+}
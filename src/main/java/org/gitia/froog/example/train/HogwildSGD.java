@@ -0,0 +1,251 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.Batch;
+import org.gitia.froog.example.data.BatchSource;
+import org.gitia.froog.example.parallel.ParallelContext;
+import org.gitia.froog.example.telemetry.Telemetry;
+
+/**
+ * Asynchronous mini-batch gradient descent in the Hogwild style: several
+ * threads take batches from the same source, compute their gradient over the
+ * current weights and subtract it from the weights of the network without
+ * waiting for each other.
+ * <p>
+ * With {@link Writes#PLAIN} the step is written without any lock, so a
+ * thread may read weights half updated by another one and two updates of
+ * the same weight may overwrite each other; the method relies on those
+ * collisions being rare and harmless. {@link Writes#LOCKED_STRIPES} takes a
+ * monitor over each stripe of weights while its step is written, so no
+ * update is lost, at the cost of some contention. The step is the plain gradient step, the
+ * moments of Adam would be shared state too.
+ * </p>
+ * <p>
+ * The batches run on several threads, so a {@link Telemetry} only receives
+ * the measurements of every epoch.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class HogwildSGD {
+
+    // weights covered by each lock in the LOCKED_STRIPES mode
+    private static final int STRIPE = 4096;
+
+    /**
+     * How the threads write their steps into the shared weights.
+     */
+    public enum Writes {
+        /**
+         * Unsynchronized writes, updates may be lost.
+         */
+        PLAIN,
+        /**
+         * Every stripe of weights is written inside a synchronized block.
+         */
+        LOCKED_STRIPES
+    }
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int epoch = 1;
+    private double learningRate = 0.01;
+    private double regularization = 0;
+    private Writes writes = Writes.PLAIN;
+    private final List<Double> loss = new ArrayList<>();
+    private Telemetry telemetry;
+
+    /**
+     * @param net network to train. Modified.
+     * @param source batches of every epoch, shared by the threads
+     * @throws IOException if the source can not be read
+     */
+    public void train(Feedforward net, BatchSource source) throws IOException {
+        Gradients[] replicas = new Gradients[threads];
+        for (int t = 0; t < threads; t++) {
+            replicas[t] = new Gradients(net);
+            replicas[t].setRegularization(regularization);
+        }
+        if (replicas[0].getW(0).numCols != source.numInputs()) {
+            throw new IllegalArgumentException("The network expects " + replicas[0].getW(0).numCols
+                    + " inputs and the source gives " + source.numInputs());
+        }
+        // locks[2 * l] cover the weights of layer l and locks[2 * l + 1] its bias
+        Object[][] locks = new Object[2 * replicas[0].numLayers()][];
+        for (int l = 0; l < locks.length; l++) {
+            int size = l % 2 == 0 ? replicas[0].getW(l / 2).getNumElements() : replicas[0].getB(l / 2).getNumElements();
+            locks[l] = new Object[(size + STRIPE - 1) / STRIPE];
+            for (int s = 0; s < locks[l].length; s++) {
+                locks[l][s] = new Object();
+            }
+        }
+
+        try (ParallelContext serial = ParallelContext.create("hogwild-serial", 1)) {
+            for (int e = 0; e < epoch; e++) {
+                if (telemetry != null) {
+                    telemetry.epochStart(e);
+                }
+                Epoch state = new Epoch(source, threads);
+                Thread[] workers = new Thread[threads];
+                for (int t = 0; t < threads; t++) {
+                    int id = t;
+                    workers[t] = new Thread(() -> serial.run(() -> state.work(id, replicas[id], locks)),
+                            "hogwild-" + t);
+                    workers[t].start();
+                }
+                try {
+                    for (Thread w : workers) {
+                        w.join();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while training", ex);
+                }
+                if (state.error instanceof IOException) {
+                    throw (IOException) state.error;
+                } else if (state.error != null) {
+                    throw new IllegalStateException("A training thread failed", state.error);
+                }
+                double total = 0;
+                long registers = 0;
+                for (int t = 0; t < threads; t++) {
+                    total += state.losses[t];
+                    registers += state.registers[t];
+                }
+                if (registers == 0) {
+                    throw new IllegalStateException("The source has no registers");
+                }
+                loss.add(total / registers);
+                if (telemetry != null) {
+                    telemetry.epochEnd(registers, total);
+                }
+            }
+        }
+    }
+
+    /**
+     * w = w - learningRate * g, written as chosen by {@link #setWrites}.
+     */
+    private void step(double[] w, double[] g, Object[] locks) {
+        final double lr = learningRate;
+        if (writes == Writes.PLAIN) {
+            for (int i = 0; i < g.length && i < w.length; i++) {
+                w[i] -= lr * g[i];
+            }
+            return;
+        }
+        int size = Math.min(g.length, w.length);
+        for (int s = 0, start = 0; start < size; s++, start += STRIPE) {
+            int end = Math.min(size, start + STRIPE);
+            synchronized (locks[s]) {
+                for (int i = start; i < end; i++) {
+                    w[i] -= lr * g[i];
+                }
+            }
+        }
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @param telemetry receives the measurements of every epoch, null to
+     * measure nothing
+     */
+    public void setTelemetry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    public void setLearningRate(double learningRate) {
+        this.learningRate = learningRate;
+    }
+
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * @param writes how the steps are written into the shared weights
+     */
+    public void setWrites(Writes writes) {
+        this.writes = writes;
+    }
+
+    /**
+     * @return mean loss of every epoch, measured before each step
+     */
+    public List<Double> getLoss() {
+        return loss;
+    }
+
+    /**
+     * Batches of one epoch shared by the threads. The source is read under
+     * a lock and the first null ends the epoch for every thread.
+     */
+    private class Epoch {
+
+        private final BatchSource source;
+        private boolean over;
+        final double[] losses;
+        final long[] registers;
+        volatile Throwable error;
+
+        Epoch(BatchSource source, int threads) {
+            this.source = source;
+            this.losses = new double[threads];
+            this.registers = new long[threads];
+        }
+
+        private Batch next() throws IOException {
+            synchronized (source) {
+                if (over) {
+                    return null;
+                }
+                Batch b = source.next();
+                over = b == null;
+                return b;
+            }
+        }
+
+        void work(int id, Gradients g, Object[][] locks) {
+            try {
+                for (Batch b = next(); b != null && error == null; b = next()) {
+                    losses[id] += g.compute(b.input, b.output);
+                    registers[id] += b.size();
+                    source.recycle(b);
+                    for (int l = 0; l < g.numLayers(); l++) {
+                        step(g.getW(l).data, g.getGradW(l).data, locks[2 * l]);
+                        step(g.getB(l).data, g.getGradB(l).data, locks[2 * l + 1]);
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                error = ex;
+            }
+        }
+    }
+}
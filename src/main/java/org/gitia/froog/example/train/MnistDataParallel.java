@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.io.IOException;
+import java.util.Random;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.DatasetConverter;
+import org.gitia.froog.example.data.FeatureScaling;
+import org.gitia.froog.example.data.MappedDataset;
+import org.gitia.froog.example.data.MappedDataset.Type;
+import org.gitia.froog.example.data.MatrixBatchSource;
+import org.gitia.froog.example.inference.ChunkedInference;
+import org.gitia.froog.example.statistics.ConfusionCounts;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.layer.initialization.WeightInit;
+import org.gitia.froog.statistics.Clock;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * Trains the MnistSGD network with {@link DataParallelSGD}. The first
+ * argument is the number of workers (all the cores by default) and the
+ * second one the registers of every worker in a batch (32 by default), so
+ * the batch grows with the workers.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MnistDataParallel {
+
+    static final String IN = "src/main/resources/mnist/mnist_train_in_50000.csv";
+    static final String OUT = "src/main/resources/mnist/mnist_train_out_50000.csv";
+
+    public static void main(String[] args) throws IOException {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int perWorker = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+
+        MappedDataset in = DatasetConverter.cached(IN, Type.FLOAT64);
+        MappedDataset out = DatasetConverter.cached(OUT, Type.FLOAT64);
+        DMatrixRMaj input = FeatureScaling.fit(in).transform(in, null);
+        DMatrixRMaj output = out.columns(0, out.numRegisters(), (DMatrixRMaj) null);
+
+        Random r = new Random(1);
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(input.numRows, 300, TransferFunction.TANSIG, WeightInit.DEFAULT, r));
+        net.addLayer(new Dense(300, output.numRows, TransferFunction.SOFTMAX, r));
+
+        DataParallelSGD sgd = new DataParallelSGD();
+        sgd.setWorkers(workers);
+        sgd.setLearningRate(0.001);
+        sgd.setRegularization(1e-4);
+        sgd.setEpoch(10);
+        sgd.setAdam(0.9, 0.999, 1e-8);
+
+        Clock clock = new Clock();
+        clock.start();
+        sgd.train(net, new MatrixBatchSource(input, output, workers * perWorker, new Random(1)));
+        clock.stop();
+        System.out.println("workers: " + workers + "\tbatch: " + workers * perWorker
+                + "\ttime (s): " + clock.timeSec());
+        System.out.println("loss: " + sgd.getLoss());
+
+        DMatrixRMaj result = new ChunkedInference(net, 1024).output(input, null);
+        ConfusionCounts.of(result, output).printStats();
+    }
+}
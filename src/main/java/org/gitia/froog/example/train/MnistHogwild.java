@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.io.IOException;
+import java.util.Random;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.DatasetConverter;
+import org.gitia.froog.example.data.FeatureScaling;
+import org.gitia.froog.example.data.MappedDataset;
+import org.gitia.froog.example.data.MappedDataset.Type;
+import org.gitia.froog.example.data.MatrixBatchSource;
+import org.gitia.froog.example.inference.ChunkedInference;
+import org.gitia.froog.example.statistics.ConfusionCounts;
+import org.gitia.froog.example.telemetry.Metrics;
+import org.gitia.froog.example.telemetry.RingBufferSink;
+import org.gitia.froog.example.telemetry.Telemetry;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.layer.initialization.WeightInit;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * Compares {@link HogwildSGD} on several threads with the same trainer on a
+ * single one, the serial baseline, over the same network, batches and
+ * initial weights. The first argument is the number of threads (all the
+ * cores by default) and the second one "locked" to write the steps under
+ * {@link HogwildSGD.Writes#LOCKED_STRIPES}. For each run it prints the
+ * registers per second and the accuracy over the training and the test set.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MnistHogwild {
+
+    static final String IN = "src/main/resources/mnist/mnist_train_in_50000.csv";
+    static final String OUT = "src/main/resources/mnist/mnist_train_out_50000.csv";
+    static final String TEST_IN = "src/main/resources/mnist/mnist_test_in.csv";
+    static final String TEST_OUT = "src/main/resources/mnist/mnist_test_out.csv";
+
+    public static void main(String[] args) throws IOException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        boolean locked = args.length > 1 && args[1].equals("locked");
+        int epoch = 10;
+
+        MappedDataset in = DatasetConverter.cached(IN, Type.FLOAT64);
+        MappedDataset out = DatasetConverter.cached(OUT, Type.FLOAT64);
+        FeatureScaling scaling = FeatureScaling.fit(in);
+        DMatrixRMaj input = scaling.transform(in, null);
+        DMatrixRMaj output = out.columns(0, out.numRegisters(), (DMatrixRMaj) null);
+        //el conjunto de prueba se escala con la estadística del entrenamiento
+        MappedDataset testIn = DatasetConverter.cached(TEST_IN, Type.FLOAT64);
+        MappedDataset testOut = DatasetConverter.cached(TEST_OUT, Type.FLOAT64);
+        DMatrixRMaj testInput = scaling.transform(testIn, null);
+        DMatrixRMaj testOutput = testOut.columns(0, testOut.numRegisters(), (DMatrixRMaj) null);
+
+        //línea base: el mismo algoritmo en un solo hilo
+        Feedforward serial = network(input.numRows, output.numRows);
+        Metrics base = train(serial, 1, HogwildSGD.Writes.PLAIN, epoch, input, output);
+        report("serial", base, base, serial, input, output, testInput, testOutput);
+
+        //los mismos pesos iniciales y batches, entrenados por varios hilos
+        Feedforward net = network(input.numRows, output.numRows);
+        Metrics m = train(net, threads, locked ? HogwildSGD.Writes.LOCKED_STRIPES : HogwildSGD.Writes.PLAIN,
+                epoch, input, output);
+        report("hogwild x" + threads, m, base, net, input, output, testInput, testOutput);
+    }
+
+    private static Metrics train(Feedforward net, int threads, HogwildSGD.Writes writes, int epoch,
+            DMatrixRMaj input, DMatrixRMaj output) {
+        HogwildSGD hogwild = new HogwildSGD();
+        hogwild.setThreads(threads);
+        hogwild.setLearningRate(0.01);
+        hogwild.setRegularization(1e-4);
+        hogwild.setEpoch(epoch);
+        hogwild.setWrites(writes);
+        MatrixBatchSource source = new MatrixBatchSource(input, output, 32, new Random(1));
+        RingBufferSink metrics = new RingBufferSink(1);
+        new Telemetry().addSink(metrics).measure((long) epoch * input.numCols, () -> {
+            try {
+                hogwild.train(net, source);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        System.out.println("loss x" + threads + ": " + hogwild.getLoss());
+        return metrics.snapshot().get(0);
+    }
+
+    private static Feedforward network(int inputs, int outputs) {
+        Random r = new Random(1);
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(inputs, 300, TransferFunction.TANSIG, WeightInit.DEFAULT, r));
+        net.addLayer(new Dense(300, outputs, TransferFunction.SOFTMAX, r));
+        return net;
+    }
+
+    private static void report(String name, Metrics m, Metrics base, Feedforward net,
+            DMatrixRMaj input, DMatrixRMaj output, DMatrixRMaj testInput, DMatrixRMaj testOutput) {
+        ChunkedInference inference = new ChunkedInference(net, 1024);
+        System.out.println(name + "\tregisters/s: " + m.getSamplesPerSecond()
+                + "\ttime (s): " + m.getWallNanos() / 1e9
+                + "\tspeedup: " + (double) base.getWallNanos() / m.getWallNanos()
+                + "\ttrain accuracy: " + ConfusionCounts.of(inference.output(input, null), output).accuracy()
+                + "\ttest accuracy: " + ConfusionCounts.of(inference.output(testInput, null), testOutput).accuracy());
+    }
+}
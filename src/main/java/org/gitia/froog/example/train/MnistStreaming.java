@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.BatchSource;
+import org.gitia.froog.example.data.DatasetConverter;
+import org.gitia.froog.example.data.FeatureScaling;
+import org.gitia.froog.example.data.MappedBatchSource;
+import org.gitia.froog.example.data.MappedDataset;
+import org.gitia.froog.example.data.MappedDataset.Type;
+import org.gitia.froog.example.data.PrefetchBatchSource;
+import org.gitia.froog.example.statistics.ConfusionCounts;
+import org.gitia.froog.example.telemetry.CsvSink;
+import org.gitia.froog.example.telemetry.Metrics;
+import org.gitia.froog.example.telemetry.MetricsSink;
+import org.gitia.froog.example.telemetry.RingBufferSink;
+import org.gitia.froog.example.telemetry.Telemetry;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.layer.initialization.WeightInit;
+import org.gitia.froog.statistics.Clock;
+import org.gitia.froog.transferfunction.TransferFunction;
+
+/**
+ * Trains the MnistSGD network streaming the batches from the mapped files,
+ * with a thread that reads, standardizes and shuffles the next batches while
+ * the current one trains. Only the window being shuffled and the batches in
+ * flight are in the heap.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MnistStreaming {
+
+    static final String IN = "src/main/resources/mnist/mnist_train_in_50000.csv";
+    static final String OUT = "src/main/resources/mnist/mnist_train_out_50000.csv";
+
+    public static void main(String[] args) throws IOException {
+        MappedDataset in = DatasetConverter.cached(IN, Type.FLOAT64);
+        MappedDataset out = DatasetConverter.cached(OUT, Type.FLOAT64);
+        FeatureScaling scaling = FeatureScaling.fit(in);
+
+        MappedBatchSource mapped = new MappedBatchSource(in, out, 32);
+        mapped.setNormalizer(scaling);
+        mapped.setShuffle(new Random(1), 8192);
+
+        Random r = new Random(1);
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(scaling.numOutputs(), 300, TransferFunction.TANSIG, WeightInit.DEFAULT, r));
+        net.addLayer(new Dense(300, out.numFeatures(), TransferFunction.SOFTMAX, r));
+
+        StreamingSGD sgd = new StreamingSGD();
+        sgd.setLearningRate(0.001);
+        sgd.setRegularization(1e-4);
+        sgd.setEpoch(10);
+        sgd.setAdam(0.9, 0.999, 1e-8);
+
+        // every batch to a CSV file, the epochs also kept in memory
+        RingBufferSink epochs = new RingBufferSink(64);
+        Telemetry telemetry = new Telemetry()
+                .addSink(new CsvSink(Paths.get("target", "mnist-streaming-telemetry.csv")))
+                .addSink(MetricsSink.epochs(epochs));
+        sgd.setTelemetry(telemetry);
+
+        Clock clock = new Clock();
+        try (BatchSource source = new PrefetchBatchSource(mapped, 4)) {
+            clock.start();
+            sgd.train(net, source);
+            clock.stop();
+        } finally {
+            telemetry.close();
+        }
+        System.out.println("time (s): " + clock.timeSec());
+        for (Metrics m : epochs.epochs()) {
+            System.out.println(m);
+        }
+
+        // confusion matrix of the training set, one block at a time
+        DMatrixRMaj raw = new DMatrixRMaj(1, 1);
+        DMatrixRMaj x = new DMatrixRMaj(1, 1);
+        DMatrixRMaj y = new DMatrixRMaj(1, 1);
+        Gradients g = new Gradients(net);
+        ConfusionCounts counts = new ConfusionCounts(out.numFeatures());
+        for (int start = 0; start < in.numRegisters(); start += 4096) {
+            int count = Math.min(4096, in.numRegisters() - start);
+            in.columns(start, count, raw);
+            out.columns(start, count, y);
+            scaling.apply(raw, x);
+            counts.add(g.forward(x), y);
+        }
+        counts.printStats();
+    }
+}
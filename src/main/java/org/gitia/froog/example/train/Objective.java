@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.io.IOException;
+
+/**
+ * Objective and gradient of a network over a whole data set, as seen by the
+ * full-batch optimizers. A point is a vector with the weights and the bias
+ * of every layer one after the other.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+interface Objective {
+
+    /**
+     * @return length of the points
+     */
+    int numParameters();
+
+    /**
+     * @return registers of the data set, read by every evaluation
+     */
+    int numRegisters();
+
+    /**
+     * @param point receives the weights of the network
+     */
+    void getPoint(double[] point);
+
+    /**
+     * @param point new weights of the network. Not modified.
+     */
+    void setPoint(double[] point);
+
+    /**
+     * @param point where to evaluate. Not modified.
+     * @param gradient receives the gradient of the objective at the point
+     * @return objective at the point
+     * @throws IOException if the data can not be read
+     */
+    double gradient(double[] point, double[] gradient) throws IOException;
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.BatchSource;
+import org.gitia.froog.example.telemetry.Telemetry;
+
+/**
+ * Scaled conjugate gradient of Møller (1993) over the whole data set, with
+ * the gradients evaluated by {@link FullBatchGradients}, in parallel blocks
+ * of registers, or by {@link StreamedGradients}, accumulated over the
+ * batches of a source, so the memory does not grow with the data set.
+ * <p>
+ * Every successful iteration evaluates two gradients: at w + sigma * p, to
+ * approximate the curvature along p, and at the new point w + alpha * p.
+ * They can not run at the same time, alpha comes from that curvature, so
+ * the parallelism comes from splitting each evaluation over the registers.
+ * </p>
+ * <p>
+ * With a {@link Telemetry} every iteration is reported as an epoch, with the
+ * registers of every evaluation it made.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class ScaledConjugateGradient {
+
+    private int epoch = 1;
+    private double regularization = 0;
+    private double sigma0 = 5e-5;
+    private double lambda0 = 5e-7;
+    private int blockSize = FullBatchGradients.REGISTERS_PER_TASK;
+    private final List<Double> loss = new ArrayList<>();
+    private Telemetry telemetry;
+
+    /**
+     * @param net network to train. Modified.
+     * @param input [inputs x registers]. Not modified.
+     * @param output [outputs x registers]. Not modified.
+     */
+    public void train(Feedforward net, DMatrixRMaj input, DMatrixRMaj output) {
+        FullBatchGradients f = new FullBatchGradients(net, input, output, blockSize);
+        f.setRegularization(regularization);
+        try {
+            train(f);
+        } catch (IOException ex) {
+            // the data is in memory, FullBatchGradients does not read
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Trains with the gradients accumulated over the batches of the source,
+     * every evaluation reads one epoch of it. With the batches in the order
+     * of the data the result is the one of
+     * {@link #train(Feedforward, DMatrixRMaj, DMatrixRMaj)} with blocks of
+     * the size of the batches up to the order of the sums, see
+     * {@link StreamedGradients}. It is identical with at most 16 batches.
+     *
+     * @param net network to train. Modified.
+     * @param source batches of the data set
+     * @throws IOException if the source can not be read
+     */
+    public void train(Feedforward net, BatchSource source) throws IOException {
+        StreamedGradients f = new StreamedGradients(net, source);
+        f.setRegularization(regularization);
+        train(f);
+    }
+
+    private void train(Objective f) throws IOException {
+        int n = f.numParameters();
+        double[] w = new double[n];
+        double[] g = new double[n];
+        double[] r = new double[n];
+        double[] p = new double[n];
+        double[] probe = new double[n];
+        double[] gProbe = new double[n];
+        double[] trial = new double[n];
+        double[] gTrial = new double[n];
+
+        f.getPoint(w);
+        double e = f.gradient(w, g);
+        for (int i = 0; i < n; i++) {
+            r[i] = -g[i];
+            p[i] = r[i];
+        }
+        boolean success = true;
+        long successes = 0;
+        double lambda = lambda0;
+        double lambdaBar = 0;
+        double delta = 0;
+        for (int k = 0; k < epoch; k++) {
+            double pp = dot(p, p);
+            if (pp == 0) {
+                break;
+            }
+            if (telemetry != null) {
+                telemetry.epochStart(k);
+            }
+            int evaluations = 1;
+            if (success) {
+                evaluations++;
+                // curvature along p: p' * (E'(w + sigma p) - E'(w)) / sigma
+                double sigma = sigma0 / Math.sqrt(pp);
+                for (int i = 0; i < n; i++) {
+                    probe[i] = w[i] + sigma * p[i];
+                }
+                f.gradient(probe, gProbe);
+                delta = 0;
+                for (int i = 0; i < n; i++) {
+                    delta += p[i] * (gProbe[i] + r[i]);
+                }
+                delta /= sigma;
+            }
+            // scale, and make the Hessian positive definite if it is not
+            delta += (lambda - lambdaBar) * pp;
+            if (delta <= 0) {
+                lambdaBar = 2 * (lambda - delta / pp);
+                delta = -delta + lambda * pp;
+                lambda = lambdaBar;
+            }
+            double mu = dot(p, r);
+            double alpha = mu / delta;
+            for (int i = 0; i < n; i++) {
+                trial[i] = w[i] + alpha * p[i];
+            }
+            double eTrial = f.gradient(trial, gTrial);
+            double comparison = 2 * delta * (e - eTrial) / (mu * mu);
+            if (comparison >= 0) {
+                double[] swap = w;
+                w = trial;
+                trial = swap;
+                e = eTrial;
+                lambdaBar = 0;
+                success = true;
+                successes++;
+                double rr = 0;
+                double rrOld = 0;
+                for (int i = 0; i < n; i++) {
+                    rr += gTrial[i] * gTrial[i];
+                    rrOld -= gTrial[i] * r[i];
+                }
+                double beta = successes % n == 0 ? 0 : (rr - rrOld) / mu;
+                for (int i = 0; i < n; i++) {
+                    r[i] = -gTrial[i];
+                    p[i] = r[i] + beta * p[i];
+                }
+                if (comparison >= 0.75) {
+                    lambda /= 4;
+                }
+            } else {
+                lambdaBar = lambda;
+                success = false;
+            }
+            if (comparison < 0.25) {
+                lambda += delta * (1 - comparison) / pp;
+            }
+            loss.add(e);
+            if (telemetry != null) {
+                long registers = (long) evaluations * f.numRegisters();
+                telemetry.epochEnd(registers, e * registers);
+            }
+        }
+        f.setPoint(w);
+    }
+
+    static double dot(double[] a, double[] b) {
+        double total = 0;
+        for (int i = 0; i < a.length; i++) {
+            total += a[i] * b[i];
+        }
+        return total;
+    }
+
+    /**
+     * @param telemetry receives the measurements of every iteration, null to
+     * measure nothing
+     */
+    public void setTelemetry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * @param epoch number of iterations over the whole data set
+     */
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * @param sigma0 length of the step to approximate the curvature
+     * @param lambda0 initial scale of the Hessian
+     */
+    public void setScale(double sigma0, double lambda0) {
+        this.sigma0 = sigma0;
+        this.lambda0 = lambda0;
+    }
+
+    /**
+     * @param blockSize registers evaluated by each task of the training from
+     * a matrix
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return objective after every iteration
+     */
+    public List<Double> getLoss() {
+        return loss;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.Batch;
+import org.gitia.froog.example.data.BatchSource;
+
+/**
+ * Loss and gradient of a network over a whole data set read from a
+ * {@link BatchSource}: every evaluation is one epoch of the source, the
+ * gradients of the batches are accumulated, so only one batch and its
+ * activations are in memory whatever the number of registers.
+ * <p>
+ * The objective is the one of {@link FullBatchGradients}. With the batches
+ * of the source in the order of the data and blocks of the size of the
+ * batches, the result is equal to the one of FullBatchGradients up to the
+ * order of the sums: the batches are added one after the other, while
+ * FullBatchGradients adds the blocks in up to 16 partial sums. With at most
+ * 16 blocks the result is identical.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class StreamedGradients implements Objective {
+
+    private final Gradients model;
+    private final Gradients replica;
+    private final BatchSource source;
+    private final int parameters;
+    private double regularization;
+
+    /**
+     * @param net network, its weights are the point of {@link #getPoint}
+     * @param source batches of the data set, an epoch of the source is the
+     * whole data set
+     */
+    public StreamedGradients(Feedforward net, BatchSource source) {
+        this.model = new Gradients(net);
+        if (model.getW(0).numCols != source.numInputs()) {
+            throw new IllegalArgumentException("The network expects " + model.getW(0).numCols
+                    + " inputs and the source gives " + source.numInputs());
+        }
+        this.replica = model.copy();
+        // the L2 term is added once to the whole gradient
+        this.replica.setRegularization(0);
+        this.source = source;
+        this.parameters = FullBatchGradients.numParameters(model);
+    }
+
+    @Override
+    public int numParameters() {
+        return parameters;
+    }
+
+    @Override
+    public int numRegisters() {
+        return source.numRegisters();
+    }
+
+    @Override
+    public void getPoint(double[] point) {
+        FullBatchGradients.store(model, point);
+    }
+
+    @Override
+    public void setPoint(double[] point) {
+        FullBatchGradients.load(point, model);
+    }
+
+    @Override
+    public double gradient(double[] point, double[] gradient) throws IOException {
+        FullBatchGradients.load(point, replica);
+        Arrays.fill(gradient, 0, parameters, 0);
+        double loss = 0;
+        long registers = 0;
+        for (Batch b = source.next(); b != null; b = source.next()) {
+            int cols = b.size();
+            loss += replica.compute(b.input, b.output);
+            registers += cols;
+            source.recycle(b);
+            // the gradient of the batch is its mean, keep the sum
+            int offset = 0;
+            for (int l = 0; l < replica.numLayers(); l++) {
+                offset = add(cols, replica.getGradW(l), gradient, offset);
+                offset = add(cols, replica.getGradB(l), gradient, offset);
+            }
+        }
+        if (registers == 0) {
+            throw new IllegalStateException("The source has no registers");
+        }
+        for (int i = 0; i < parameters; i++) {
+            gradient[i] /= registers;
+        }
+        FullBatchGradients.addWeights(regularization, point, gradient, model);
+        return loss / registers + FullBatchGradients.penalty(regularization, point, model);
+    }
+
+    /**
+     * @param regularization weight of the L2 term of the weights
+     */
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    private static int add(double alpha, DMatrixRMaj m, double[] target, int offset) {
+        double[] data = m.data;
+        for (int i = 0, size = m.getNumElements(); i < size; i++) {
+            target[offset + i] += alpha * data[i];
+        }
+        return offset + m.getNumElements();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.Batch;
+import org.gitia.froog.example.data.BatchSource;
+import org.gitia.froog.example.telemetry.Telemetry;
+
+/**
+ * Mini-batch stochastic gradient descent that takes its batches from a
+ * {@link BatchSource}, so the training set is read from disk while the
+ * network trains instead of being loaded in the heap. The batch size, the
+ * order and the normalization are the ones of the source.
+ * <p>
+ * With a {@link Telemetry} the time of every phase, the allocations and the
+ * collections are reported per batch and per epoch.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class StreamingSGD {
+
+    private int epoch = 1;
+    private double regularization = 0;
+    private final Adam adam = new Adam();
+    private final List<Double> loss = new ArrayList<>();
+    private Telemetry telemetry;
+
+    /**
+     * @param net network to train. Modified.
+     * @param source batches of every epoch
+     * @throws IOException if the source can not be read
+     */
+    public void train(Feedforward net, BatchSource source) throws IOException {
+        Gradients g = new Gradients(net);
+        g.setRegularization(regularization);
+        if (g.getW(0).numCols != source.numInputs()) {
+            throw new IllegalArgumentException("The network expects " + g.getW(0).numCols
+                    + " inputs and the source gives " + source.numInputs());
+        }
+        adam.reset();
+        for (int e = 0; e < epoch; e++) {
+            if (telemetry != null) {
+                telemetry.epochStart(e);
+            }
+            double total = 0;
+            long registers = 0;
+            while (true) {
+                long requested = System.nanoTime();
+                Batch batch = source.next();
+                if (batch == null) {
+                    break;
+                }
+                if (telemetry != null) {
+                    telemetry.batchStart(requested);
+                    telemetry.dataReady();
+                }
+                g.forward(batch.input);
+                if (telemetry != null) {
+                    telemetry.forwardDone();
+                }
+                double batchLoss = g.backward(batch.input, batch.output);
+                if (telemetry != null) {
+                    telemetry.backwardDone();
+                }
+                int size = batch.size();
+                source.recycle(batch);
+                adam.update(g);
+                if (telemetry != null) {
+                    telemetry.batchEnd(size, batchLoss);
+                }
+                total += batchLoss;
+                registers += size;
+            }
+            if (registers == 0) {
+                throw new IllegalStateException("The source has no registers");
+            }
+            loss.add(total / registers);
+            if (telemetry != null) {
+                telemetry.epochEnd();
+            }
+        }
+    }
+
+    /**
+     * @param telemetry receives the measurements of the training, null to
+     * measure nothing
+     */
+    public void setTelemetry(Telemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    public void setEpoch(int epoch) {
+        this.epoch = epoch;
+    }
+
+    public void setLearningRate(double learningRate) {
+        adam.setLearningRate(learningRate);
+    }
+
+    public void setRegularization(double regularization) {
+        this.regularization = regularization;
+    }
+
+    /**
+     * @param beta1 decay of the first moment
+     * @param beta2 decay of the second moment
+     * @param epsilon added to the root of the second moment
+     */
+    public void setAdam(double beta1, double beta2, double epsilon) {
+        adam.setAdam(beta1, beta2, epsilon);
+    }
+
+    /**
+     * Uses the plain gradient step instead of Adam.
+     */
+    public void disableAdam() {
+        adam.disable();
+    }
+
+    /**
+     * @return mean loss of every epoch
+     */
+    public List<Double> getLoss() {
+        return loss;
+    }
+}
@@ -0,0 +1,542 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.ejml.data.BMatrixRMaj;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.RandomMatrices_DDRM;
+import org.gitia.froog.example.parallel.BitMask;
+import org.gitia.froog.example.parallel.CommonOps_DDRM_Parallel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Every operation of {@link CommonOps_DDRM_Parallel} against the
+ * {@link CommonOps_DDRM} operation it replaces.
+ * <p>
+ * 'shape' is rows x cols of the operands. The square shapes are the
+ * dimensiones of the old Main harness, the rest are the activations of the
+ * MNIST layers over the training set and over a batch of 32.
+ * </p>
+ * <p>
+ * The operations that modify their input in place do it with values that
+ * keep the data bounded between invocations (a sign change, a product by
+ * +-1), so later iterations do not measure denormals or infinities.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms6g", "-Xmx6g"})
+public class CommonOpsBenchmark {
+
+    @Param({"20x20", "30x30", "40x40", "50x50", "70x70", "100x100",
+        "150x150", "200x200", "300x300", "400x400", "600x600", "800x800",
+        "1000x1000", "300x50000", "784x50000", "10x50000", "300x32"})
+    public String shape;
+
+    @Param({Shapes.EJML, Shapes.PARALLEL})
+    public String impl;
+
+    private boolean parallel;
+    // values in [-1, 1]
+    private DMatrixRMaj a, b;
+    // values in [0.5, 1.5], for logarithms, powers and divisions
+    private DMatrixRMaj pos;
+    // values -1 or 1
+    private DMatrixRMaj sign;
+    // 0 or -1, the dense equivalent of 'bits' scaled by -1
+    private DMatrixRMaj dropout;
+    private DMatrixRMaj c, rows, cols, selected;
+    private BMatrixRMaj mask, flags;
+    private BitMask bits;
+
+    @Setup
+    public void setup() {
+        int[] dims = Shapes.parse(shape);
+        int n = dims[0], m = dims[1];
+        Random r = new Random(1);
+        parallel = Shapes.PARALLEL.equals(impl);
+        a = RandomMatrices_DDRM.rectangle(n, m, -1, 1, r);
+        b = RandomMatrices_DDRM.rectangle(n, m, -1, 1, r);
+        pos = RandomMatrices_DDRM.rectangle(n, m, 0.5, 1.5, r);
+        sign = new DMatrixRMaj(n, m);
+        dropout = new DMatrixRMaj(n, m);
+        mask = new BMatrixRMaj(n, m);
+        bits = new BitMask(n, m);
+        for (int i = 0; i < a.getNumElements(); i++) {
+            sign.data[i] = r.nextBoolean() ? 1 : -1;
+            boolean keep = r.nextBoolean();
+            dropout.data[i] = keep ? -1 : 0;
+            mask.data[i] = keep;
+            bits.set(i, keep);
+        }
+        c = new DMatrixRMaj(n, m);
+        rows = new DMatrixRMaj(n, 1);
+        cols = new DMatrixRMaj(1, m);
+        selected = new DMatrixRMaj(1, 1);
+        flags = new BMatrixRMaj(n, m);
+    }
+
+    @Benchmark
+    public DMatrixRMaj elementExp() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementExp_parallel(a, c);
+        } else {
+            CommonOps_DDRM.elementExp(a, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj scale() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.scale_parallel(-1, a);
+        } else {
+            CommonOps_DDRM.scale(-1, a);
+        }
+        return a;
+    }
+
+    @Benchmark
+    public DMatrixRMaj elementPowerScalar() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementPower(pos, 2.5, c);
+        } else {
+            CommonOps_DDRM.elementPower(pos, 2.5, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj elementMult() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementMult(a, sign);
+        } else {
+            CommonOps_DDRM.elementMult(a, sign);
+        }
+        return a;
+    }
+
+    @Benchmark
+    public DMatrixRMaj elementMultOut() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementMult(a, b, c);
+        } else {
+            CommonOps_DDRM.elementMult(a, b, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj elementDiv() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementDiv(a, sign);
+        } else {
+            CommonOps_DDRM.elementDiv(a, sign);
+        }
+        return a;
+    }
+
+    @Benchmark
+    public DMatrixRMaj elementDivOut() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementDiv(a, pos, c);
+        } else {
+            CommonOps_DDRM.elementDiv(a, pos, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj elementPower() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementPower(pos, b, c);
+        } else {
+            CommonOps_DDRM.elementPower(pos, b, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj elementPowerBase() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementPower(2.5, b, c);
+        } else {
+            CommonOps_DDRM.elementPower(2.5, b, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj elementLog() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementLog(pos, c);
+        } else {
+            CommonOps_DDRM.elementLog(pos, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj addEquals() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.addEquals(a, b);
+        } else {
+            CommonOps_DDRM.addEquals(a, b);
+        }
+        return a;
+    }
+
+    @Benchmark
+    public DMatrixRMaj addEqualsScaled() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.addEquals(a, 0.5, b);
+        } else {
+            CommonOps_DDRM.addEquals(a, 0.5, b);
+        }
+        return a;
+    }
+
+    @Benchmark
+    public DMatrixRMaj add() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.add(a, b, c);
+        } else {
+            CommonOps_DDRM.add(a, b, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj addScaledB() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.add(a, 0.5, b, c);
+        } else {
+            CommonOps_DDRM.add(a, 0.5, b, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj addScaled() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.add(2, a, 0.5, b, c);
+        } else {
+            CommonOps_DDRM.add(2, a, 0.5, b, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj addScaledA() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.add(2, a, b, c);
+        } else {
+            CommonOps_DDRM.add(2, a, b, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj addScalar() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.add(a, 0.5);
+        } else {
+            CommonOps_DDRM.add(a, 0.5);
+        }
+        return a;
+    }
+
+    @Benchmark
+    public DMatrixRMaj addScalarOut() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.add(a, 0.5, c);
+        } else {
+            CommonOps_DDRM.add(a, 0.5, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj subtractScalar() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.subtract(a, 0.5, c);
+        } else {
+            CommonOps_DDRM.subtract(a, 0.5, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj subtractFromScalar() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.subtract(0.5, a, c);
+        } else {
+            CommonOps_DDRM.subtract(0.5, a, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj subtractEquals() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.subtractEquals(a, b);
+        } else {
+            CommonOps_DDRM.subtractEquals(a, b);
+        }
+        return a;
+    }
+
+    @Benchmark
+    public DMatrixRMaj subtract() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.subtract(a, b, c);
+        } else {
+            CommonOps_DDRM.subtract(a, b, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj scaleOut() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.scale(2, a, c);
+        } else {
+            CommonOps_DDRM.scale(2, a, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj divideScalarBy() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.divide(-1, sign);
+        } else {
+            CommonOps_DDRM.divide(-1, sign);
+        }
+        return sign;
+    }
+
+    @Benchmark
+    public DMatrixRMaj divideByScalar() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.divide(a, -1);
+        } else {
+            CommonOps_DDRM.divide(a, -1);
+        }
+        return a;
+    }
+
+    @Benchmark
+    public DMatrixRMaj divideScalarByOut() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.divide(2, pos, c);
+        } else {
+            CommonOps_DDRM.divide(2, pos, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj divideByScalarOut() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.divide(a, 2, c);
+        } else {
+            CommonOps_DDRM.divide(a, 2, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj changeSign() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.changeSign(a);
+        } else {
+            CommonOps_DDRM.changeSign(a);
+        }
+        return a;
+    }
+
+    @Benchmark
+    public DMatrixRMaj changeSignOut() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.changeSign(a, c);
+        } else {
+            CommonOps_DDRM.changeSign(a, c);
+        }
+        return c;
+    }
+
+    @Benchmark
+    public double elementMax() {
+        return parallel ? CommonOps_DDRM_Parallel.elementMax(a) : CommonOps_DDRM.elementMax(a);
+    }
+
+    @Benchmark
+    public double elementMaxAbs() {
+        return parallel ? CommonOps_DDRM_Parallel.elementMaxAbs(a) : CommonOps_DDRM.elementMaxAbs(a);
+    }
+
+    @Benchmark
+    public double elementMin() {
+        return parallel ? CommonOps_DDRM_Parallel.elementMin(a) : CommonOps_DDRM.elementMin(a);
+    }
+
+    @Benchmark
+    public double elementMinAbs() {
+        return parallel ? CommonOps_DDRM_Parallel.elementMinAbs(a) : CommonOps_DDRM.elementMinAbs(a);
+    }
+
+    @Benchmark
+    public double elementSum() {
+        return parallel ? CommonOps_DDRM_Parallel.elementSum(a) : CommonOps_DDRM.elementSum(a);
+    }
+
+    @Benchmark
+    public double elementSumAbs() {
+        return parallel ? CommonOps_DDRM_Parallel.elementSumAbs(a) : CommonOps_DDRM.elementSumAbs(a);
+    }
+
+    @Benchmark
+    public DMatrixRMaj sumRows() {
+        return parallel ? CommonOps_DDRM_Parallel.sumRows(a, rows) : CommonOps_DDRM.sumRows(a, rows);
+    }
+
+    @Benchmark
+    public DMatrixRMaj minRows() {
+        return parallel ? CommonOps_DDRM_Parallel.minRows(a, rows) : CommonOps_DDRM.minRows(a, rows);
+    }
+
+    @Benchmark
+    public DMatrixRMaj maxRows() {
+        return parallel ? CommonOps_DDRM_Parallel.maxRows(a, rows) : CommonOps_DDRM.maxRows(a, rows);
+    }
+
+    @Benchmark
+    public DMatrixRMaj sumCols() {
+        return parallel ? CommonOps_DDRM_Parallel.sumCols(a, cols) : CommonOps_DDRM.sumCols(a, cols);
+    }
+
+    @Benchmark
+    public DMatrixRMaj minCols() {
+        return parallel ? CommonOps_DDRM_Parallel.minCols(a, cols) : CommonOps_DDRM.minCols(a, cols);
+    }
+
+    @Benchmark
+    public DMatrixRMaj maxCols() {
+        return parallel ? CommonOps_DDRM_Parallel.maxCols(a, cols) : CommonOps_DDRM.maxCols(a, cols);
+    }
+
+    @Benchmark
+    public BMatrixRMaj elementLessThan() {
+        return parallel ? CommonOps_DDRM_Parallel.elementLessThan(a, 0.0, flags) : CommonOps_DDRM.elementLessThan(a, 0.0, flags);
+    }
+
+    @Benchmark
+    public BMatrixRMaj elementLessThanOrEqual() {
+        return parallel ? CommonOps_DDRM_Parallel.elementLessThanOrEqual(a, 0.0, flags) : CommonOps_DDRM.elementLessThanOrEqual(a, 0.0, flags);
+    }
+
+    @Benchmark
+    public BMatrixRMaj elementMoreThan() {
+        return parallel ? CommonOps_DDRM_Parallel.elementMoreThan(a, 0.0, flags) : CommonOps_DDRM.elementMoreThan(a, 0.0, flags);
+    }
+
+    @Benchmark
+    public BMatrixRMaj elementMoreThanOrEqual() {
+        return parallel ? CommonOps_DDRM_Parallel.elementMoreThanOrEqual(a, 0.0, flags) : CommonOps_DDRM.elementMoreThanOrEqual(a, 0.0, flags);
+    }
+
+    @Benchmark
+    public BMatrixRMaj elementLessThanMatrix() {
+        return parallel ? CommonOps_DDRM_Parallel.elementLessThan(a, b, flags) : CommonOps_DDRM.elementLessThan(a, b, flags);
+    }
+
+    @Benchmark
+    public BMatrixRMaj elementLessThanOrEqualMatrix() {
+        return parallel ? CommonOps_DDRM_Parallel.elementLessThanOrEqual(a, b, flags) : CommonOps_DDRM.elementLessThanOrEqual(a, b, flags);
+    }
+
+    @Benchmark
+    public DMatrixRMaj elements() {
+        return parallel ? CommonOps_DDRM_Parallel.elements(a, mask, selected) : CommonOps_DDRM.elements(a, mask, selected);
+    }
+
+    @Benchmark
+    public int countTrue() {
+        return parallel ? CommonOps_DDRM_Parallel.countTrue(mask) : CommonOps_DDRM.countTrue(mask);
+    }
+
+    /**
+     * Packed mask against the boolean[] mask of EJML.
+     */
+    @Benchmark
+    public Object elementLessThanBits() {
+        return parallel ? CommonOps_DDRM_Parallel.elementLessThan(a, 0.0, bits) : CommonOps_DDRM.elementLessThan(a, 0.0, flags);
+    }
+
+    /**
+     * Packed mask against the boolean[] mask of EJML.
+     */
+    @Benchmark
+    public Object elementMoreThanBits() {
+        return parallel ? CommonOps_DDRM_Parallel.elementMoreThan(a, 0.0, bits) : CommonOps_DDRM.elementMoreThan(a, 0.0, flags);
+    }
+
+    /**
+     * Packed mask against the boolean[] mask of EJML.
+     */
+    @Benchmark
+    public Object elementMoreThanOrEqualBits() {
+        return parallel ? CommonOps_DDRM_Parallel.elementMoreThanOrEqual(a, 0.0, bits) : CommonOps_DDRM.elementMoreThanOrEqual(a, 0.0, flags);
+    }
+
+    @Benchmark
+    public int countTrueBits() {
+        return parallel ? CommonOps_DDRM_Parallel.countTrue(bits) : CommonOps_DDRM.countTrue(mask);
+    }
+
+    /**
+     * Masked scaling, as in dropout: the fused packed mask against multiplying
+     * by a dense matrix of 0 and alpha.
+     */
+    @Benchmark
+    public DMatrixRMaj elementMultMask() {
+        if (parallel) {
+            CommonOps_DDRM_Parallel.elementMult(a, bits, -1);
+        } else {
+            CommonOps_DDRM.elementMult(a, dropout);
+        }
+        return a;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.RandomMatrices_DDRM;
+import org.ejml.dense.row.mult.MatrixMatrixMult_DDRM;
+import org.gitia.froog.example.parallel.MatrixMatrixMult_DDRM_Parallel;
+import org.gitia.froog.example.parallel.ParallelOps;
+import org.gitia.froog.example.parallel.TransferFunction_DDRM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Every product of {@link MatrixMatrixMult_DDRM_Parallel} against the EJML
+ * product it replaces, each one on the shapes it is meant for.
+ * <p>
+ * 'shape' is m x k x n: 'a' is [m x k], 'b' is [k x n] and 'c' is [m x n].
+ * The general products run on the square dimensiones of the old Main harness
+ * and on the MNIST layers over the training set: the forward pass of the
+ * hidden and output layers and the weight gradient of the hidden layer
+ * (dZ * X'). mult_small runs where 'b' has few columns, the fused layer on the
+ * forward pass of the MNIST layers and {@link ParallelOps#mult} on all of
+ * them, since it chooses among the others.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms6g", "-Xmx6g"})
+public class MatrixMatrixMultBenchmark {
+
+    /**
+     * Square products and the MNIST layers over the training set.
+     */
+    @State(Scope.Benchmark)
+    public static class General extends Operands {
+
+        @Param({"20x20x20", "30x30x30", "40x40x40", "50x50x50", "70x70x70",
+            "100x100x100", "150x150x150", "200x200x200", "300x300x300",
+            "400x400x400", "600x600x600", "800x800x800", "1000x1000x1000",
+            "300x784x50000", "10x300x50000", "300x50000x784"})
+        public String shape;
+
+        @Param({Shapes.EJML, Shapes.PARALLEL})
+        public String impl;
+
+        @Setup
+        public void setup() {
+            init(shape, impl);
+        }
+    }
+
+    /**
+     * Products where 'b' has few columns: a single register, a few of them
+     * and the MNIST batches of 32.
+     */
+    @State(Scope.Benchmark)
+    public static class Narrow extends Operands {
+
+        @Param({"300x784x1", "300x784x4", "300x784x8", "1000x1000x16",
+            "300x784x32", "10x300x32"})
+        public String shape;
+
+        @Param({Shapes.EJML, Shapes.PARALLEL})
+        public String impl;
+
+        @Setup
+        public void setup() {
+            init(shape, impl);
+        }
+    }
+
+    /**
+     * Forward pass of the MNIST hidden and output layers, over the training
+     * set and over a batch of 32.
+     */
+    @State(Scope.Benchmark)
+    public static class Layers extends Operands {
+
+        @Param({"300x784x50000", "10x300x50000", "300x784x32", "10x300x32"})
+        public String shape;
+
+        @Param({Shapes.EJML, Shapes.PARALLEL})
+        public String impl;
+
+        @Setup
+        public void setup() {
+            init(shape, impl);
+        }
+    }
+
+    /**
+     * Every shape of the other states, narrow ones included.
+     */
+    @State(Scope.Benchmark)
+    public static class Dispatch extends Operands {
+
+        @Param({"20x20x20", "30x30x30", "40x40x40", "50x50x50", "70x70x70",
+            "100x100x100", "150x150x150", "200x200x200", "300x300x300",
+            "400x400x400", "600x600x600", "800x800x800", "1000x1000x1000",
+            "300x784x50000", "10x300x50000", "300x50000x784",
+            "300x784x1", "300x784x4", "300x784x8", "1000x1000x16",
+            "300x784x32", "10x300x32"})
+        public String shape;
+
+        @Param({Shapes.EJML, Shapes.PARALLEL})
+        public String impl;
+
+        @Setup
+        public void setup() {
+            init(shape, impl);
+        }
+    }
+
+    /**
+     * Operands of one shape, 'at' and 'bt' are the transposed layouts.
+     */
+    public abstract static class Operands {
+
+        boolean parallel;
+        DMatrixRMaj a, b, at, bt, bias, c;
+
+        void init(String shape, String impl) {
+            int[] dims = Shapes.parse(shape);
+            int m = dims[0], k = dims[1], n = dims[2];
+            Random r = new Random(1);
+            parallel = Shapes.PARALLEL.equals(impl);
+            a = RandomMatrices_DDRM.rectangle(m, k, -1, 1, r);
+            b = RandomMatrices_DDRM.rectangle(k, n, -1, 1, r);
+            at = RandomMatrices_DDRM.rectangle(k, m, -1, 1, r);
+            bt = RandomMatrices_DDRM.rectangle(n, k, -1, 1, r);
+            bias = RandomMatrices_DDRM.rectangle(m, 1, -1, 1, r);
+            c = new DMatrixRMaj(m, n);
+        }
+    }
+
+    @Benchmark
+    public DMatrixRMaj mult_reorder(General s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.mult_reorder(s.a, s.b, s.c);
+        } else {
+            MatrixMatrixMult_DDRM.mult_reorder(s.a, s.b, s.c);
+        }
+        return s.c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj mult_small(Narrow s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.mult_small(s.a, s.b, s.c);
+        } else {
+            MatrixMatrixMult_DDRM.mult_small(s.a, s.b, s.c);
+        }
+        return s.c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj mult_blocked(General s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.mult_blocked(s.a, s.b, s.c);
+        } else {
+            CommonOps_DDRM.mult(s.a, s.b, s.c);
+        }
+        return s.c;
+    }
+
+    /**
+     * The product chosen by {@link ParallelOps} for the shape.
+     */
+    @Benchmark
+    public DMatrixRMaj mult(Dispatch s) {
+        if (s.parallel) {
+            ParallelOps.mult(s.a, s.b, s.c);
+        } else {
+            CommonOps_DDRM.mult(s.a, s.b, s.c);
+        }
+        return s.c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj multTransA_reorder(General s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.multTransA_reorder(s.at, s.b, s.c);
+        } else {
+            MatrixMatrixMult_DDRM.multTransA_reorder(s.at, s.b, s.c);
+        }
+        return s.c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj multTransB_reorder(General s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.multTransB_reorder(s.a, s.bt, s.c);
+        } else {
+            MatrixMatrixMult_DDRM.multTransB(s.a, s.bt, s.c);
+        }
+        return s.c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj multTransAB_reorder(General s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.multTransAB_reorder(s.at, s.bt, s.c);
+        } else {
+            MatrixMatrixMult_DDRM.multTransAB(s.at, s.bt, s.c);
+        }
+        return s.c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj multAdd_reorder(General s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.multAdd_reorder(s.a, s.b, s.c);
+        } else {
+            MatrixMatrixMult_DDRM.multAdd_reorder(s.a, s.b, s.c);
+        }
+        return s.c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj multAddTransB_reorder(General s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.multAddTransB_reorder(s.a, s.bt, s.c);
+        } else {
+            MatrixMatrixMult_DDRM.multAddTransB(s.a, s.bt, s.c);
+        }
+        return s.c;
+    }
+
+    @Benchmark
+    public DMatrixRMaj multAddTransAB_reorder(General s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.multAddTransAB_reorder(s.at, s.bt, s.c);
+        } else {
+            MatrixMatrixMult_DDRM.multAddTransAB(s.at, s.bt, s.c);
+        }
+        return s.c;
+    }
+
+    /**
+     * The fused layer against the three passes it replaces: product, bias and
+     * tanh.
+     */
+    @Benchmark
+    public DMatrixRMaj multAddBias(Layers s) {
+        if (s.parallel) {
+            MatrixMatrixMult_DDRM_Parallel.multAddBias(s.a, s.b, s.bias, TransferFunction_DDRM.TANSIG, s.c);
+        } else {
+            CommonOps_DDRM.mult(s.a, s.b, s.c);
+            for (int i = 0, index = 0; i < s.c.numRows; i++) {
+                double value = s.bias.data[i];
+                for (int j = 0; j < s.c.numCols; j++, index++) {
+                    s.c.data[index] += value;
+                }
+            }
+            for (int i = 0; i < s.c.getNumElements(); i++) {
+                s.c.data[i] = Math.tanh(s.c.data[i]);
+            }
+        }
+        return s.c;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.RandomMatrices_DDRM;
+import org.ejml.dense.row.mult.MatrixVectorMult_DDRM;
+import org.gitia.froog.example.parallel.MatrixVectorMult_DDRM_Parallel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MatrixVectorMult_DDRM_Parallel} against
+ * {@link MatrixVectorMult_DDRM}.
+ * <p>
+ * 'shape' is rows x cols of the matrix; the MNIST shapes are the layers
+ * evaluated for a single register.
+ * </p>
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixVectorMultBenchmark {
+
+    @Param({"20x20", "30x30", "40x40", "50x50", "70x70", "100x100",
+        "150x150", "200x200", "300x300", "400x400", "600x600", "800x800",
+        "1000x1000", "300x784", "1000x784", "10x300"})
+    public String shape;
+
+    @Param({Shapes.EJML, Shapes.PARALLEL})
+    public String impl;
+
+    private boolean parallel;
+    private DMatrixRMaj a, x, y;
+
+    @Setup
+    public void setup() {
+        int[] dims = Shapes.parse(shape);
+        Random r = new Random(1);
+        parallel = Shapes.PARALLEL.equals(impl);
+        a = RandomMatrices_DDRM.rectangle(dims[0], dims[1], -1, 1, r);
+        x = RandomMatrices_DDRM.rectangle(dims[1], 1, -1, 1, r);
+        y = new DMatrixRMaj(dims[0], 1);
+    }
+
+    @Benchmark
+    public DMatrixRMaj mult() {
+        if (parallel) {
+            MatrixVectorMult_DDRM_Parallel.mult(a, x, y);
+        } else {
+            MatrixVectorMult_DDRM.mult(a, x, y);
+        }
+        return y;
+    }
+}
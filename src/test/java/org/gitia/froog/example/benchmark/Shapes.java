@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.benchmark;
+
+/**
+ * Shapes used by the benchmarks, written as "rows x cols" or "m x k x n" so
+ * they can be given to JMH as a single parameter.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+final class Shapes {
+
+    /**
+     * EJML parameter value of the serial baseline.
+     */
+    static final String EJML = "ejml";
+
+    /**
+     * Parameter value of the parallel kernels.
+     */
+    static final String PARALLEL = "parallel";
+
+    private Shapes() {
+    }
+
+    /**
+     * @param shape dimensions separated by 'x', e.g. "300x784x50000"
+     * @return the dimensions
+     */
+    static int[] parse(String shape) {
+        String[] parts = shape.split("x");
+        int[] dims = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            dims[i] = Integer.parseInt(parts[i].trim());
+        }
+        return dims;
+    }
+}
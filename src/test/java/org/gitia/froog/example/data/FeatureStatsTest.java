@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.junit.Test;
+
+/**
+ * {@link FeatureStats} accumulated over uneven shards, merged and saved,
+ * against the mean and the sample standard deviation of the whole data set
+ * computed in two passes, as STD.fit does, and the standardization of
+ * STD.eval.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class FeatureStatsTest {
+
+    private static final double TOL = 1e-10;
+    private static final int FEATURES = 6;
+    private static final int REGISTERS = 5000;
+    // registers of every shard, one of them empty
+    private static final int[] SHARDS = {1, 13, 0, 986, 2047, 1953};
+
+    private final Random rand = new Random(234);
+
+    @Test
+    public void shardsMatchTheWholeDataSet() throws IOException {
+        DMatrixRMaj horizontal = data();
+        double[] mean = new double[FEATURES];
+        double[] std = new double[FEATURES];
+        reference(horizontal, mean, std);
+
+        // every shard is added in mini-batches, the second one through addRows
+        FeatureStats total = new FeatureStats(FEATURES);
+        int start = 0;
+        for (int s = 0; s < SHARDS.length; s++) {
+            int end = start + SHARDS[s];
+            FeatureStats shard = new FeatureStats(FEATURES);
+            if (s == 1) {
+                DMatrixRMaj vertical = CommonOps_DDRM.transpose(horizontal, null);
+                shard.addRows(vertical, start, end);
+            } else {
+                for (int c0 = start; c0 < end; c0 += 300) {
+                    int c1 = Math.min(end, c0 + 300);
+                    shard.addColumns(CommonOps_DDRM.extract(horizontal, 0, FEATURES, c0, c1));
+                }
+            }
+            total.merge(shard);
+            start = end;
+        }
+        check(total, mean, std);
+
+        Path file = Files.createTempFile("feature-stats", ".ser");
+        try {
+            total.save(file);
+            FeatureStats loaded = FeatureStats.load(file);
+            check(loaded, mean, std);
+
+            DMatrixRMaj standardized = horizontal.copy();
+            loaded.standardize(standardized);
+            for (int i = 0; i < FEATURES; i++) {
+                double inv = std[i] > 0 ? 1 / std[i] : 1;
+                for (int j = 0; j < REGISTERS; j++) {
+                    assertEquals((horizontal.get(i, j) - mean[i]) * inv, standardized.get(i, j), TOL);
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void sameAsOnePass() {
+        DMatrixRMaj horizontal = data();
+        FeatureStats whole = FeatureStats.of(CommonOps_DDRM.transpose(horizontal, null));
+        FeatureStats batches = new FeatureStats(FEATURES);
+        for (int c0 = 0; c0 < REGISTERS; c0 += 777) {
+            batches.addColumns(CommonOps_DDRM.extract(horizontal, 0, FEATURES, c0, Math.min(REGISTERS, c0 + 777)));
+        }
+        assertEquals(whole.getCount(), batches.getCount());
+        for (int i = 0; i < FEATURES; i++) {
+            assertEquals(whole.mean(i), batches.mean(i), TOL * Math.max(1, Math.abs(whole.mean(i))));
+            assertEquals(whole.std(i), batches.std(i), TOL * Math.max(1, whole.std(i)));
+            assertEquals(whole.min(i), batches.min(i), 0);
+            assertEquals(whole.max(i), batches.max(i), 0);
+        }
+    }
+
+    /**
+     * [features x registers], with a large offset on some features and a
+     * constant one.
+     */
+    private DMatrixRMaj data() {
+        DMatrixRMaj horizontal = new DMatrixRMaj(FEATURES, REGISTERS);
+        for (int i = 0; i < FEATURES; i++) {
+            double offset = i % 2 == 0 ? 1000 * i : -3;
+            double scale = i + 0.5;
+            for (int j = 0; j < REGISTERS; j++) {
+                horizontal.set(i, j, i == 3 ? 7 : offset + scale * rand.nextGaussian());
+            }
+        }
+        return horizontal;
+    }
+
+    /**
+     * Mean and sample standard deviation of every feature, in two passes.
+     */
+    private static void reference(DMatrixRMaj horizontal, double[] mean, double[] std) {
+        int n = horizontal.numCols;
+        for (int i = 0; i < FEATURES; i++) {
+            double sum = 0;
+            for (int j = 0; j < n; j++) {
+                sum += horizontal.get(i, j);
+            }
+            mean[i] = sum / n;
+            double sq = 0;
+            for (int j = 0; j < n; j++) {
+                double e = horizontal.get(i, j) - mean[i];
+                sq += e * e;
+            }
+            std[i] = Math.sqrt(sq / (n - 1));
+        }
+    }
+
+    private static void check(FeatureStats stats, double[] mean, double[] std) {
+        assertEquals(REGISTERS, stats.getCount());
+        double[] foundMean = new double[FEATURES];
+        double[] foundStd = new double[FEATURES];
+        for (int i = 0; i < FEATURES; i++) {
+            foundMean[i] = stats.mean(i);
+            foundStd[i] = stats.std(i);
+        }
+        assertArrayEquals(mean, foundMean, TOL * 1000 * FEATURES);
+        assertArrayEquals(std, foundStd, TOL);
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.parallel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.ejml.data.BMatrixRMaj;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.RandomMatrices_DDRM;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * The reductions and comparisons of {@link CommonOps_DDRM_Parallel} against
+ * CommonOps_DDRM, and the {@link BitMask} versions against the boolean
+ * matrices of EJML. The shapes include matrices large enough to be split
+ * among the workers, with sizes that are not multiples of the reduction
+ * blocks or of the 64 bits of a mask word, and every operation runs with one
+ * worker and with several.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class CommonOps_DDRM_ParallelTest {
+
+    private static final double TOL = 1e-10;
+    // rows x cols
+    private static final int[][] SHAPES = {
+        {1, 1}, {1, 7}, {5, 3}, {63, 65}, {300, 513}, {4097, 20}
+    };
+    // 1, 63, 65, 4097 and 153900 elements
+    private static final int[][] MASK_SHAPES = {
+        {1, 1}, {1, 63}, {5, 13}, {17, 241}, {300, 513}
+    };
+    private static final ParallelContext SERIAL = ParallelContext.create("test-ops-serial", 1);
+    private static final ParallelContext PARALLEL = ParallelContext.create("test-ops-parallel", 3);
+    private static final ParallelContext[] CONTEXTS = {SERIAL, PARALLEL};
+
+    private final Random rand = new Random(234);
+
+    @AfterClass
+    public static void close() {
+        SERIAL.close();
+        PARALLEL.close();
+    }
+
+    @Test
+    public void elementReductions() {
+        for (int[] s : SHAPES) {
+            for (DMatrixRMaj a : new DMatrixRMaj[]{random(s[0], s[1]), withNaN(random(s[0], s[1]))}) {
+                for (ParallelContext context : CONTEXTS) {
+                    // the same element, so the same bits
+                    assertEquals(CommonOps_DDRM.elementMax(a), context.call(() -> CommonOps_DDRM_Parallel.elementMax(a)), 0);
+                    assertEquals(CommonOps_DDRM.elementMin(a), context.call(() -> CommonOps_DDRM_Parallel.elementMin(a)), 0);
+                    assertEquals(CommonOps_DDRM.elementMaxAbs(a), context.call(() -> CommonOps_DDRM_Parallel.elementMaxAbs(a)), 0);
+                    assertEquals(CommonOps_DDRM.elementMinAbs(a), context.call(() -> CommonOps_DDRM_Parallel.elementMinAbs(a)), 0);
+                }
+            }
+            DMatrixRMaj a = random(s[0], s[1]);
+            for (ParallelContext context : CONTEXTS) {
+                assertEquals(CommonOps_DDRM.elementSum(a), context.call(() -> CommonOps_DDRM_Parallel.elementSum(a)),
+                        TOL * a.getNumElements());
+                assertEquals(CommonOps_DDRM.elementSumAbs(a), context.call(() -> CommonOps_DDRM_Parallel.elementSumAbs(a)),
+                        TOL * a.getNumElements());
+            }
+        }
+    }
+
+    @Test
+    public void firstElementNaN() {
+        DMatrixRMaj a = random(300, 513);
+        a.data[0] = Double.NaN;
+        for (ParallelContext context : CONTEXTS) {
+            assertTrue(Double.isNaN(context.call(() -> CommonOps_DDRM_Parallel.elementMax(a))));
+            assertTrue(Double.isNaN(context.call(() -> CommonOps_DDRM_Parallel.elementMin(a))));
+        }
+    }
+
+    @Test
+    public void leadingNaN() {
+        // first of a row, of a column and of a reduction block
+        DMatrixRMaj a = random(300, 513);
+        a.data[513] = Double.NaN;
+        a.data[5] = Double.NaN;
+        a.data[CommonOps_DDRM_Parallel.REDUCE_BLOCK] = Double.NaN;
+        for (ParallelContext context : CONTEXTS) {
+            assertEquals(CommonOps_DDRM.elementMax(a), context.call(() -> CommonOps_DDRM_Parallel.elementMax(a)), 0);
+            assertEquals(CommonOps_DDRM.elementMin(a), context.call(() -> CommonOps_DDRM_Parallel.elementMin(a)), 0);
+            check(CommonOps_DDRM.maxRows(a, null), context.call(() -> CommonOps_DDRM_Parallel.maxRows(a, null)), 0);
+            check(CommonOps_DDRM.minCols(a, null), context.call(() -> CommonOps_DDRM_Parallel.minCols(a, null)), 0);
+        }
+    }
+
+    @Test
+    public void sumIsReproducible() {
+        DMatrixRMaj a = random(1000, 1001);
+        double serial = SERIAL.call(() -> CommonOps_DDRM_Parallel.elementSum(a));
+        double serialAbs = SERIAL.call(() -> CommonOps_DDRM_Parallel.elementSumAbs(a));
+        for (int workers : new int[]{3, 4, 16}) {
+            try (ParallelContext context = ParallelContext.create("test-ops-" + workers, workers)) {
+                assertTrue(serial == context.call(() -> CommonOps_DDRM_Parallel.elementSum(a)));
+                assertTrue(serialAbs == context.call(() -> CommonOps_DDRM_Parallel.elementSumAbs(a)));
+            }
+        }
+    }
+
+    @Test
+    public void rowAndColumnReductions() {
+        for (int[] s : SHAPES) {
+            for (DMatrixRMaj a : new DMatrixRMaj[]{random(s[0], s[1]), withNaN(random(s[0], s[1]))}) {
+                for (ParallelContext context : CONTEXTS) {
+                    check(CommonOps_DDRM.minRows(a, null), context.call(() -> CommonOps_DDRM_Parallel.minRows(a, null)), 0);
+                    check(CommonOps_DDRM.maxRows(a, null), context.call(() -> CommonOps_DDRM_Parallel.maxRows(a, null)), 0);
+                    check(CommonOps_DDRM.minCols(a, null), context.call(() -> CommonOps_DDRM_Parallel.minCols(a, null)), 0);
+                    check(CommonOps_DDRM.maxCols(a, null), context.call(() -> CommonOps_DDRM_Parallel.maxCols(a, null)), 0);
+                }
+            }
+            DMatrixRMaj a = random(s[0], s[1]);
+            for (ParallelContext context : CONTEXTS) {
+                check(CommonOps_DDRM.sumRows(a, null), context.call(() -> CommonOps_DDRM_Parallel.sumRows(a, null)), TOL);
+                check(CommonOps_DDRM.sumCols(a, null), context.call(() -> CommonOps_DDRM_Parallel.sumCols(a, null)), TOL);
+            }
+        }
+    }
+
+    @Test
+    public void infinities() {
+        DMatrixRMaj low = new DMatrixRMaj(300, 513);
+        CommonOps_DDRM.fill(low, Double.NEGATIVE_INFINITY);
+        DMatrixRMaj high = new DMatrixRMaj(300, 513);
+        CommonOps_DDRM.fill(high, Double.POSITIVE_INFINITY);
+        for (ParallelContext context : CONTEXTS) {
+            assertEquals(Double.NEGATIVE_INFINITY, context.call(() -> CommonOps_DDRM_Parallel.elementMax(low)), 0);
+            assertEquals(Double.POSITIVE_INFINITY, context.call(() -> CommonOps_DDRM_Parallel.elementMin(high)), 0);
+            DMatrixRMaj maxRows = context.call(() -> CommonOps_DDRM_Parallel.maxRows(low, null));
+            DMatrixRMaj maxCols = context.call(() -> CommonOps_DDRM_Parallel.maxCols(low, null));
+            DMatrixRMaj minRows = context.call(() -> CommonOps_DDRM_Parallel.minRows(high, null));
+            DMatrixRMaj minCols = context.call(() -> CommonOps_DDRM_Parallel.minCols(high, null));
+            assertEquals(Double.NEGATIVE_INFINITY, CommonOps_DDRM.elementMax(maxRows), 0);
+            assertEquals(Double.NEGATIVE_INFINITY, CommonOps_DDRM.elementMax(maxCols), 0);
+            assertEquals(Double.POSITIVE_INFINITY, CommonOps_DDRM.elementMin(minRows), 0);
+            assertEquals(Double.POSITIVE_INFINITY, CommonOps_DDRM.elementMin(minCols), 0);
+        }
+    }
+
+    @Test
+    public void comparisons() {
+        for (int[] s : MASK_SHAPES) {
+            DMatrixRMaj a = withNaN(integers(s[0], s[1]));
+            DMatrixRMaj b = integers(s[0], s[1]);
+            for (ParallelContext context : CONTEXTS) {
+                check(CommonOps_DDRM.elementLessThan(a, 0, null),
+                        context.call(() -> CommonOps_DDRM_Parallel.elementLessThan(a, 0, (BMatrixRMaj) null)));
+                check(CommonOps_DDRM.elementLessThanOrEqual(a, 0, null),
+                        context.call(() -> CommonOps_DDRM_Parallel.elementLessThanOrEqual(a, 0, null)));
+                check(CommonOps_DDRM.elementMoreThan(a, 0, null),
+                        context.call(() -> CommonOps_DDRM_Parallel.elementMoreThan(a, 0, (BMatrixRMaj) null)));
+                check(CommonOps_DDRM.elementMoreThanOrEqual(a, 0, null),
+                        context.call(() -> CommonOps_DDRM_Parallel.elementMoreThanOrEqual(a, 0, (BMatrixRMaj) null)));
+                check(CommonOps_DDRM.elementLessThan(a, b, null),
+                        context.call(() -> CommonOps_DDRM_Parallel.elementLessThan(a, b, null)));
+                check(CommonOps_DDRM.elementLessThanOrEqual(a, b, null),
+                        context.call(() -> CommonOps_DDRM_Parallel.elementLessThanOrEqual(a, b, null)));
+            }
+        }
+    }
+
+    @Test
+    public void elementsAndCount() {
+        for (int[] s : MASK_SHAPES) {
+            DMatrixRMaj a = random(s[0], s[1]);
+            // dense and sparse marks, so the blocks copy different counts
+            for (double threshold : new double[]{-0.5, 0.9}) {
+                BMatrixRMaj marked = CommonOps_DDRM.elementMoreThan(a, threshold, null);
+                for (ParallelContext context : CONTEXTS) {
+                    check(CommonOps_DDRM.elements(a, marked, null),
+                            context.call(() -> CommonOps_DDRM_Parallel.elements(a, marked, null)), 0);
+                    assertEquals(CommonOps_DDRM.countTrue(marked),
+                            (long) context.call(() -> CommonOps_DDRM_Parallel.countTrue(marked)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bitMask() {
+        for (int[] s : MASK_SHAPES) {
+            DMatrixRMaj a = withNaN(integers(s[0], s[1]));
+            BMatrixRMaj less = CommonOps_DDRM.elementLessThan(a, 0, null);
+            BMatrixRMaj more = CommonOps_DDRM.elementMoreThan(a, 0, null);
+            BMatrixRMaj moreOrEqual = CommonOps_DDRM.elementMoreThanOrEqual(a, 0, null);
+            for (ParallelContext context : CONTEXTS) {
+                // reused from a larger mask, so the last word starts with stale bits
+                BitMask mask = new BitMask(s[0] + 3, s[1] + 70);
+                Arrays.fill(mask.data, -1L);
+                context.run(() -> CommonOps_DDRM_Parallel.elementLessThan(a, 0, mask));
+                check(less, mask);
+                assertEquals(CommonOps_DDRM.countTrue(less), (long) context.call(() -> CommonOps_DDRM_Parallel.countTrue(mask)));
+                check(more, context.call(() -> CommonOps_DDRM_Parallel.elementMoreThan(a, 0, (BitMask) null)));
+                BitMask maskMoreOrEqual = context.call(() -> CommonOps_DDRM_Parallel.elementMoreThanOrEqual(a, 0, (BitMask) null));
+                check(moreOrEqual, maskMoreOrEqual);
+                assertEquals(CommonOps_DDRM.countTrue(moreOrEqual),
+                        (long) context.call(() -> CommonOps_DDRM_Parallel.countTrue(maskMoreOrEqual)));
+            }
+        }
+    }
+
+    @Test
+    public void elementMultMask() {
+        for (int[] s : MASK_SHAPES) {
+            DMatrixRMaj a = random(s[0], s[1]);
+            BMatrixRMaj marked = CommonOps_DDRM.elementMoreThan(a, 0, null);
+            DMatrixRMaj expected = a.copy();
+            for (int i = 0; i < expected.getNumElements(); i++) {
+                expected.data[i] = marked.data[i] ? 2.5 * a.data[i] : 0;
+            }
+            for (ParallelContext context : CONTEXTS) {
+                BitMask mask = CommonOps_DDRM_Parallel.elementMoreThan(a, 0, (BitMask) null);
+                DMatrixRMaj found = a.copy();
+                context.run(() -> CommonOps_DDRM_Parallel.elementMult(found, mask, 2.5));
+                check(expected, found, 0);
+            }
+        }
+    }
+
+    /**
+     * Small integers, so the comparisons with 0 and between matrices have
+     * ties.
+     */
+    private DMatrixRMaj integers(int rows, int cols) {
+        DMatrixRMaj a = new DMatrixRMaj(rows, cols);
+        for (int i = 0; i < a.getNumElements(); i++) {
+            a.data[i] = rand.nextInt(5) - 2;
+        }
+        return a;
+    }
+
+    private DMatrixRMaj random(int rows, int cols) {
+        return RandomMatrices_DDRM.rectangle(rows, cols, -1, 1, rand);
+    }
+
+    /**
+     * Replaces some elements with NaN, never in the first row or column, so
+     * every row and column keeps a number.
+     */
+    private DMatrixRMaj withNaN(DMatrixRMaj a) {
+        for (int i = 1; i < a.getNumElements(); i += 1 + rand.nextInt(97)) {
+            if (i >= a.numCols && i % a.numCols != 0) {
+                a.data[i] = Double.NaN;
+            }
+        }
+        return a;
+    }
+
+    private static void check(BMatrixRMaj expected, BMatrixRMaj found) {
+        assertEquals(expected.numRows, found.numRows);
+        assertEquals(expected.numCols, found.numCols);
+        assertArrayEquals(Arrays.copyOf(expected.data, expected.getNumElements()),
+                Arrays.copyOf(found.data, found.getNumElements()));
+    }
+
+    private static void check(BMatrixRMaj expected, BitMask found) {
+        assertEquals(expected.numRows, found.numRows);
+        assertEquals(expected.numCols, found.numCols);
+        boolean[] bits = new boolean[found.getNumElements()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = found.get(i);
+        }
+        assertArrayEquals(Arrays.copyOf(expected.data, expected.getNumElements()), bits);
+    }
+
+    private static void check(DMatrixRMaj expected, DMatrixRMaj found, double tol) {
+        assertEquals(expected.numRows, found.numRows);
+        assertEquals(expected.numCols, found.numCols);
+        assertArrayEquals(Arrays.copyOf(expected.data, expected.getNumElements()),
+                Arrays.copyOf(found.data, found.getNumElements()), tol);
+    }
+}
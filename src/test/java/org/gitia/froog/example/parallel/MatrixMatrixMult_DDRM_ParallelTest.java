@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.parallel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.DSubmatrixD1;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.RandomMatrices_DDRM;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * Every product of {@link MatrixMatrixMult_DDRM_Parallel} against the EJML
+ * product it replaces. The shapes leave partial tiles at the borders and
+ * cross the KC slices of the blocked kernels, and the products run with one
+ * worker and with several.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MatrixMatrixMult_DDRM_ParallelTest {
+
+    private static final double TOL = 1e-10;
+    // m x k x n
+    private static final int[][] SHAPES = {
+        {1, 1, 1}, {3, 5, 2}, {4, 4, 4}, {7, 300, 9}, {17, 257, 1030}, {130, 513, 33}
+    };
+    private static final ParallelContext SERIAL = ParallelContext.create("test-ddrm-serial", 1);
+    private static final ParallelContext PARALLEL = ParallelContext.create("test-ddrm-parallel", 3);
+
+    private final Random rand = new Random(234);
+
+    @AfterClass
+    public static void close() {
+        SERIAL.close();
+        PARALLEL.close();
+    }
+
+    @Test
+    public void mult() {
+        for (int[] s : SHAPES) {
+            DMatrixRMaj a = random(s[0], s[1]);
+            DMatrixRMaj b = random(s[1], s[2]);
+            DMatrixRMaj expected = new DMatrixRMaj(s[0], s[2]);
+            CommonOps_DDRM.mult(a, b, expected);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                DMatrixRMaj c = new DMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.mult_reorder(a, b, c));
+                check(expected, c);
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.mult_small(a, b, c));
+                check(expected, c);
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.mult_blocked(a, b, c));
+                check(expected, c);
+            }
+        }
+    }
+
+    @Test
+    public void multAdd() {
+        for (int[] s : SHAPES) {
+            DMatrixRMaj a = random(s[0], s[1]);
+            DMatrixRMaj b = random(s[1], s[2]);
+            DMatrixRMaj c0 = random(s[0], s[2]);
+            DMatrixRMaj expected = c0.copy();
+            CommonOps_DDRM.multAdd(a, b, expected);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                DMatrixRMaj c = c0.copy();
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.multAdd_reorder(a, b, c));
+                check(expected, c);
+            }
+        }
+    }
+
+    @Test
+    public void multTransA() {
+        for (int[] s : SHAPES) {
+            DMatrixRMaj a = random(s[1], s[0]);
+            DMatrixRMaj b = random(s[1], s[2]);
+            DMatrixRMaj expected = new DMatrixRMaj(s[0], s[2]);
+            CommonOps_DDRM.multTransA(a, b, expected);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                DMatrixRMaj c = new DMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.multTransA_reorder(a, b, c));
+                check(expected, c);
+            }
+        }
+    }
+
+    @Test
+    public void multTransB() {
+        for (int[] s : SHAPES) {
+            DMatrixRMaj a = random(s[0], s[1]);
+            DMatrixRMaj b = random(s[2], s[1]);
+            DMatrixRMaj c0 = random(s[0], s[2]);
+            DMatrixRMaj expected = new DMatrixRMaj(s[0], s[2]);
+            CommonOps_DDRM.multTransB(a, b, expected);
+            DMatrixRMaj expectedAdd = c0.copy();
+            CommonOps_DDRM.multAddTransB(a, b, expectedAdd);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                DMatrixRMaj c = new DMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.multTransB_reorder(a, b, c));
+                check(expected, c);
+                DMatrixRMaj add = c0.copy();
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.multAddTransB_reorder(a, b, add));
+                check(expectedAdd, add);
+            }
+        }
+    }
+
+    @Test
+    public void multTransAB() {
+        for (int[] s : SHAPES) {
+            DMatrixRMaj a = random(s[1], s[0]);
+            DMatrixRMaj b = random(s[2], s[1]);
+            DMatrixRMaj c0 = random(s[0], s[2]);
+            DMatrixRMaj expected = new DMatrixRMaj(s[0], s[2]);
+            CommonOps_DDRM.multTransAB(a, b, expected);
+            DMatrixRMaj expectedAdd = c0.copy();
+            CommonOps_DDRM.multAddTransAB(a, b, expectedAdd);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                DMatrixRMaj c = new DMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.multTransAB_reorder(a, b, c));
+                check(expected, c);
+                DMatrixRMaj add = c0.copy();
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.multAddTransAB_reorder(a, b, add));
+                check(expectedAdd, add);
+            }
+        }
+    }
+
+    @Test
+    public void multAddBias() {
+        for (int[] s : SHAPES) {
+            DMatrixRMaj a = random(s[0], s[1]);
+            DMatrixRMaj b = random(s[1], s[2]);
+            DMatrixRMaj bias = random(s[0], 1);
+            DMatrixRMaj expected = new DMatrixRMaj(s[0], s[2]);
+            CommonOps_DDRM.mult(a, b, expected);
+            for (int i = 0; i < s[0]; i++) {
+                for (int j = 0; j < s[2]; j++) {
+                    expected.set(i, j, Math.tanh(expected.get(i, j) + bias.get(i)));
+                }
+            }
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                DMatrixRMaj c = new DMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.multAddBias(a, b, bias,
+                        TransferFunction_DDRM.TANSIG, c));
+                check(expected, c);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void multAddBiasWithoutFunction() {
+        DMatrixRMaj a = random(3, 4);
+        DMatrixRMaj b = random(4, 5);
+        MatrixMatrixMult_DDRM_Parallel.multAddBias(a, b, random(3, 1), null, new DMatrixRMaj(1, 1));
+    }
+
+    @Test
+    public void submatrix() {
+        for (int[] s : SHAPES) {
+            // the view leaves rows and columns of the original on every side
+            DMatrixRMaj original = random(s[1] + 2, s[2] + 5);
+            DSubmatrixD1 b = new DSubmatrixD1(original, 1, s[1] + 1, 3, s[2] + 3);
+            DMatrixRMaj copy = b.extract();
+            DMatrixRMaj a = random(s[0], s[1]);
+            DMatrixRMaj bias = random(s[0], 1);
+            DMatrixRMaj delta = random(s[0], s[2]);
+            DMatrixRMaj expected = new DMatrixRMaj(1, 1);
+            MatrixMatrixMult_DDRM_Parallel.multAddBias(a, copy, bias, TransferFunction_DDRM.TANSIG, expected);
+            DMatrixRMaj expectedTransB = new DMatrixRMaj(s[0], s[1]);
+            CommonOps_DDRM.multTransB(delta, copy, expectedTransB);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                DMatrixRMaj c = new DMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.multAddBias(a, b, bias,
+                        TransferFunction_DDRM.TANSIG, c));
+                check(expected, c);
+                DMatrixRMaj transB = new DMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_DDRM_Parallel.multTransB_reorder(delta, b, transB));
+                check(expectedTransB, transB);
+            }
+        }
+    }
+
+    private DMatrixRMaj random(int rows, int cols) {
+        return RandomMatrices_DDRM.rectangle(rows, cols, -1, 1, rand);
+    }
+
+    private static void check(DMatrixRMaj expected, DMatrixRMaj found) {
+        assertEquals(expected.numRows, found.numRows);
+        assertEquals(expected.numCols, found.numCols);
+        assertArrayEquals(Arrays.copyOf(expected.data, expected.getNumElements()),
+                Arrays.copyOf(found.data, found.getNumElements()),
+                TOL * Math.max(1, CommonOps_DDRM.elementMaxAbs(expected)));
+    }
+}
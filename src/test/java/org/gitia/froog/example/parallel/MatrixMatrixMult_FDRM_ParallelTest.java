@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.parallel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.ejml.data.FMatrixRMaj;
+import org.ejml.dense.row.CommonOps_FDRM;
+import org.ejml.dense.row.RandomMatrices_FDRM;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * Every product of {@link MatrixMatrixMult_FDRM_Parallel} against the EJML
+ * product it replaces. The shapes leave partial tiles at the borders and
+ * cross the KC slices of the blocked kernels, and the products run with one
+ * worker and with several.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class MatrixMatrixMult_FDRM_ParallelTest {
+
+    private static final float TOL = 1e-4f;
+    // m x k x n
+    private static final int[][] SHAPES = {
+        {1, 1, 1}, {3, 5, 2}, {4, 4, 4}, {7, 300, 9}, {17, 257, 1030}, {130, 513, 33}
+    };
+    private static final ParallelContext SERIAL = ParallelContext.create("test-fdrm-serial", 1);
+    private static final ParallelContext PARALLEL = ParallelContext.create("test-fdrm-parallel", 3);
+
+    private final Random rand = new Random(234);
+
+    @AfterClass
+    public static void close() {
+        SERIAL.close();
+        PARALLEL.close();
+    }
+
+    @Test
+    public void mult() {
+        for (int[] s : SHAPES) {
+            FMatrixRMaj a = random(s[0], s[1]);
+            FMatrixRMaj b = random(s[1], s[2]);
+            FMatrixRMaj expected = new FMatrixRMaj(s[0], s[2]);
+            CommonOps_FDRM.mult(a, b, expected);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                FMatrixRMaj c = new FMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.mult_reorder(a, b, c));
+                check(expected, c);
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.mult_small(a, b, c));
+                check(expected, c);
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.mult_blocked(a, b, c));
+                check(expected, c);
+            }
+        }
+    }
+
+    @Test
+    public void multAdd() {
+        for (int[] s : SHAPES) {
+            FMatrixRMaj a = random(s[0], s[1]);
+            FMatrixRMaj b = random(s[1], s[2]);
+            FMatrixRMaj c0 = random(s[0], s[2]);
+            FMatrixRMaj expected = c0.copy();
+            CommonOps_FDRM.multAdd(a, b, expected);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                FMatrixRMaj c = c0.copy();
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.multAdd_reorder(a, b, c));
+                check(expected, c);
+            }
+        }
+    }
+
+    @Test
+    public void multTransA() {
+        for (int[] s : SHAPES) {
+            FMatrixRMaj a = random(s[1], s[0]);
+            FMatrixRMaj b = random(s[1], s[2]);
+            FMatrixRMaj expected = new FMatrixRMaj(s[0], s[2]);
+            CommonOps_FDRM.multTransA(a, b, expected);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                FMatrixRMaj c = new FMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.multTransA_reorder(a, b, c));
+                check(expected, c);
+            }
+        }
+    }
+
+    @Test
+    public void multTransB() {
+        for (int[] s : SHAPES) {
+            FMatrixRMaj a = random(s[0], s[1]);
+            FMatrixRMaj b = random(s[2], s[1]);
+            FMatrixRMaj c0 = random(s[0], s[2]);
+            FMatrixRMaj expected = new FMatrixRMaj(s[0], s[2]);
+            CommonOps_FDRM.multTransB(a, b, expected);
+            FMatrixRMaj expectedAdd = c0.copy();
+            CommonOps_FDRM.multAddTransB(a, b, expectedAdd);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                FMatrixRMaj c = new FMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.multTransB_reorder(a, b, c));
+                check(expected, c);
+                FMatrixRMaj add = c0.copy();
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.multAddTransB_reorder(a, b, add));
+                check(expectedAdd, add);
+            }
+        }
+    }
+
+    @Test
+    public void multTransAB() {
+        for (int[] s : SHAPES) {
+            FMatrixRMaj a = random(s[1], s[0]);
+            FMatrixRMaj b = random(s[2], s[1]);
+            FMatrixRMaj c0 = random(s[0], s[2]);
+            FMatrixRMaj expected = new FMatrixRMaj(s[0], s[2]);
+            CommonOps_FDRM.multTransAB(a, b, expected);
+            FMatrixRMaj expectedAdd = c0.copy();
+            CommonOps_FDRM.multAddTransAB(a, b, expectedAdd);
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                FMatrixRMaj c = new FMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.multTransAB_reorder(a, b, c));
+                check(expected, c);
+                FMatrixRMaj add = c0.copy();
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.multAddTransAB_reorder(a, b, add));
+                check(expectedAdd, add);
+            }
+        }
+    }
+
+    @Test
+    public void multAddBias() {
+        for (int[] s : SHAPES) {
+            FMatrixRMaj a = random(s[0], s[1]);
+            FMatrixRMaj b = random(s[1], s[2]);
+            FMatrixRMaj bias = random(s[0], 1);
+            FMatrixRMaj expected = new FMatrixRMaj(s[0], s[2]);
+            CommonOps_FDRM.mult(a, b, expected);
+            for (int i = 0; i < s[0]; i++) {
+                for (int j = 0; j < s[2]; j++) {
+                    expected.set(i, j, (float) Math.tanh(expected.get(i, j) + bias.get(i)));
+                }
+            }
+            for (ParallelContext context : new ParallelContext[]{SERIAL, PARALLEL}) {
+                FMatrixRMaj c = new FMatrixRMaj(1, 1);
+                context.run(() -> MatrixMatrixMult_FDRM_Parallel.multAddBias(a, b, bias,
+                        TransferFunction_FDRM.TANSIG, c));
+                check(expected, c);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void multAddBiasWithoutFunction() {
+        FMatrixRMaj a = random(3, 4);
+        FMatrixRMaj b = random(4, 5);
+        MatrixMatrixMult_FDRM_Parallel.multAddBias(a, b, random(3, 1), null, new FMatrixRMaj(1, 1));
+    }
+
+    private FMatrixRMaj random(int rows, int cols) {
+        return RandomMatrices_FDRM.rectangle(rows, cols, -1, 1, rand);
+    }
+
+    private static void check(FMatrixRMaj expected, FMatrixRMaj found) {
+        assertEquals(expected.numRows, found.numRows);
+        assertEquals(expected.numCols, found.numCols);
+        assertArrayEquals(Arrays.copyOf(expected.data, expected.getNumElements()),
+                Arrays.copyOf(found.data, found.getNumElements()),
+                TOL * Math.max(1f, CommonOps_FDRM.elementMaxAbs(expected)));
+    }
+}
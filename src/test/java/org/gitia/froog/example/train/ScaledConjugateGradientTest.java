@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Matías Roodschild <mroodschild@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gitia.froog.example.train;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import org.ejml.data.DMatrixRMaj;
+import org.gitia.froog.Feedforward;
+import org.gitia.froog.example.data.MatrixBatchSource;
+import org.gitia.froog.layer.Dense;
+import org.gitia.froog.transferfunction.TransferFunction;
+import org.junit.Test;
+
+/**
+ * {@link ScaledConjugateGradient} over a {@link BatchSource} against the
+ * training with the data in memory. With the batches in the order of the
+ * data and at most 16 of them the sums are made in the same order, so the
+ * losses and the weights must be identical.
+ *
+ * @author Matías Roodschild <mroodschild@gmail.com>
+ */
+public class ScaledConjugateGradientTest {
+
+    private static final int INPUTS = 5;
+    private static final int OUTPUTS = 3;
+    private static final int REGISTERS = 300;
+    private static final int EPOCH = 20;
+
+    @Test
+    public void oneChunk() throws IOException {
+        compare(REGISTERS);
+    }
+
+    @Test
+    public void severalChunks() throws IOException {
+        // 7 batches, the last one smaller
+        compare(45);
+    }
+
+    private void compare(int batchSize) throws IOException {
+        DMatrixRMaj input = new DMatrixRMaj(INPUTS, REGISTERS);
+        DMatrixRMaj output = new DMatrixRMaj(OUTPUTS, REGISTERS);
+        data(input, output);
+
+        Feedforward inMemory = net();
+        ScaledConjugateGradient scg = trainer();
+        scg.setBlockSize(batchSize);
+        scg.train(inMemory, input, output);
+
+        Feedforward streamed = net();
+        ScaledConjugateGradient streaming = trainer();
+        streaming.train(streamed, new MatrixBatchSource(input, output, batchSize, null));
+
+        List<Double> expected = scg.getLoss();
+        List<Double> found = streaming.getLoss();
+        assertEquals(expected.size(), found.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), found.get(i), 0);
+        }
+        for (int l = 0; l < inMemory.getLayers().size(); l++) {
+            Dense a = inMemory.getLayers().get(l);
+            Dense b = streamed.getLayers().get(l);
+            assertArrayEquals(a.getW().getDDRM().data, b.getW().getDDRM().data, 0);
+            assertArrayEquals(a.getB().getDDRM().data, b.getB().getDDRM().data, 0);
+        }
+    }
+
+    private static ScaledConjugateGradient trainer() {
+        ScaledConjugateGradient scg = new ScaledConjugateGradient();
+        scg.setEpoch(EPOCH);
+        scg.setRegularization(1e-3);
+        return scg;
+    }
+
+    private static Feedforward net() {
+        Random r = new Random(7);
+        Feedforward net = new Feedforward();
+        net.addLayer(new Dense(INPUTS, 8, TransferFunction.TANSIG, r));
+        net.addLayer(new Dense(8, OUTPUTS, TransferFunction.SOFTMAX, r));
+        return net;
+    }
+
+    /**
+     * Gaussian inputs and one hot outputs of the class of the largest of the
+     * first {@link #OUTPUTS} inputs.
+     */
+    private static void data(DMatrixRMaj input, DMatrixRMaj output) {
+        Random r = new Random(11);
+        for (int j = 0; j < REGISTERS; j++) {
+            int best = 0;
+            for (int i = 0; i < INPUTS; i++) {
+                input.set(i, j, r.nextGaussian());
+                if (i < OUTPUTS && input.get(i, j) > input.get(best, j)) {
+                    best = i;
+                }
+            }
+            output.set(best, j, 1);
+        }
+    }
+}